@@ -0,0 +1,113 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import jpass.crypt.BlockCipher;
+import jpass.crypt.BlockCipherProvider;
+import jpass.crypt.BlockCipherRegistry;
+import jpass.crypt.Cbc;
+import jpass.crypt.DecryptException;
+import jpass.crypt.ParallelCbcDecryptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the bulk buffer methods of {@link Cbc} and the
+ * {@link ParallelCbcDecryptor}. The throughput in bytes is the score
+ * multiplied by {@code dataSize}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CbcBenchmark {
+
+    @Param({"reference", "table", "jce"})
+    public String provider;
+
+    @Param({"65536", "16777216"})
+    public int dataSize;
+
+    private byte[] key;
+    private byte[] iv;
+    private BlockCipher cipher;
+    private ParallelCbcDecryptor parallelDecryptor;
+    private byte[] data;
+    private byte[] encrypted;
+    private int encryptedLength;
+    private byte[] output;
+
+    @Setup
+    public void setUp() {
+        BlockCipherProvider blockCipherProvider = BlockCipherRegistry.getProvider(provider);
+        key = SyntheticEntries.createData(32);
+        iv = SyntheticEntries.createData(BlockCipher.BLOCK_SIZE);
+        cipher = blockCipherProvider.newCipher(key);
+        parallelDecryptor = new ParallelCbcDecryptor(blockCipherProvider, key,
+                ParallelCbcDecryptor.DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+        data = SyntheticEntries.createData(dataSize);
+        Cbc cbc = new Cbc(iv, cipher, null);
+        encrypted = new byte[cbc.getOutputSize(dataSize) + BlockCipher.BLOCK_SIZE];
+        encryptedLength = cbc.encrypt(data, 0, dataSize, encrypted, 0);
+        encryptedLength += cbc.finishEncryption(encrypted, encryptedLength);
+        output = new byte[encrypted.length];
+    }
+
+    @Benchmark
+    public int encrypt() {
+        Cbc cbc = new Cbc(iv, cipher, null);
+        int length = cbc.encrypt(data, 0, dataSize, output, 0);
+        return length + cbc.finishEncryption(output, length);
+    }
+
+    @Benchmark
+    public int decrypt() throws DecryptException {
+        Cbc cbc = new Cbc(iv, cipher, null);
+        int length = cbc.decrypt(encrypted, 0, encryptedLength, output, 0);
+        return length + cbc.finishDecryption(output, length);
+    }
+
+    @Benchmark
+    public int decryptParallel() throws DecryptException {
+        return parallelDecryptor.decrypt(iv, encrypted, 0, encryptedLength, output, 0);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import jpass.crypt.io.CryptInputStream;
+import jpass.crypt.io.CryptOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures encrypting through {@link CryptOutputStream} and decrypting through
+ * {@link CryptInputStream} with the default cipher provider, writing and
+ * reading in chunks of {@code chunkSize} bytes. The throughput in bytes is the
+ * score multiplied by {@code dataSize}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CryptStreamBenchmark {
+
+    @Param({"65536", "16777216"})
+    public int dataSize;
+
+    @Param({"1", "8192"})
+    public int chunkSize;
+
+    private byte[] key;
+    private byte[] iv;
+    private byte[] data;
+    private byte[] encrypted;
+    private byte[] chunk;
+
+    @Setup
+    public void setUp() throws IOException {
+        key = SyntheticEntries.createData(32);
+        iv = SyntheticEntries.createData(16);
+        data = SyntheticEntries.createData(dataSize);
+        ByteArrayOutputStream encryptedStream = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new CryptOutputStream(encryptedStream, key, iv)) {
+            outputStream.write(data);
+        }
+        encrypted = encryptedStream.toByteArray();
+        chunk = new byte[chunkSize];
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        SyntheticEntries.CountingOutputStream countingStream = new SyntheticEntries.CountingOutputStream();
+        try (OutputStream outputStream = new CryptOutputStream(countingStream, key, iv)) {
+            if (chunkSize == 1) {
+                for (byte b : data) {
+                    outputStream.write(b);
+                }
+            } else {
+                for (int offset = 0; offset < dataSize; offset += chunkSize) {
+                    outputStream.write(data, offset, Math.min(chunkSize, dataSize - offset));
+                }
+            }
+        }
+        return countingStream.getCount();
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        long count = 0;
+        try (InputStream inputStream = new CryptInputStream(new ByteArrayInputStream(encrypted), key, iv)) {
+            if (chunkSize == 1) {
+                while (inputStream.read() != -1) {
+                    count++;
+                }
+            } else {
+                int length;
+                while ((length = inputStream.read(chunk, 0, chunkSize)) != -1) {
+                    count += length;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import jpass.data.DocumentProcessException;
+import jpass.data.EntriesRepository;
+import jpass.io.JPassStream;
+import jpass.io.KeyMaterial;
+import jpass.xml.bind.Entries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures saving and opening encrypted files with {@link EntriesRepository}
+ * in each file format version. The key is derived once in the setup and its
+ * key material is reused, as the application does between open and save; see
+ * {@link KeyDerivationBenchmark} for the cost of the derivation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntriesRepositoryBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int entryCount;
+
+    @Param({"1", "2", "3", "4"})
+    public int fileVersion;
+
+    private char[] password;
+    private Entries entries;
+    private Path directory;
+    private Path file;
+    private KeyMaterial keyMaterial;
+
+    @Setup
+    public void setUp() throws IOException, DocumentProcessException {
+        password = "correct horse battery staple".toCharArray();
+        entries = SyntheticEntries.create(entryCount);
+        directory = Files.createTempDirectory("jpass-benchmark");
+        file = directory.resolve("entries.jpass");
+        keyMaterial = KeyMaterial.generate(JPassStream.SUPPORTED_FILE_VERSIONS.get(fileVersion), password);
+        newRepository().writeDocument(entries);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Saves the entries to a new file.
+     *
+     * @return the size of the file
+     */
+    @Benchmark
+    public long writeNewFile() throws IOException, DocumentProcessException {
+        Files.deleteIfExists(file);
+        newRepository().writeDocument(entries);
+        return Files.size(file);
+    }
+
+    /**
+     * Saves the unchanged entries over the existing file, which file formats
+     * with chunks update in place.
+     *
+     * @return the size of the file
+     */
+    @Benchmark
+    public long writeExistingFile() throws IOException, DocumentProcessException {
+        newRepository().writeDocument(entries);
+        return Files.size(file);
+    }
+
+    @Benchmark
+    public Entries read() throws IOException, DocumentProcessException {
+        return newRepository().readDocument();
+    }
+
+    /**
+     * Saves the entries to a new file and opens it again.
+     *
+     * @return the read entries
+     */
+    @Benchmark
+    public Entries roundTrip() throws IOException, DocumentProcessException {
+        Files.deleteIfExists(file);
+        newRepository().writeDocument(entries);
+        return newRepository().readDocument();
+    }
+
+    private EntriesRepository newRepository() {
+        return EntriesRepository.newInstance(file.toString(), password, keyMaterial);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.benchmark;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import jpass.ui.EntryDetailsTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures painting a viewport of the entry table while scrolling through it.
+ * The cost of a page should not depend on the number of entries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class EntryTablePaintBenchmark {
+
+    private static final int VIEWPORT_WIDTH = 600;
+    private static final int VIEWPORT_HEIGHT = 400;
+
+    @Param({"1000", "100000"})
+    public int entryCount;
+
+    private EntryDetailsTable table;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private int tableHeight;
+    private int scrollPosition;
+
+    @Setup
+    public void setUp() throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(() -> {
+            table = new EntryDetailsTable();
+            table.getEntryTableModel().setEntries(SyntheticEntries.create(entryCount).getEntry());
+        });
+        // let the columns be sized
+        SwingUtilities.invokeAndWait(() -> {
+            tableHeight = table.getRowHeight() * table.getRowCount();
+            table.setSize(VIEWPORT_WIDTH, tableHeight);
+            table.doLayout();
+        });
+        image = new BufferedImage(VIEWPORT_WIDTH, VIEWPORT_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    /**
+     * Paints the next page of the table, as scrolling does.
+     *
+     * @return the painted scroll position
+     */
+    @Benchmark
+    public int paintNextPage() {
+        scrollPosition = (scrollPosition + VIEWPORT_HEIGHT) % Math.max(tableHeight - VIEWPORT_HEIGHT, 1);
+        Graphics2D pageGraphics = (Graphics2D) graphics.create();
+        try {
+            pageGraphics.translate(0, -scrollPosition);
+            pageGraphics.setClip(0, scrollPosition, VIEWPORT_WIDTH, VIEWPORT_HEIGHT);
+            table.getUI().paint(pageGraphics, table);
+        } finally {
+            pageGraphics.dispose();
+        }
+        return scrollPosition;
+    }
+
+    /**
+     * Paints the same page of the table again, as repainting does.
+     *
+     * @return the painted scroll position
+     */
+    @Benchmark
+    public int repaintPage() {
+        Graphics2D pageGraphics = (Graphics2D) graphics.create();
+        try {
+            pageGraphics.translate(0, -tableHeight / 2);
+            pageGraphics.setClip(0, tableHeight / 2, VIEWPORT_WIDTH, VIEWPORT_HEIGHT);
+            table.getUI().paint(pageGraphics, table);
+        } finally {
+            pageGraphics.dispose();
+        }
+        return tableHeight;
+    }
+}
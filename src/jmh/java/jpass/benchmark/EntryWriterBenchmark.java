@@ -0,0 +1,97 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import jpass.xml.bind.Entries;
+import jpass.xml.converter.EntryStreamWriter;
+import jpass.xml.converter.XmlConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares writing entries documents with the object mapper of
+ * {@link XmlConverter} and with the streaming {@link EntryStreamWriter}. Run
+ * with the {@code gc} profiler to compare the allocation rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntryWriterBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int entryCount;
+
+    private Entries entries;
+    private XmlConverter<Entries> converter;
+    private EntryStreamWriter compactWriter;
+    private EntryStreamWriter indentedWriter;
+
+    @Setup
+    public void setUp() {
+        entries = SyntheticEntries.create(entryCount);
+        converter = new XmlConverter<>(Entries.class);
+        compactWriter = new EntryStreamWriter(false);
+        indentedWriter = new EntryStreamWriter(true);
+    }
+
+    @Benchmark
+    public long mapperWriteValue() throws IOException {
+        SyntheticEntries.CountingOutputStream outputStream = new SyntheticEntries.CountingOutputStream();
+        converter.write(entries, outputStream);
+        return outputStream.getCount();
+    }
+
+    @Benchmark
+    public long streamWriterIndented() throws IOException {
+        SyntheticEntries.CountingOutputStream outputStream = new SyntheticEntries.CountingOutputStream();
+        indentedWriter.write(entries.getEntry(), outputStream);
+        return outputStream.getCount();
+    }
+
+    @Benchmark
+    public long streamWriterCompact() throws IOException {
+        SyntheticEntries.CountingOutputStream outputStream = new SyntheticEntries.CountingOutputStream();
+        compactWriter.write(entries.getEntry(), outputStream);
+        return outputStream.getCount();
+    }
+}
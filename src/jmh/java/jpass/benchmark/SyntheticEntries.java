@@ -0,0 +1,110 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.benchmark;
+
+import java.io.OutputStream;
+import java.util.Random;
+import jpass.xml.bind.Entries;
+import jpass.xml.bind.Entry;
+
+/**
+ * Synthetic data for the benchmarks.
+ */
+public final class SyntheticEntries {
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private SyntheticEntries() {
+        // not intended to be instantiated
+    }
+
+    /**
+     * Creates a document with the given number of entries, with field lengths
+     * typical for a password vault.
+     *
+     * @param count number of entries
+     * @return the document
+     */
+    public static Entries create(final int count) {
+        Random random = new Random(count);
+        Entries entries = new Entries();
+        for (int i = 0; i < count; i++) {
+            Entry entry = new Entry();
+            entry.setTitle("Entry " + i + " " + randomString(random, 12));
+            entry.setUrl("https://www." + randomString(random, 10) + ".com/login");
+            entry.setUser(randomString(random, 10) + "@example.com");
+            entry.setPassword(randomString(random, 16));
+            entry.setNotes(randomString(random, random.nextInt(120)));
+            entries.getEntry().add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Creates random data, the same for the same size.
+     *
+     * @param size number of bytes
+     * @return the data
+     */
+    public static byte[] createData(final int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private static String randomString(final Random random, final int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Output stream which discards the written data and counts the bytes.
+     */
+    public static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(final int b) {
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            count += len;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
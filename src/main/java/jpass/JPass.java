@@ -34,6 +34,7 @@ import com.formdev.flatlaf.FlatLightLaf;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
+import jpass.crypt.BlockCipherRegistry;
 import jpass.ui.JPassFrame;
 import jpass.util.Configuration;
 import java.util.logging.Level;
@@ -71,6 +72,13 @@ public class JPass {
             LOG.log(Level.CONFIG, "Could not set look and feel for the application", e);
         }
 
+        try {
+            // select and self-test the cipher implementation before the first file operation
+            BlockCipherRegistry.getDefaultProvider();
+        } catch (Exception e) {
+            LOG.log(Level.SEVERE, "Could not initialize cipher implementation", e);
+        }
+
         SwingUtilities.invokeLater(() -> JPassFrame.getInstance((args.length > 0) ? args[0] : null));
     }
 }
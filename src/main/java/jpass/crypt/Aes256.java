@@ -48,7 +48,7 @@ package jpass.crypt;
  * @author Timm Knape
  * @version $Revision: 1.3 $
  */
-public final class Aes256 {
+public final class Aes256 implements BlockCipher {
 
     /**
      * Number of {@code byte}s needed for 32 bit words.
@@ -404,6 +404,7 @@ public final class Aes256 {
      * @param outBlock array to store the encrypted block
      * @param outIndex starting of the encrypted block in {@code outBlock}
      */
+    @Override
     public void encrypt(byte[] inBlock, int inIndex, byte[] outBlock,
             int outIndex) {
         System.arraycopy(inBlock, inIndex, this._tmp, 0, BLOCK_SIZE);
@@ -500,6 +501,7 @@ public final class Aes256 {
      * @param outBlock array to store the decrypted block
      * @param outIndex position of the decrypted block
      */
+    @Override
     public void decrypt(byte[] inBlock, int inIndex, byte[] outBlock,
             int outIndex) {
         System.arraycopy(inBlock, inIndex, this._tmp, 0, BLOCK_SIZE);
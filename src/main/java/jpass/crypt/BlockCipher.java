@@ -0,0 +1,101 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.crypt;
+
+/**
+ * Block cipher with a block size of 128 bit, used by {@link Cbc} to encrypt
+ * and decrypt single blocks.
+ */
+public interface BlockCipher {
+
+    /**
+     * Size of a block in {@code byte}s.
+     */
+    int BLOCK_SIZE = 16;
+
+    /**
+     * Encrypts one block. The input block lies in {@code inBlock} starting at
+     * the position {@code inIndex}. The encrypted block will be stored in
+     * {@code outBlock} starting at position {@code outIndex}. Input and output
+     * may be the same region of the same array.
+     *
+     * @param inBlock array containing the input block
+     * @param inIndex starting of the input block in {@code inBlock}
+     * @param outBlock array to store the encrypted block
+     * @param outIndex starting of the encrypted block in {@code outBlock}
+     */
+    void encrypt(byte[] inBlock, int inIndex, byte[] outBlock, int outIndex);
+
+    /**
+     * Decrypts one block. The encrypted block starts at {@code inIndex} in
+     * {@code inBlock}. The decrypted block will be stored at {@code outIndex}
+     * in {@code outBlock}. Input and output may be the same region of the same
+     * array.
+     *
+     * @param inBlock array containing the encrypted block
+     * @param inIndex starting point of the encrypted block
+     * @param outBlock array to store the decrypted block
+     * @param outIndex position of the decrypted block
+     */
+    void decrypt(byte[] inBlock, int inIndex, byte[] outBlock, int outIndex);
+
+    /**
+     * Encrypts consecutive blocks independently of each other (electronic
+     * code book). The default implementation encrypts block by block;
+     * implementations may process the whole range at once.
+     *
+     * @param in array containing the input blocks
+     * @param inIndex starting of the first input block in {@code in}
+     * @param length number of {@code byte}s, a multiple of {@link #BLOCK_SIZE}
+     * @param out array to store the encrypted blocks
+     * @param outIndex starting of the first encrypted block in {@code out}
+     */
+    default void encryptBlocks(byte[] in, int inIndex, int length, byte[] out, int outIndex) {
+        for (int i = 0; i < length; i += BLOCK_SIZE) {
+            encrypt(in, inIndex + i, out, outIndex + i);
+        }
+    }
+
+    /**
+     * Decrypts consecutive blocks independently of each other (electronic
+     * code book). The default implementation decrypts block by block;
+     * implementations may process the whole range at once.
+     *
+     * @param in array containing the encrypted blocks
+     * @param inIndex starting of the first encrypted block in {@code in}
+     * @param length number of {@code byte}s, a multiple of {@link #BLOCK_SIZE}
+     * @param out array to store the decrypted blocks
+     * @param outIndex starting of the first decrypted block in {@code out}
+     */
+    default void decryptBlocks(byte[] in, int inIndex, int length, byte[] out, int outIndex) {
+        for (int i = 0; i < length; i += BLOCK_SIZE) {
+            decrypt(in, inIndex + i, out, outIndex + i);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.crypt;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Provides {@link BlockCipher} instances of one AES-256 implementation. The
+ * available providers are managed by {@link BlockCipherRegistry}.
+ */
+public interface BlockCipherProvider {
+
+    /**
+     * Gets the name of the provider, used in the configuration.
+     *
+     * @return the name of the provider
+     */
+    String getName();
+
+    /**
+     * Creates a cipher initialized with the given key.
+     *
+     * @param key the 256 bit key
+     * @return the cipher
+     */
+    BlockCipher newCipher(byte[] key);
+
+    /**
+     * Creates a provider from a name and a factory function.
+     *
+     * @param name the name of the provider
+     * @param factory creates a cipher from a key
+     * @return the provider
+     */
+    static BlockCipherProvider of(String name, Function<byte[], BlockCipher> factory) {
+        Objects.requireNonNull(name, "name must be provided");
+        Objects.requireNonNull(factory, "factory must be provided");
+        return new BlockCipherProvider() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public BlockCipher newCipher(byte[] key) {
+                return factory.apply(key);
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.crypt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jpass.util.Configuration;
+
+/**
+ * Registry of the available AES-256 implementations.
+ * <p>
+ * The providers are kept in order of preference, the fastest first:
+ * </p>
+ * <ul>
+ * <li>{@code jce} - {@link JceAes256}, uses the AES instructions of the
+ * processor via the platform cipher,</li>
+ * <li>{@code table} - {@link TableAes256}, pure Java lookup table based,</li>
+ * <li>{@code reference} - {@link Aes256}, pure Java byte oriented.</li>
+ * </ul>
+ * <p>
+ * The default provider is the first one that passes a known-answer self-test.
+ * It can be forced with the {@code crypt.aes.implementation} configuration; if
+ * the configured provider is unknown or fails the self-test, the automatic
+ * selection is used.
+ * </p>
+ */
+public final class BlockCipherRegistry {
+
+    private static final Logger LOG = Logger.getLogger(BlockCipherRegistry.class.getName());
+
+    /**
+     * Configuration value for the automatic selection.
+     */
+    public static final String AUTO = "auto";
+
+    public static final BlockCipherProvider JCE = BlockCipherProvider.of("jce", JceAes256::new);
+    public static final BlockCipherProvider TABLE = BlockCipherProvider.of("table", TableAes256::new);
+    public static final BlockCipherProvider REFERENCE = BlockCipherProvider.of("reference", Aes256::new);
+
+    /**
+     * Known-answer test key from &quot;Federal Information Processing
+     * Standards Publication 197&quot;, appendix C.3.
+     */
+    private static final byte[] TEST_KEY = {(byte) 0x00, (byte) 0x01, (byte) 0x02, (byte) 0x03, (byte) 0x04,
+        (byte) 0x05, (byte) 0x06, (byte) 0x07, (byte) 0x08, (byte) 0x09, (byte) 0x0a, (byte) 0x0b, (byte) 0x0c,
+        (byte) 0x0d, (byte) 0x0e, (byte) 0x0f, (byte) 0x10, (byte) 0x11, (byte) 0x12, (byte) 0x13, (byte) 0x14,
+        (byte) 0x15, (byte) 0x16, (byte) 0x17, (byte) 0x18, (byte) 0x19, (byte) 0x1a, (byte) 0x1b, (byte) 0x1c,
+        (byte) 0x1d, (byte) 0x1e, (byte) 0x1f};
+
+    private static final byte[] TEST_PLAIN = {(byte) 0x00, (byte) 0x11, (byte) 0x22, (byte) 0x33, (byte) 0x44,
+        (byte) 0x55, (byte) 0x66, (byte) 0x77, (byte) 0x88, (byte) 0x99, (byte) 0xaa, (byte) 0xbb, (byte) 0xcc,
+        (byte) 0xdd, (byte) 0xee, (byte) 0xff};
+
+    private static final byte[] TEST_CIPHER = {(byte) 0x8e, (byte) 0xa2, (byte) 0xb7, (byte) 0xca, (byte) 0x51,
+        (byte) 0x67, (byte) 0x45, (byte) 0xbf, (byte) 0xea, (byte) 0xfc, (byte) 0x49, (byte) 0x90, (byte) 0x4b,
+        (byte) 0x49, (byte) 0x60, (byte) 0x89};
+
+    private static final List<BlockCipherProvider> PROVIDERS = new ArrayList<>(Arrays.asList(JCE, TABLE, REFERENCE));
+
+    private static BlockCipherProvider defaultProvider;
+
+    private BlockCipherRegistry() {
+        // not intended to be instantiated
+    }
+
+    /**
+     * Registers a provider with the lowest preference. A provider with the same
+     * name is replaced at its original position.
+     *
+     * @param provider the provider
+     */
+    public static synchronized void register(BlockCipherProvider provider) {
+        for (int i = 0; i < PROVIDERS.size(); i++) {
+            if (PROVIDERS.get(i).getName().equals(provider.getName())) {
+                PROVIDERS.set(i, provider);
+                defaultProvider = null;
+                return;
+            }
+        }
+        PROVIDERS.add(provider);
+        defaultProvider = null;
+    }
+
+    /**
+     * Gets the registered providers in order of preference.
+     *
+     * @return unmodifiable list of providers
+     */
+    public static synchronized List<BlockCipherProvider> getProviders() {
+        return Collections.unmodifiableList(new ArrayList<>(PROVIDERS));
+    }
+
+    /**
+     * Gets a provider by name.
+     *
+     * @param name the name of the provider
+     * @return the provider, or {@code null} if there is no such provider
+     */
+    public static synchronized BlockCipherProvider getProvider(String name) {
+        return PROVIDERS.stream()
+                .filter(provider -> provider.getName().equalsIgnoreCase(name))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Gets the provider to be used for file encryption. The provider is
+     * selected on the first call and cached afterwards.
+     *
+     * @return the default provider
+     * @throws IllegalStateException if none of the providers passes the
+     * self-test
+     */
+    public static synchronized BlockCipherProvider getDefaultProvider() {
+        if (defaultProvider == null) {
+            defaultProvider = selectProvider(Configuration.getInstance().get("crypt.aes.implementation", AUTO));
+            LOG.log(Level.CONFIG, String.format("Using AES-256 implementation [%s]", defaultProvider.getName()));
+        }
+        return defaultProvider;
+    }
+
+    /**
+     * Selects the configured provider, or the first provider that passes the
+     * self-test.
+     *
+     * @param name configured provider name
+     * @return the selected provider
+     */
+    private static BlockCipherProvider selectProvider(String name) {
+        if (!AUTO.equalsIgnoreCase(name)) {
+            BlockCipherProvider provider = getProvider(name);
+            if (provider != null && selfTest(provider)) {
+                return provider;
+            }
+            LOG.log(Level.WARNING, String.format("AES-256 implementation [%s] is not available, using automatic selection", name));
+        }
+        return PROVIDERS.stream()
+                .filter(BlockCipherRegistry::selfTest)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No working AES-256 implementation found"));
+    }
+
+    /**
+     * Runs a known-answer test on the given provider. Encryption and
+     * decryption are checked both out of place and in place.
+     *
+     * @param provider the provider
+     * @return {@code true} if the provider produces the expected results
+     */
+    public static boolean selfTest(BlockCipherProvider provider) {
+        try {
+            BlockCipher cipher = provider.newCipher(TEST_KEY.clone());
+            byte[] block = new byte[BlockCipher.BLOCK_SIZE + 1];
+
+            cipher.encrypt(TEST_PLAIN, 0, block, 1);
+            if (!Arrays.equals(TEST_CIPHER, Arrays.copyOfRange(block, 1, block.length))) {
+                return false;
+            }
+            cipher.decrypt(block, 1, block, 1);
+            if (!Arrays.equals(TEST_PLAIN, Arrays.copyOfRange(block, 1, block.length))) {
+                return false;
+            }
+            cipher.encrypt(block, 1, block, 1);
+            return Arrays.equals(TEST_CIPHER, Arrays.copyOfRange(block, 1, block.length));
+        } catch (RuntimeException | LinkageError e) {
+            LOG.log(Level.CONFIG, String.format("Self-test of AES-256 implementation [%s] failed", provider.getName()), e);
+            return false;
+        }
+    }
+}
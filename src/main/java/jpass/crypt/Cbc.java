@@ -34,8 +34,8 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 /**
- * Implements the &quot;Cipher Block Chaining Mode&quot;. As cipher the class
- * {@link Aes256} will be used.
+ * Implements the &quot;Cipher Block Chaining Mode&quot;. As cipher the default
+ * AES-256 implementation of {@link BlockCipherRegistry} will be used.
  *
  * @author Timm Knape
  * @version $Revision: 1.4 $
@@ -48,29 +48,24 @@ public class Cbc {
     private static final int BLOCK_SIZE = 16;
 
     /**
-     * cipher
-     */
-    private final Aes256 _cipher;
-
-    /**
-     * last calculated block
+     * Size of the buffer used to collect output for the stream based methods.
      */
-    private final byte[] _current;
+    private static final int STREAM_BUFFER_SIZE = 8192;
 
     /**
-     * temporary block. It will only be used for decryption.
+     * cipher
      */
-    private byte[] _buffer = null;
+    private final BlockCipher _cipher;
 
     /**
-     * temporary block.
+     * last calculated block
      */
-    private final byte[] _tmp;
+    private final byte[] _current;
 
     /**
      * buffer of the last output block. It will only be used for decryption.
      */
-    private byte[] _outBuffer = null;
+    private final byte[] _outBuffer;
 
     /**
      * Is the output buffer filled?
@@ -87,21 +82,50 @@ public class Cbc {
      */
     private int _overflowUsed;
 
+    /**
+     * stream where the encrypted or decrypted data is written, can be
+     * {@code null} if only the buffer based methods are used
+     */
     private final OutputStream _output;
 
+    /**
+     * buffer for the stream based methods, created on first use
+     */
+    private byte[] _streamBuffer = null;
+
     /**
      * Creates the temporary buffers.
      *
-     * @param iv initial value of {@link Cbc#_tmp}
+     * @param iv initial value of {@link Cbc#_current}
      * @param key key for {@link Cbc#_cipher}
      * @param output stream where the encrypted or decrypted data is written
      */
     public Cbc(byte[] iv, byte[] key, OutputStream output) {
-        this._cipher = new Aes256(key);
+        this(iv, BlockCipherRegistry.getDefaultProvider().newCipher(key), output);
+    }
+
+    /**
+     * Creates the temporary buffers. The instance can only be used with the
+     * buffer based methods.
+     *
+     * @param iv initial value of {@link Cbc#_current}
+     * @param key key for {@link Cbc#_cipher}
+     */
+    public Cbc(byte[] iv, byte[] key) {
+        this(iv, key, null);
+    }
+
+    /**
+     * Creates the temporary buffers.
+     *
+     * @param iv initial value of {@link Cbc#_current}
+     * @param cipher the block cipher to chain
+     * @param output stream where the encrypted or decrypted data is written
+     */
+    public Cbc(byte[] iv, BlockCipher cipher, OutputStream output) {
+        this._cipher = cipher;
         this._current = new byte[BLOCK_SIZE];
         System.arraycopy(iv, 0, this._current, 0, BLOCK_SIZE);
-        this._tmp = new byte[BLOCK_SIZE];
-        this._buffer = new byte[BLOCK_SIZE];
         this._outBuffer = new byte[BLOCK_SIZE];
         this._outBufferUsed = false;
         this._overflow = new byte[BLOCK_SIZE];
@@ -110,34 +134,193 @@ public class Cbc {
     }
 
     /**
-     * Encrypts a block. {@link Cbc#_current} will be modified.
+     * Encrypts whole blocks. {@link Cbc#_current} will be modified.
      *
-     * @param inBuffer array containing the input block
-     * @param outBuffer storage of the encrypted block
+     * @param in array containing the input blocks
+     * @param inIndex position of the first input block
+     * @param blocks number of blocks
+     * @param out storage of the encrypted blocks
+     * @param outIndex position of the first encrypted block
      */
-    private void encryptBlock(byte[] inBuffer, byte[] outBuffer) {
-        for (int i = 0; i < BLOCK_SIZE; ++i) {
-            this._current[i] ^= inBuffer[i];
+    private void encryptBlocks(byte[] in, int inIndex, int blocks, byte[] out, int outIndex) {
+        byte[] previous = this._current;
+        int previousIndex = 0;
+        for (int block = 0; block < blocks; ++block) {
+            int inPos = inIndex + block * BLOCK_SIZE;
+            int outPos = outIndex + block * BLOCK_SIZE;
+            for (int i = 0; i < BLOCK_SIZE; ++i) {
+                out[outPos + i] = (byte) (in[inPos + i] ^ previous[previousIndex + i]);
+            }
+            this._cipher.encrypt(out, outPos, out, outPos);
+            previous = out;
+            previousIndex = outPos;
         }
-        this._cipher.encrypt(this._current, 0, this._current, 0);
-        System.arraycopy(this._current, 0, outBuffer, 0, BLOCK_SIZE);
+        System.arraycopy(previous, previousIndex, this._current, 0, BLOCK_SIZE);
     }
 
     /**
-     * Decrypts a block. {@link Cbc#_current} will be modified.
+     * Decrypts whole blocks. The last decrypted block is kept back in
+     * {@link Cbc#_outBuffer}, because it might contain the padding, and the
+     * block kept back by the previous invocation is written first.
+     * {@link Cbc#_current} will be modified.
      *
-     * @param inBuffer storage of the encrypted block
+     * @param in array containing the encrypted blocks
+     * @param inIndex position of the first encrypted block
+     * @param blocks number of blocks
+     * @param out storage of the decrypted blocks
+     * @param outIndex position of the first decrypted block
+     * @return number of {@code byte}s written to {@code out}
      */
-    private void decryptBlock(byte[] inBuffer) {
-        System.arraycopy(inBuffer, 0, this._buffer, 0, BLOCK_SIZE);
-        this._cipher.decrypt(this._buffer, 0, this._tmp, 0);
+    private int decryptBlocks(byte[] in, int inIndex, int blocks, byte[] out, int outIndex) {
+        int outPos = outIndex;
+        if (this._outBufferUsed) {
+            System.arraycopy(this._outBuffer, 0, out, outPos, BLOCK_SIZE);
+            outPos += BLOCK_SIZE;
+        }
+
+        int direct = (blocks - 1) * BLOCK_SIZE;
+        if (direct > 0) {
+            this._cipher.decryptBlocks(in, inIndex, direct, out, outPos);
+            xor(out, outPos, this._current, 0);
+            for (int i = BLOCK_SIZE; i < direct; i += BLOCK_SIZE) {
+                xor(out, outPos + i, in, inIndex + i - BLOCK_SIZE);
+            }
+            outPos += direct;
+        }
+
+        int last = inIndex + direct;
+        this._cipher.decrypt(in, last, this._outBuffer, 0);
+        if (direct > 0) {
+            xor(this._outBuffer, 0, in, last - BLOCK_SIZE);
+        } else {
+            xor(this._outBuffer, 0, this._current, 0);
+        }
+        System.arraycopy(in, last, this._current, 0, BLOCK_SIZE);
+        this._outBufferUsed = true;
+        return outPos - outIndex;
+    }
+
+    /**
+     * Combines a block with another one by {@code XOR}.
+     *
+     * @param target array containing the block to be modified
+     * @param targetIndex position of the block to be modified
+     * @param source array containing the other block
+     * @param sourceIndex position of the other block
+     */
+    private static void xor(byte[] target, int targetIndex, byte[] source, int sourceIndex) {
         for (int i = 0; i < BLOCK_SIZE; ++i) {
-            this._tmp[i] ^= this._current[i];
-            this._current[i] = this._buffer[i];
-            this._outBuffer[i] = this._tmp[i];
+            target[targetIndex + i] ^= source[sourceIndex + i];
         }
     }
 
+    /**
+     * Gets the maximum number of {@code byte}s the next
+     * {@link #encrypt(byte[], int, int, byte[], int)} or
+     * {@link #decrypt(byte[], int, int, byte[], int)} invocation produces for
+     * the given input length.
+     *
+     * @param length number of input {@code byte}s
+     * @return maximum number of output {@code byte}s
+     */
+    public int getOutputSize(int length) {
+        return ((this._overflowUsed + length) / BLOCK_SIZE) * BLOCK_SIZE;
+    }
+
+    /**
+     * Encrypts a part of an array into another array. Whole blocks are
+     * encrypted directly from {@code in} to {@code out}, only an incomplete
+     * block at the beginning or the end is collected in
+     * {@link Cbc#_overflow}. The output region must not overlap the input
+     * region and must have room for {@link #getOutputSize(int)} {@code byte}s.
+     *
+     * @param in {@code byte}s that should be encrypted
+     * @param inIndex position of the first {@code byte} to encrypt
+     * @param length number of {@code byte}s that should be encrypted
+     * @param out storage of the encrypted data
+     * @param outIndex position of the first encrypted {@code byte}
+     * @return number of {@code byte}s written to {@code out}
+     */
+    public int encrypt(byte[] in, int inIndex, int length, byte[] out, int outIndex) {
+        if (in == null || length <= 0) {
+            return 0;
+        }
+        int inPos = inIndex;
+        int inEnd = inIndex + length;
+        int outPos = outIndex;
+
+        if (this._overflowUsed > 0) {
+            int count = Math.min(BLOCK_SIZE - this._overflowUsed, length);
+            System.arraycopy(in, inPos, this._overflow, this._overflowUsed, count);
+            this._overflowUsed += count;
+            inPos += count;
+            if (this._overflowUsed < BLOCK_SIZE) {
+                return 0;
+            }
+            encryptBlocks(this._overflow, 0, 1, out, outPos);
+            outPos += BLOCK_SIZE;
+            this._overflowUsed = 0;
+        }
+
+        int blocks = (inEnd - inPos) / BLOCK_SIZE;
+        if (blocks > 0) {
+            encryptBlocks(in, inPos, blocks, out, outPos);
+            inPos += blocks * BLOCK_SIZE;
+            outPos += blocks * BLOCK_SIZE;
+        }
+
+        this._overflowUsed = inEnd - inPos;
+        System.arraycopy(in, inPos, this._overflow, 0, this._overflowUsed);
+        return outPos - outIndex;
+    }
+
+    /**
+     * Decrypts a part of an array into another array. Whole blocks are
+     * decrypted directly from {@code in} to {@code out}, only an incomplete
+     * block at the beginning or the end is collected in
+     * {@link Cbc#_overflow}. The last decrypted block is kept back until
+     * more data arrives or the decryption is finished. The output region must
+     * not overlap the input region and must have room for
+     * {@link #getOutputSize(int)} {@code byte}s.
+     *
+     * @param in {@code byte}s that should be decrypted
+     * @param inIndex position of the first {@code byte} to decrypt
+     * @param length number of {@code byte}s that should be decrypted
+     * @param out storage of the decrypted data
+     * @param outIndex position of the first decrypted {@code byte}
+     * @return number of {@code byte}s written to {@code out}
+     */
+    public int decrypt(byte[] in, int inIndex, int length, byte[] out, int outIndex) {
+        if (in == null || length <= 0) {
+            return 0;
+        }
+        int inPos = inIndex;
+        int inEnd = inIndex + length;
+        int outPos = outIndex;
+
+        if (this._overflowUsed > 0) {
+            int count = Math.min(BLOCK_SIZE - this._overflowUsed, length);
+            System.arraycopy(in, inPos, this._overflow, this._overflowUsed, count);
+            this._overflowUsed += count;
+            inPos += count;
+            if (this._overflowUsed < BLOCK_SIZE) {
+                return 0;
+            }
+            outPos += decryptBlocks(this._overflow, 0, 1, out, outPos);
+            this._overflowUsed = 0;
+        }
+
+        int blocks = (inEnd - inPos) / BLOCK_SIZE;
+        if (blocks > 0) {
+            outPos += decryptBlocks(in, inPos, blocks, out, outPos);
+            inPos += blocks * BLOCK_SIZE;
+        }
+
+        this._overflowUsed = inEnd - inPos;
+        System.arraycopy(in, inPos, this._overflow, 0, this._overflowUsed);
+        return outPos - outIndex;
+    }
+
     /**
      * Encrypts the array. The whole array will be encrypted.
      *
@@ -175,12 +358,12 @@ public class Cbc {
             return;
         }
 
-        for (int i = 0; i < length; ++i) {
-            this._overflow[this._overflowUsed++] = data[i];
-            if (this._overflowUsed == BLOCK_SIZE) {
-                encryptBlock(this._overflow, this._outBuffer);
-                this._output.write(this._outBuffer);
-                this._overflowUsed = 0;
+        byte[] buffer = getStreamBuffer();
+        int chunkSize = buffer.length - BLOCK_SIZE;
+        for (int pos = 0; pos < length; pos += chunkSize) {
+            int produced = encrypt(data, pos, Math.min(chunkSize, length - pos), buffer, 0);
+            if (produced > 0) {
+                this._output.write(buffer, 0, produced);
             }
         }
     }
@@ -198,48 +381,65 @@ public class Cbc {
             return;
         }
 
-        for (int i = 0; i < length; ++i) {
-            this._overflow[this._overflowUsed++] = data[i];
-            if (this._overflowUsed == BLOCK_SIZE) {
-                if (this._outBufferUsed) {
-                    this._output.write(this._outBuffer);
-                }
-                decryptBlock(this._overflow);
-                this._outBufferUsed = true;
-                this._overflowUsed = 0;
+        byte[] buffer = getStreamBuffer();
+        int chunkSize = buffer.length - BLOCK_SIZE;
+        for (int pos = 0; pos < length; pos += chunkSize) {
+            int produced = decrypt(data, pos, Math.min(chunkSize, length - pos), buffer, 0);
+            if (produced > 0) {
+                this._output.write(buffer, 0, produced);
             }
         }
     }
 
     /**
-     * Finishes the encryption process.
+     * Gets the buffer for the stream based methods.
      *
-     * @throws IOException if the writing fails
+     * @return the buffer
      */
-    public void finishEncryption() throws IOException {
+    private byte[] getStreamBuffer() {
+        if (this._streamBuffer == null) {
+            this._streamBuffer = new byte[STREAM_BUFFER_SIZE];
+        }
+        return this._streamBuffer;
+    }
+
+    /**
+     * Finishes the encryption process into the given array. The remaining
+     * data is padded and encrypted as the last block.
+     *
+     * @param out storage of the last encrypted block, must have room for
+     * {@code 16} {@code byte}s
+     * @param outIndex position of the last encrypted block
+     * @return number of {@code byte}s written to {@code out}
+     */
+    public int finishEncryption(byte[] out, int outIndex) {
         byte pad = (byte) (BLOCK_SIZE - this._overflowUsed);
         while (this._overflowUsed < BLOCK_SIZE) {
             this._overflow[this._overflowUsed++] = pad;
         }
 
-        encryptBlock(this._overflow, this._outBuffer);
-        this._output.write(this._outBuffer);
-        this._output.close();
+        encryptBlocks(this._overflow, 0, 1, out, outIndex);
+        this._overflowUsed = 0;
+        return BLOCK_SIZE;
     }
 
     /**
-     * Finishes the decryption process.
+     * Finishes the decryption process into the given array. The padding is
+     * removed from the block that was kept back.
      *
+     * @param out storage of the remaining decrypted data, must have room for
+     * {@code 16} {@code byte}s
+     * @param outIndex position of the remaining decrypted data
+     * @return number of {@code byte}s written to {@code out}
      * @throws DecryptException if the last block is no legal conclusion of the
      * stream
-     * @throws IOException if the writing fails
      */
-    public void finishDecryption() throws DecryptException, IOException {
+    public int finishDecryption(byte[] out, int outIndex) throws DecryptException {
         if (this._overflowUsed != 0) {
             throw new DecryptException();
         }
         if (!this._outBufferUsed) {
-            return;
+            return 0;
         }
 
         int pad = this._outBuffer[BLOCK_SIZE - 1] & 0xff;
@@ -248,8 +448,42 @@ public class Cbc {
         }
 
         int left = BLOCK_SIZE - pad;
+        System.arraycopy(this._outBuffer, 0, out, outIndex, left);
+        this._outBufferUsed = false;
+        return left;
+    }
+
+    /**
+     * Finishes the encryption process.
+     *
+     * @throws IOException if the writing fails
+     */
+    public void finishEncryption() throws IOException {
+        byte[] buffer = getStreamBuffer();
+        int produced = finishEncryption(buffer, 0);
+        this._output.write(buffer, 0, produced);
+        this._output.close();
+    }
+
+    /**
+     * Finishes the decryption process.
+     *
+     * @throws DecryptException if the last block is no legal conclusion of the
+     * stream
+     * @throws IOException if the writing fails
+     */
+    public void finishDecryption() throws DecryptException, IOException {
+        if (this._overflowUsed != 0) {
+            throw new DecryptException();
+        }
+        if (!this._outBufferUsed) {
+            return;
+        }
+
+        byte[] buffer = getStreamBuffer();
+        int left = finishDecryption(buffer, 0);
         if (left > 0) {
-            this._output.write(this._outBuffer, 0, left);
+            this._output.write(buffer, 0, left);
         }
         this._output.close();
     }
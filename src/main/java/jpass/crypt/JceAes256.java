@@ -0,0 +1,106 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.crypt;
+
+import java.security.GeneralSecurityException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * AES-256 backed by the {@code javax.crypto} &quot;AES/ECB/NoPadding&quot;
+ * cipher of the platform. On HotSpot this implementation uses the AES
+ * instructions of the processor (AES-NI) where available.
+ */
+public final class JceAes256 implements BlockCipher {
+
+    /**
+     * Transformation requested from the platform provider. The chaining is
+     * done by {@link Cbc}, so only the raw block cipher is needed.
+     */
+    private static final String TRANSFORMATION = "AES/ECB/NoPadding";
+
+    private final Cipher _encryptCipher;
+    private final Cipher _decryptCipher;
+
+    /**
+     * Initializes the platform ciphers with the given key.
+     *
+     * @param key key for the AES algorithm
+     * @throws IllegalStateException if the platform does not support AES-256
+     */
+    public JceAes256(byte[] key) {
+        try {
+            SecretKeySpec keySpec = new SecretKeySpec(key, 0, 32, "AES");
+            this._encryptCipher = Cipher.getInstance(TRANSFORMATION);
+            this._encryptCipher.init(Cipher.ENCRYPT_MODE, keySpec);
+            this._decryptCipher = Cipher.getInstance(TRANSFORMATION);
+            this._decryptCipher.init(Cipher.DECRYPT_MODE, keySpec);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialize " + TRANSFORMATION + " cipher: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void encrypt(byte[] inBlock, int inIndex, byte[] outBlock, int outIndex) {
+        update(this._encryptCipher, inBlock, inIndex, BLOCK_SIZE, outBlock, outIndex);
+    }
+
+    @Override
+    public void decrypt(byte[] inBlock, int inIndex, byte[] outBlock, int outIndex) {
+        update(this._decryptCipher, inBlock, inIndex, BLOCK_SIZE, outBlock, outIndex);
+    }
+
+    @Override
+    public void encryptBlocks(byte[] in, int inIndex, int length, byte[] out, int outIndex) {
+        update(this._encryptCipher, in, inIndex, length, out, outIndex);
+    }
+
+    @Override
+    public void decryptBlocks(byte[] in, int inIndex, int length, byte[] out, int outIndex) {
+        update(this._decryptCipher, in, inIndex, length, out, outIndex);
+    }
+
+    /**
+     * Processes whole blocks with the given platform cipher.
+     *
+     * @param cipher the platform cipher
+     * @param in array containing the input blocks
+     * @param inIndex starting of the input blocks in {@code in}
+     * @param length number of {@code byte}s, a multiple of {@link #BLOCK_SIZE}
+     * @param out array to store the result
+     * @param outIndex starting of the result in {@code out}
+     */
+    private static void update(Cipher cipher, byte[] in, int inIndex, int length, byte[] out, int outIndex) {
+        try {
+            cipher.update(in, inIndex, length, out, outIndex);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+}
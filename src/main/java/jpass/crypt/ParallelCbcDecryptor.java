@@ -0,0 +1,219 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.crypt;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Decrypts a complete CBC encrypted buffer in parallel.
+ * <p>
+ * In the &quot;Cipher Block Chaining Mode&quot; the decryption of a block
+ * only needs the block itself and the previous encrypted block, so there is
+ * no serial dependency between the blocks. The buffer is split into chunks,
+ * which are decrypted independently on a {@link ForkJoinPool}. The padding is
+ * checked once at the end, the same way as {@link Cbc} does.
+ * </p>
+ */
+public final class ParallelCbcDecryptor {
+
+    /**
+     * size of a block in {@code byte}s
+     */
+    private static final int BLOCK_SIZE = 16;
+
+    /**
+     * Default number of {@code byte}s decrypted by one task.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+    private final BlockCipherProvider _provider;
+    private final byte[] _key;
+    private final int _chunkSize;
+    private final ForkJoinPool _pool;
+
+    /**
+     * Creates a decryptor with the default cipher provider, chunk size and
+     * the common pool.
+     *
+     * @param key key for the cipher
+     */
+    public ParallelCbcDecryptor(byte[] key) {
+        this(BlockCipherRegistry.getDefaultProvider(), key, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a decryptor.
+     *
+     * @param provider provider of the ciphers, every task uses its own cipher
+     * @param key key for the cipher
+     * @param chunkSize number of {@code byte}s decrypted by one task, rounded
+     * down to whole blocks
+     * @param pool pool to run the tasks
+     */
+    public ParallelCbcDecryptor(BlockCipherProvider provider, byte[] key, int chunkSize, ForkJoinPool pool) {
+        if (chunkSize < BLOCK_SIZE) {
+            throw new IllegalArgumentException("Chunk size must be at least " + BLOCK_SIZE);
+        }
+        this._provider = provider;
+        this._key = key;
+        this._chunkSize = chunkSize - chunkSize % BLOCK_SIZE;
+        this._pool = pool;
+    }
+
+    /**
+     * Decrypts the remaining {@code byte}s of the input buffer and removes the
+     * padding. The position of the input buffer is not changed.
+     *
+     * @param iv initial values for the CBC scheme
+     * @param in the encrypted data
+     * @param out storage of the decrypted data, must have room for
+     * {@code in.remaining()} {@code byte}s
+     * @param outIndex position of the decrypted data
+     * @return number of decrypted {@code byte}s without the padding
+     * @throws DecryptException if the data is no legal encryption stream
+     */
+    public int decrypt(byte[] iv, ByteBuffer in, byte[] out, int outIndex) throws DecryptException {
+        int length = in.remaining();
+        if (length == 0) {
+            return 0;
+        }
+        decryptBlocks(iv, in, out, outIndex);
+
+        int pad = out[outIndex + length - 1] & 0xff;
+        if (pad <= 0 || pad > BLOCK_SIZE) {
+            throw new DecryptException();
+        }
+        return length - pad;
+    }
+
+    /**
+     * Decrypts the remaining {@code byte}s of the input buffer without removing
+     * the padding, so a long content can be decrypted in consecutive slices;
+     * the last encrypted block of a slice is the initial value of the next
+     * one. The position of the input buffer is not changed.
+     *
+     * @param iv initial values for the CBC scheme
+     * @param in the encrypted data, whole blocks
+     * @param out storage of the decrypted data, must have room for
+     * {@code in.remaining()} {@code byte}s
+     * @param outIndex position of the decrypted data
+     * @throws DecryptException if the data does not consist of whole blocks
+     */
+    public void decryptBlocks(byte[] iv, ByteBuffer in, byte[] out, int outIndex) throws DecryptException {
+        int length = in.remaining();
+        if (length % BLOCK_SIZE != 0) {
+            throw new DecryptException();
+        }
+        if (length == 0) {
+            return;
+        }
+
+        DecryptTask task = new DecryptTask(iv, in.slice(), out, outIndex, 0, (length + this._chunkSize - 1) / this._chunkSize);
+        if (task._chunkCount == 1) {
+            task.compute();
+        } else {
+            this._pool.invoke(task);
+        }
+    }
+
+    /**
+     * Decrypts the encrypted data and removes the padding.
+     *
+     * @param iv initial values for the CBC scheme
+     * @param in array containing the encrypted data
+     * @param inIndex position of the encrypted data
+     * @param length number of encrypted {@code byte}s
+     * @param out storage of the decrypted data, must have room for
+     * {@code length} {@code byte}s
+     * @param outIndex position of the decrypted data
+     * @return number of decrypted {@code byte}s without the padding
+     * @throws DecryptException if the data is no legal encryption stream
+     */
+    public int decrypt(byte[] iv, byte[] in, int inIndex, int length, byte[] out, int outIndex) throws DecryptException {
+        return decrypt(iv, ByteBuffer.wrap(in, inIndex, length), out, outIndex);
+    }
+
+    /**
+     * Task decrypting a range of chunks. Ranges with more than one chunk are
+     * split in halves.
+     */
+    private final class DecryptTask extends RecursiveAction {
+
+        private final byte[] _iv;
+        private final ByteBuffer _in;
+        private final byte[] _out;
+        private final int _outIndex;
+        private final int _firstChunk;
+        private final int _chunkCount;
+
+        DecryptTask(byte[] iv, ByteBuffer in, byte[] out, int outIndex, int firstChunk, int chunkCount) {
+            this._iv = iv;
+            this._in = in;
+            this._out = out;
+            this._outIndex = outIndex;
+            this._firstChunk = firstChunk;
+            this._chunkCount = chunkCount;
+        }
+
+        @Override
+        protected void compute() {
+            if (this._chunkCount > 1) {
+                int half = this._chunkCount / 2;
+                invokeAll(new DecryptTask(this._iv, this._in, this._out, this._outIndex, this._firstChunk, half),
+                        new DecryptTask(this._iv, this._in, this._out, this._outIndex, this._firstChunk + half, this._chunkCount - half));
+                return;
+            }
+
+            int start = this._firstChunk * _chunkSize;
+            int length = Math.min(_chunkSize, this._in.capacity() - start);
+
+            // the chunk is preceded by the previous encrypted block or the iv
+            byte[] chunk = new byte[BLOCK_SIZE + length];
+            ByteBuffer source = this._in.duplicate();
+            if (start == 0) {
+                System.arraycopy(this._iv, 0, chunk, 0, BLOCK_SIZE);
+                source.get(chunk, BLOCK_SIZE, length);
+            } else {
+                ((Buffer) source).position(start - BLOCK_SIZE);
+                source.get(chunk, 0, BLOCK_SIZE + length);
+            }
+
+            int outPos = this._outIndex + start;
+            _provider.newCipher(_key).decryptBlocks(chunk, BLOCK_SIZE, length, this._out, outPos);
+            for (int block = 0; block < length; block += BLOCK_SIZE) {
+                for (int i = 0; i < BLOCK_SIZE; ++i) {
+                    this._out[outPos + block + i] ^= chunk[block + i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.crypt;
+
+/**
+ * Table based implementation of the &quot;Advanced Encryption Standard&quot;
+ * (AES) with a key size of 256 bit. It produces exactly the same results as
+ * {@link Aes256}.
+ * <p>
+ * The state is kept in four 32 bit column words instead of a {@code byte}
+ * array. The s-box, the row shifting and the column mixing of one round are
+ * combined into four lookup tables for encryption ({@code TE0} to
+ * {@code TE3}) and four for decryption ({@code TD0} to {@code TD3}), so a
+ * round costs sixteen table lookups and {@code XOR}s. The decryption key
+ * schedule is inverted once in the constructor, so decryption uses the same
+ * round structure as encryption (&quot;equivalent inverse cipher&quot; of the
+ * reference document).
+ * </p>
+ */
+public final class TableAes256 implements BlockCipher {
+
+    /**
+     * Number of 32 bit words of the key.
+     */
+    private static final int KEY_WORDS = 8;
+
+    /**
+     * number of rounds
+     */
+    private static final int ROUNDS = 14;
+
+    /**
+     * Number of 32 bit words of the expanded key.
+     */
+    private static final int EXPANDED_KEY_WORDS = (ROUNDS + 1) * 4;
+
+    /**
+     * s-box permutation
+     */
+    private static final int[] S_BOX = new int[256];
+
+    /**
+     * inverse of the s-box permutation
+     */
+    private static final int[] INV_S_BOX = new int[256];
+
+    /**
+     * encryption round tables
+     */
+    private static final int[] TE0 = new int[256];
+    private static final int[] TE1 = new int[256];
+    private static final int[] TE2 = new int[256];
+    private static final int[] TE3 = new int[256];
+
+    /**
+     * decryption round tables
+     */
+    private static final int[] TD0 = new int[256];
+    private static final int[] TD1 = new int[256];
+    private static final int[] TD2 = new int[256];
+    private static final int[] TD3 = new int[256];
+
+    /**
+     * round constants of the key expansion
+     */
+    private static final int[] RCON = {
+        0x01000000, 0x02000000, 0x04000000, 0x08000000, 0x10000000, 0x20000000, 0x40000000
+    };
+
+    static {
+        // the s-box is the multiplicative inverse in GF(2^8) followed by an
+        // affine transformation, 3 is used as generator of the field
+        int[] pow = new int[256];
+        int[] log = new int[256];
+        int x = 1;
+        for (int i = 0; i < 256; ++i) {
+            pow[i] = x;
+            log[x] = i;
+            x ^= times2(x);
+        }
+        for (int i = 0; i < 256; ++i) {
+            int inverse = i == 0 ? 0 : pow[255 - log[i]];
+            int s = inverse ^ rotl8(inverse, 1) ^ rotl8(inverse, 2) ^ rotl8(inverse, 3) ^ rotl8(inverse, 4) ^ 0x63;
+            S_BOX[i] = s;
+            INV_S_BOX[s] = i;
+        }
+
+        for (int i = 0; i < 256; ++i) {
+            int s = S_BOX[i];
+            int s2 = times2(s);
+            int te = (s2 << 24) | (s << 16) | (s << 8) | (s2 ^ s);
+            TE0[i] = te;
+            TE1[i] = Integer.rotateRight(te, 8);
+            TE2[i] = Integer.rotateRight(te, 16);
+            TE3[i] = Integer.rotateRight(te, 24);
+
+            int si = INV_S_BOX[i];
+            int si2 = times2(si);
+            int si4 = times2(si2);
+            int si8 = times2(si4);
+            int td = ((si8 ^ si4 ^ si2) << 24) | ((si8 ^ si) << 16) | ((si8 ^ si4 ^ si) << 8) | (si8 ^ si2 ^ si);
+            TD0[i] = td;
+            TD1[i] = Integer.rotateRight(td, 8);
+            TD2[i] = Integer.rotateRight(td, 16);
+            TD3[i] = Integer.rotateRight(td, 24);
+        }
+    }
+
+    /**
+     * expanded key for encryption
+     */
+    private final int[] _encryptionKey;
+
+    /**
+     * expanded key for decryption, in reverse round order with the inverse
+     * column mixing already applied to the inner rounds
+     */
+    private final int[] _decryptionKey;
+
+    /**
+     * Expands the key for encryption and decryption.
+     *
+     * @param key key for the AES algorithm
+     */
+    public TableAes256(byte[] key) {
+        this._encryptionKey = new int[EXPANDED_KEY_WORDS];
+        this._decryptionKey = new int[EXPANDED_KEY_WORDS];
+
+        for (int i = 0; i < KEY_WORDS; ++i) {
+            this._encryptionKey[i] = getWord(key, i * 4);
+        }
+        for (int i = KEY_WORDS; i < EXPANDED_KEY_WORDS; ++i) {
+            int tmp = this._encryptionKey[i - 1];
+            if (i % KEY_WORDS == 0) {
+                tmp = substituteWord(Integer.rotateLeft(tmp, 8)) ^ RCON[i / KEY_WORDS - 1];
+            } else if (i % KEY_WORDS == 4) {
+                tmp = substituteWord(tmp);
+            }
+            this._encryptionKey[i] = this._encryptionKey[i - KEY_WORDS] ^ tmp;
+        }
+
+        for (int round = 0; round <= ROUNDS; ++round) {
+            for (int i = 0; i < 4; ++i) {
+                int word = this._encryptionKey[(ROUNDS - round) * 4 + i];
+                if (round > 0 && round < ROUNDS) {
+                    word = TD0[S_BOX[word >>> 24]] ^ TD1[S_BOX[(word >>> 16) & 0xff]]
+                            ^ TD2[S_BOX[(word >>> 8) & 0xff]] ^ TD3[S_BOX[word & 0xff]];
+                }
+                this._decryptionKey[round * 4 + i] = word;
+            }
+        }
+    }
+
+    /**
+     * Multiplies the polynomial by its free variable in GF(2^8).
+     *
+     * @param b origin polynomial
+     * @return multiplied polynomial
+     */
+    private static int times2(int b) {
+        int result = b << 1;
+        if ((b & 0x80) != 0) {
+            result ^= 0x11b;
+        }
+        return result & 0xff;
+    }
+
+    /**
+     * Rotates a {@code byte} value to the left.
+     *
+     * @param b value
+     * @param shift number of bits
+     * @return rotated value
+     */
+    private static int rotl8(int b, int shift) {
+        return ((b << shift) | (b >>> (8 - shift))) & 0xff;
+    }
+
+    /**
+     * Substitutes all {@code byte}s of a word by the s-box.
+     *
+     * @param word the word
+     * @return substituted word
+     */
+    private static int substituteWord(int word) {
+        return (S_BOX[word >>> 24] << 24) | (S_BOX[(word >>> 16) & 0xff] << 16)
+                | (S_BOX[(word >>> 8) & 0xff] << 8) | S_BOX[word & 0xff];
+    }
+
+    /**
+     * Reads a big endian word.
+     *
+     * @param data source array
+     * @param index position of the first {@code byte}
+     * @return the word
+     */
+    private static int getWord(byte[] data, int index) {
+        return (data[index] << 24) | ((data[index + 1] & 0xff) << 16)
+                | ((data[index + 2] & 0xff) << 8) | (data[index + 3] & 0xff);
+    }
+
+    /**
+     * Writes a big endian word.
+     *
+     * @param word the word
+     * @param data target array
+     * @param index position of the first {@code byte}
+     */
+    private static void putWord(int word, byte[] data, int index) {
+        data[index] = (byte) (word >>> 24);
+        data[index + 1] = (byte) (word >>> 16);
+        data[index + 2] = (byte) (word >>> 8);
+        data[index + 3] = (byte) word;
+    }
+
+    @Override
+    public void encrypt(byte[] inBlock, int inIndex, byte[] outBlock, int outIndex) {
+        int[] key = this._encryptionKey;
+        int s0 = getWord(inBlock, inIndex) ^ key[0];
+        int s1 = getWord(inBlock, inIndex + 4) ^ key[1];
+        int s2 = getWord(inBlock, inIndex + 8) ^ key[2];
+        int s3 = getWord(inBlock, inIndex + 12) ^ key[3];
+
+        int k = 4;
+        for (int round = 1; round < ROUNDS; ++round) {
+            int t0 = TE0[s0 >>> 24] ^ TE1[(s1 >>> 16) & 0xff] ^ TE2[(s2 >>> 8) & 0xff] ^ TE3[s3 & 0xff] ^ key[k];
+            int t1 = TE0[s1 >>> 24] ^ TE1[(s2 >>> 16) & 0xff] ^ TE2[(s3 >>> 8) & 0xff] ^ TE3[s0 & 0xff] ^ key[k + 1];
+            int t2 = TE0[s2 >>> 24] ^ TE1[(s3 >>> 16) & 0xff] ^ TE2[(s0 >>> 8) & 0xff] ^ TE3[s1 & 0xff] ^ key[k + 2];
+            int t3 = TE0[s3 >>> 24] ^ TE1[(s0 >>> 16) & 0xff] ^ TE2[(s1 >>> 8) & 0xff] ^ TE3[s2 & 0xff] ^ key[k + 3];
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+            k += 4;
+        }
+
+        putWord(((S_BOX[s0 >>> 24] << 24) | (S_BOX[(s1 >>> 16) & 0xff] << 16)
+                | (S_BOX[(s2 >>> 8) & 0xff] << 8) | S_BOX[s3 & 0xff]) ^ key[k], outBlock, outIndex);
+        putWord(((S_BOX[s1 >>> 24] << 24) | (S_BOX[(s2 >>> 16) & 0xff] << 16)
+                | (S_BOX[(s3 >>> 8) & 0xff] << 8) | S_BOX[s0 & 0xff]) ^ key[k + 1], outBlock, outIndex + 4);
+        putWord(((S_BOX[s2 >>> 24] << 24) | (S_BOX[(s3 >>> 16) & 0xff] << 16)
+                | (S_BOX[(s0 >>> 8) & 0xff] << 8) | S_BOX[s1 & 0xff]) ^ key[k + 2], outBlock, outIndex + 8);
+        putWord(((S_BOX[s3 >>> 24] << 24) | (S_BOX[(s0 >>> 16) & 0xff] << 16)
+                | (S_BOX[(s1 >>> 8) & 0xff] << 8) | S_BOX[s2 & 0xff]) ^ key[k + 3], outBlock, outIndex + 12);
+    }
+
+    @Override
+    public void decrypt(byte[] inBlock, int inIndex, byte[] outBlock, int outIndex) {
+        int[] key = this._decryptionKey;
+        int s0 = getWord(inBlock, inIndex) ^ key[0];
+        int s1 = getWord(inBlock, inIndex + 4) ^ key[1];
+        int s2 = getWord(inBlock, inIndex + 8) ^ key[2];
+        int s3 = getWord(inBlock, inIndex + 12) ^ key[3];
+
+        int k = 4;
+        for (int round = 1; round < ROUNDS; ++round) {
+            int t0 = TD0[s0 >>> 24] ^ TD1[(s3 >>> 16) & 0xff] ^ TD2[(s2 >>> 8) & 0xff] ^ TD3[s1 & 0xff] ^ key[k];
+            int t1 = TD0[s1 >>> 24] ^ TD1[(s0 >>> 16) & 0xff] ^ TD2[(s3 >>> 8) & 0xff] ^ TD3[s2 & 0xff] ^ key[k + 1];
+            int t2 = TD0[s2 >>> 24] ^ TD1[(s1 >>> 16) & 0xff] ^ TD2[(s0 >>> 8) & 0xff] ^ TD3[s3 & 0xff] ^ key[k + 2];
+            int t3 = TD0[s3 >>> 24] ^ TD1[(s2 >>> 16) & 0xff] ^ TD2[(s1 >>> 8) & 0xff] ^ TD3[s0 & 0xff] ^ key[k + 3];
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+            k += 4;
+        }
+
+        putWord(((INV_S_BOX[s0 >>> 24] << 24) | (INV_S_BOX[(s3 >>> 16) & 0xff] << 16)
+                | (INV_S_BOX[(s2 >>> 8) & 0xff] << 8) | INV_S_BOX[s1 & 0xff]) ^ key[k], outBlock, outIndex);
+        putWord(((INV_S_BOX[s1 >>> 24] << 24) | (INV_S_BOX[(s0 >>> 16) & 0xff] << 16)
+                | (INV_S_BOX[(s3 >>> 8) & 0xff] << 8) | INV_S_BOX[s2 & 0xff]) ^ key[k + 1], outBlock, outIndex + 4);
+        putWord(((INV_S_BOX[s2 >>> 24] << 24) | (INV_S_BOX[(s1 >>> 16) & 0xff] << 16)
+                | (INV_S_BOX[(s0 >>> 8) & 0xff] << 8) | INV_S_BOX[s3 & 0xff]) ^ key[k + 2], outBlock, outIndex + 8);
+        putWord(((INV_S_BOX[s3 >>> 24] << 24) | (INV_S_BOX[(s2 >>> 16) & 0xff] << 16)
+                | (INV_S_BOX[(s1 >>> 8) & 0xff] << 8) | INV_S_BOX[s0 & 0xff]) ^ key[k + 3], outBlock, outIndex + 12);
+    }
+}
@@ -31,7 +31,6 @@
 package jpass.crypt.io;
 
 import jpass.io.JPassInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -43,6 +42,12 @@ import jpass.crypt.DecryptException;
  * decrypted data. The encryption key is provided with the constructor. The
  * initialization vector can also be provided. Otherwise this vector is read
  * from the stream.
+ * <p>
+ * The encrypted data is read from the underlying stream in chunks of the
+ * fetch buffer size. Bulk reads with a large enough target array are
+ * decrypted directly into that array, other reads are served from a fixed
+ * buffer of decrypted data.
+ * </p>
  *
  * @author Timm Knape
  * @version $Revision: 1.5 $
@@ -50,9 +55,20 @@ import jpass.crypt.DecryptException;
 public class CryptInputStream extends InputStream {
 
     /**
-     * Maximum size of data that will be read from the underlying stream.
+     * Default size of data that will be read from the underlying stream.
      */
-    private static final int FETCH_BUFFER_SIZE = 32;
+    public static final int DEFAULT_FETCH_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Size of a cipher block.
+     */
+    private static final int BLOCK_SIZE = 16;
+
+    /**
+     * Minimum length of a bulk read to be decrypted directly into the target
+     * array. Shorter reads are served from {@link CryptInputStream#_buffer}.
+     */
+    private static final int MIN_DIRECT_READ_SIZE = 4096;
 
     /**
      * Underlying stream that provides the encrypted data.
@@ -64,13 +80,11 @@ public class CryptInputStream extends InputStream {
      */
     private final Cbc _cipher;
 
-    private final ByteArrayOutputStream _decrypted;
-
     /**
-     * Buffer of unencrypted data. If the buffer is completely returned, another
+     * Buffer of decrypted data. If the buffer is completely returned, another
      * chunk of data will be decrypted.
      */
-    private byte[] _buffer = null;
+    private final byte[] _buffer;
 
     /**
      * Number of {@code byte}s that are already returned from
@@ -78,10 +92,15 @@ public class CryptInputStream extends InputStream {
      */
     private int _bufferUsed = 0;
 
+    /**
+     * Number of valid {@code byte}s in {@link CryptInputStream#_buffer}.
+     */
+    private int _bufferLength = 0;
+
     /**
      * Buffer for storing the encrypted data.
      */
-    private final byte[] _fetchBuffer = new byte[FETCH_BUFFER_SIZE];
+    private final byte[] _fetchBuffer;
 
     /**
      * Signals, if the last encrypted data was read. If we run out of buffers,
@@ -107,9 +126,26 @@ public class CryptInputStream extends InputStream {
      * @param iv initial values for the CBC scheme
      */
     public CryptInputStream(InputStream parent, byte[] key, byte[] iv) {
+        this(parent, key, iv, DEFAULT_FETCH_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a cipher with the key and iv provided.
+     *
+     * @param parent Stream that provides the encrypted data
+     * @param key key for the cipher algorithm
+     * @param iv initial values for the CBC scheme
+     * @param fetchBufferSize maximum size of data that will be read from the
+     * underlying stream at once
+     */
+    public CryptInputStream(InputStream parent, byte[] key, byte[] iv, int fetchBufferSize) {
+        if (fetchBufferSize < BLOCK_SIZE) {
+            throw new IllegalArgumentException("Fetch buffer size must be at least " + BLOCK_SIZE);
+        }
         this._parent = parent;
-        this._decrypted = new ByteArrayOutputStream();
-        this._cipher = new Cbc(iv, key, this._decrypted);
+        this._cipher = new Cbc(iv, key);
+        this._fetchBuffer = new byte[fetchBufferSize];
+        this._buffer = new byte[fetchBufferSize + BLOCK_SIZE];
     }
 
     /**
@@ -122,28 +158,84 @@ public class CryptInputStream extends InputStream {
      * @throws IOException if the iv can't be read
      */
     public CryptInputStream(InputStream parent, byte[] key) throws IOException {
-        this._parent = parent;
-        byte[] iv = new byte[16];
+        this(parent, key, DEFAULT_FETCH_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a cipher with the key. The iv will be read from the
+     * {@code parent} stream. If there are not enough {@code byte}s in the
+     * stream, an {@link java.io.IOException} will be raised.
+     *
+     * @param parent Stream that provides the encrypted data
+     * @param key key for the cipher algorithm
+     * @param fetchBufferSize maximum size of data that will be read from the
+     * underlying stream at once
+     * @throws IOException if the iv can't be read
+     */
+    public CryptInputStream(InputStream parent, byte[] key, int fetchBufferSize) throws IOException {
+        this(parent, key, readIv(parent), fetchBufferSize);
+    }
+
+    /**
+     * Reads the initial values for the CBC scheme from the stream.
+     *
+     * @param parent Stream that provides the encrypted data
+     * @return the initial values
+     * @throws IOException if the iv can't be read
+     */
+    private static byte[] readIv(InputStream parent) throws IOException {
+        byte[] iv = new byte[BLOCK_SIZE];
         int ivRead = 0;
-        while (ivRead < 16) {
-            int cur = parent.read(iv, ivRead, 16 - ivRead);
+        while (ivRead < BLOCK_SIZE) {
+            int cur = parent.read(iv, ivRead, BLOCK_SIZE - ivRead);
             if (cur < 0) {
                 throw new IOException("No initial values in stream.");
             }
             ivRead += cur;
         }
-        this._decrypted = new ByteArrayOutputStream();
-        this._cipher = new Cbc(iv, key, this._decrypted);
+        return iv;
+    }
+
+    /**
+     * Finishes the decryption into the given array.
+     *
+     * @param out storage of the remaining decrypted data
+     * @param outIndex position of the remaining decrypted data
+     * @return number of {@code byte}s written to {@code out}
+     * @throws IOException if the last block is no legal conclusion of the
+     * stream
+     */
+    private int finish(byte[] out, int outIndex) throws IOException {
+        this._lastBufferRead = true;
+        try {
+            return this._cipher.finishDecryption(out, outIndex);
+        } catch (DecryptException ex) {
+            throw new IOException("can't decrypt");
+        }
     }
 
     /**
-     * Tries to read the next decrypted data from the output stream
+     * Decrypts the next chunk of data into {@link CryptInputStream#_buffer}.
+     *
+     * @return {@code false} if the end of the stream is reached
+     * @throws IOException if the decryption fails or the underlying stream
+     * throws an exception
      */
-    private void readFromStream() {
-        if (this._decrypted.size() > 0) {
-            this._buffer = this._decrypted.toByteArray();
-            this._decrypted.reset();
+    private boolean fillBuffer() throws IOException {
+        while (this._bufferUsed >= this._bufferLength) {
+            if (this._lastBufferRead) {
+                return false;
+            }
+
+            this._bufferUsed = 0;
+            int bufferRead = this._parent.read(this._fetchBuffer, 0, this._fetchBuffer.length);
+            if (bufferRead < 0) {
+                this._bufferLength = finish(this._buffer, 0);
+            } else {
+                this._bufferLength = this._cipher.decrypt(this._fetchBuffer, 0, bufferRead, this._buffer, 0);
+            }
         }
+        return true;
     }
 
     /**
@@ -158,30 +250,106 @@ public class CryptInputStream extends InputStream {
      */
     @Override
     public int read() throws IOException {
-        while (this._buffer == null || this._bufferUsed >= this._buffer.length) {
-            if (this._lastBufferRead) {
-                return -1;
-            }
+        if (!fillBuffer()) {
+            return -1;
+        }
+        return this._buffer[this._bufferUsed++] & 0xff;
+    }
 
-            this._bufferUsed = 0;
-            this._buffer = null;
+    /**
+     * Reads up to {@code len} decrypted {@code byte}s. Data which is already
+     * decrypted is returned first. Otherwise, if {@code len} is large enough,
+     * the next chunk is decrypted directly into {@code b}.
+     *
+     * @param b target array
+     * @param off position of the first {@code byte} in {@code b}
+     * @param len maximum number of {@code byte}s to read
+     * @return number of {@code byte}s read, or {@code -1} at the end of the
+     * stream
+     * @throws IOException if the decryption fails or the underlying stream
+     * throws an exception
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
 
-            int bufferRead = this._parent.read(this._fetchBuffer, 0, FETCH_BUFFER_SIZE);
-            if (bufferRead < 0) {
-                this._lastBufferRead = true;
-                try {
-                    this._cipher.finishDecryption();
-                    readFromStream();
-                } catch (DecryptException ex) {
-                    throw new IOException("can't decrypt");
+        if (this._bufferUsed < this._bufferLength) {
+            return readFromBuffer(b, off, len);
+        }
+
+        if (len >= MIN_DIRECT_READ_SIZE) {
+            // output of the cipher is at most the input plus a partial block
+            int fetchSize = Math.min(this._fetchBuffer.length, len - (BLOCK_SIZE - 1));
+            while (!this._lastBufferRead) {
+                int bufferRead = this._parent.read(this._fetchBuffer, 0, fetchSize);
+                int produced;
+                if (bufferRead < 0) {
+                    produced = finish(b, off);
+                } else {
+                    produced = this._cipher.decrypt(this._fetchBuffer, 0, bufferRead, b, off);
+                }
+                if (produced > 0) {
+                    return produced;
                 }
-            } else {
-                this._cipher.decrypt(this._fetchBuffer, bufferRead);
-                readFromStream();
             }
+            return -1;
         }
 
-        return this._buffer[this._bufferUsed++] & 0xff;
+        if (!fillBuffer()) {
+            return -1;
+        }
+        return readFromBuffer(b, off, len);
+    }
+
+    /**
+     * Copies already decrypted data to the target array.
+     *
+     * @param b target array
+     * @param off position of the first {@code byte} in {@code b}
+     * @param len maximum number of {@code byte}s to copy
+     * @return number of {@code byte}s copied
+     */
+    private int readFromBuffer(byte[] b, int off, int len) {
+        int count = Math.min(len, this._bufferLength - this._bufferUsed);
+        System.arraycopy(this._buffer, this._bufferUsed, b, off, count);
+        this._bufferUsed += count;
+        return count;
+    }
+
+    /**
+     * Skips decrypted {@code byte}s. The skipped data still has to be
+     * decrypted, because each block depends on the previous one.
+     *
+     * @param n number of {@code byte}s to skip
+     * @return number of {@code byte}s skipped
+     * @throws IOException if the decryption fails or the underlying stream
+     * throws an exception
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && fillBuffer()) {
+            int count = (int) Math.min(n - skipped, this._bufferLength - this._bufferUsed);
+            this._bufferUsed += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    /**
+     * Returns the number of already decrypted {@code byte}s, which can be read
+     * without blocking.
+     *
+     * @return number of available {@code byte}s
+     */
+    @Override
+    public int available() {
+        return this._bufferLength - this._bufferUsed;
     }
 
     /**
@@ -43,21 +43,55 @@ import jpass.util.CryptUtils;
  * {@link java.io.OutputStream}. If no initial vector is provided in the
  * constructor, the cipher will be initialized with random data and this data
  * will be sent directly to the underlying stream.
+ * <p>
+ * The encrypted data is collected in a buffer and passed to the underlying
+ * stream in large chunks.
+ * </p>
  *
  * @author Timm Knape
  * @version $Revision: 1.5 $
  */
 public class CryptOutputStream extends OutputStream {
 
+    /**
+     * Default size of the buffer for encrypted data.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Size of a cipher block.
+     */
+    private static final int BLOCK_SIZE = 16;
+
+    /**
+     * Underlying stream that receives the encrypted data.
+     */
+    private final OutputStream _parent;
+
     /**
      * Cipher.
      */
     private final Cbc _cipher;
 
+    /**
+     * Buffer of encrypted data, not yet written to the underlying stream.
+     */
+    private final byte[] _buffer;
+
+    /**
+     * Number of {@code byte}s used in {@link CryptOutputStream#_buffer}.
+     */
+    private int _bufferUsed = 0;
+
     /**
      * Buffer for sending single {@code byte}s.
      */
-    private final byte[] _buffer = new byte[1];
+    private final byte[] _single = new byte[1];
+
+    /**
+     * Signals, if the stream is already closed.
+     */
+    private boolean _closed = false;
 
     /**
      * Initializes the cipher with the given JPass stream.
@@ -78,7 +112,24 @@ public class CryptOutputStream extends OutputStream {
      * @param iv initial values for the CBC scheme
      */
     public CryptOutputStream(OutputStream parent, byte[] key, byte[] iv) {
-        this._cipher = new Cbc(iv, key, parent);
+        this(parent, key, iv, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Initializes the cipher with the given key and initial values.
+     *
+     * @param parent underlying {@link java.io.OutputStream}
+     * @param key key for the cipher algorithm
+     * @param iv initial values for the CBC scheme
+     * @param bufferSize size of the buffer for encrypted data
+     */
+    public CryptOutputStream(OutputStream parent, byte[] key, byte[] iv, int bufferSize) {
+        if (bufferSize < 2 * BLOCK_SIZE) {
+            throw new IllegalArgumentException("Buffer size must be at least " + 2 * BLOCK_SIZE);
+        }
+        this._parent = parent;
+        this._cipher = new Cbc(iv, key);
+        this._buffer = new byte[bufferSize];
     }
 
     /**
@@ -92,12 +143,39 @@ public class CryptOutputStream extends OutputStream {
      */
     public CryptOutputStream(OutputStream parent, byte[] key)
             throws IOException {
-        byte[] iv = new byte[16];
+        this(parent, key, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Initializes the cipher with the given key. The initial values for the CBC
+     * scheme will be random and sent to the underlying stream.
+     *
+     * @param parent underlying {@link java.io.OutputStream}
+     * @param key key for the cipher algorithm
+     * @param bufferSize size of the buffer for encrypted data
+     * @throws IOException if the initial values can't be written to the
+     * underlying stream
+     */
+    public CryptOutputStream(OutputStream parent, byte[] key, int bufferSize)
+            throws IOException {
+        this(parent, key, writeIv(parent), bufferSize);
+    }
+
+    /**
+     * Generates random initial values for the CBC scheme and writes them to the
+     * stream.
+     *
+     * @param parent underlying {@link java.io.OutputStream}
+     * @return the initial values
+     * @throws IOException if the initial values can't be written to the
+     * underlying stream
+     */
+    private static byte[] writeIv(OutputStream parent) throws IOException {
+        byte[] iv = new byte[BLOCK_SIZE];
         Random rnd = CryptUtils.newRandomNumberGenerator();
         rnd.nextBytes(iv);
         parent.write(iv);
-
-        this._cipher = new Cbc(iv, key, parent);
+        return iv;
     }
 
     /**
@@ -109,8 +187,8 @@ public class CryptOutputStream extends OutputStream {
      */
     @Override
     public void write(int b) throws IOException {
-        this._buffer[0] = (byte) b;
-        this._cipher.encrypt(this._buffer);
+        this._single[0] = (byte) b;
+        write(this._single, 0, 1);
     }
 
     /**
@@ -122,7 +200,69 @@ public class CryptOutputStream extends OutputStream {
      */
     @Override
     public void write(byte[] b) throws IOException {
-        this._cipher.encrypt(b);
+        write(b, 0, b.length);
+    }
+
+    /**
+     * Encrypts a part of a {@code byte} array. The encrypted data is collected
+     * in the buffer, which is written to the underlying stream when it is full.
+     *
+     * @param b {@code byte} array to be encrypted
+     * @param off position of the first {@code byte} to encrypt
+     * @param len number of {@code byte}s to encrypt
+     * @throws IOException if encrypted data can't be written to the underlying
+     * stream
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (this._closed) {
+            throw new IOException("Stream closed");
+        }
+
+        int pos = off;
+        int end = off + len;
+        while (pos < end) {
+            int free = this._buffer.length - this._bufferUsed;
+            if (free < 2 * BLOCK_SIZE) {
+                flushBuffer();
+                free = this._buffer.length;
+            }
+            // output of the cipher is at most the input plus a partial block
+            int count = Math.min(end - pos, free - (BLOCK_SIZE - 1));
+            this._bufferUsed += this._cipher.encrypt(b, pos, count, this._buffer, this._bufferUsed);
+            pos += count;
+        }
+    }
+
+    /**
+     * Writes the buffered encrypted data to the underlying stream.
+     *
+     * @throws IOException if the underlying stream throws an exception
+     */
+    private void flushBuffer() throws IOException {
+        if (this._bufferUsed > 0) {
+            this._parent.write(this._buffer, 0, this._bufferUsed);
+            this._bufferUsed = 0;
+        }
+    }
+
+    /**
+     * Writes all complete encrypted blocks to the underlying stream and
+     * flushes it. An incomplete block is kept back, because it can't be
+     * encrypted until more data arrives or the stream is closed.
+     *
+     * @throws IOException if the underlying stream throws an exception
+     */
+    @Override
+    public void flush() throws IOException {
+        if (this._closed) {
+            return;
+        }
+        flushBuffer();
+        this._parent.flush();
     }
 
     /**
@@ -133,6 +273,18 @@ public class CryptOutputStream extends OutputStream {
      */
     @Override
     public void close() throws IOException {
-        this._cipher.finishEncryption();
+        if (this._closed) {
+            return;
+        }
+        this._closed = true;
+        try {
+            if (this._buffer.length - this._bufferUsed < BLOCK_SIZE) {
+                flushBuffer();
+            }
+            this._bufferUsed += this._cipher.finishEncryption(this._buffer, this._bufferUsed);
+            flushBuffer();
+        } finally {
+            this._parent.close();
+        }
     }
 }
@@ -31,6 +31,7 @@ package jpass.data;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import jpass.io.KeyMaterial;
 import jpass.xml.bind.Entries;
 import jpass.xml.bind.Entry;
 
@@ -44,9 +45,10 @@ public class DataModel {
 
     private static DataModel INSTANCE;
 
-    private Entries entries = new Entries();
+    private final IndexedEntries entries = new IndexedEntries();
     private String fileName = null;
     private char[] password = null;
+    private KeyMaterial keyMaterial = null;
     private boolean modified = false;
 
     private DataModel() {
@@ -75,12 +77,88 @@ public class DataModel {
     }
 
     /**
-     * Sets list of entries.
+     * Sets list of entries. The entries are copied into the data model, so the
+     * title index is rebuilt.
      *
      * @param entries entries
      */
     public final void setEntries(final Entries entries) {
-        this.entries = entries;
+        if (entries == this.entries) {
+            return;
+        }
+        List<Entry> entryList = this.entries.getEntry();
+        entryList.clear();
+        entryList.addAll(entries.getEntry());
+    }
+
+    /**
+     * Adds a new entry.
+     *
+     * @param entry the entry
+     * @throws IllegalArgumentException if an entry with the same title
+     * (ignoring case) already exists
+     */
+    public void addEntry(Entry entry) {
+        if (this.entries.containsTitle(entry.getTitle())) {
+            throw new IllegalArgumentException("Entry already exists: " + entry.getTitle());
+        }
+        this.entries.getEntry().add(entry);
+    }
+
+    /**
+     * Replaces an entry with its edited version, keeping its position.
+     *
+     * @param original the original entry
+     * @param replacement the edited entry
+     * @throws IllegalArgumentException if the original entry does not exist,
+     * or the title is changed to the title (ignoring case) of another entry
+     */
+    public void replaceEntry(Entry original, Entry replacement) {
+        List<Entry> entryList = this.entries.getEntry();
+        int index = this.entries.indexOf(original);
+        if (index == -1) {
+            throw new IllegalArgumentException("Entry does not exist: " + original.getTitle());
+        }
+        String title = replacement.getTitle();
+        if (!isSameTitle(original.getTitle(), title) && this.entries.containsTitle(title)) {
+            throw new IllegalArgumentException("Entry already exists: " + title);
+        }
+        entryList.set(index, replacement);
+    }
+
+    /**
+     * Removes an entry.
+     *
+     * @param entry the entry
+     * @return {@code true} if the entry was removed
+     */
+    public boolean removeEntry(Entry entry) {
+        int index = this.entries.indexOf(entry);
+        if (index == -1) {
+            return false;
+        }
+        this.entries.getEntry().remove(index);
+        return true;
+    }
+
+    /**
+     * Checks whether an entry has the given title, ignoring case.
+     *
+     * @param title entry title
+     * @return {@code true} if there is such an entry
+     */
+    public boolean containsTitle(String title) {
+        return this.entries.containsTitle(title);
+    }
+
+    /**
+     * Gets the substring search index of the entry titles, which is kept up to
+     * date with the entries.
+     *
+     * @return the search index
+     */
+    public EntrySearchIndex getSearchIndex() {
+        return this.entries.getSearchIndex();
     }
 
     /**
@@ -123,8 +201,35 @@ public class DataModel {
         return this.password;
     }
 
+    /**
+     * Sets the password. The cached key material is cleared, so a new key is
+     * derived on the next save.
+     *
+     * @param password the password
+     */
     public void setPassword(char[] password) {
         this.password = password;
+        this.keyMaterial = null;
+    }
+
+    /**
+     * Gets the key material derived from the password on the last open or
+     * save.
+     *
+     * @return the key material (can be null)
+     */
+    public KeyMaterial getKeyMaterial() {
+        return this.keyMaterial;
+    }
+
+    /**
+     * Sets the key material derived from the password. Setting it to
+     * {@code null} forces a new key derivation on the next save.
+     *
+     * @param keyMaterial the key material
+     */
+    public void setKeyMaterial(KeyMaterial keyMaterial) {
+        this.keyMaterial = keyMaterial;
     }
 
     /**
@@ -134,6 +239,7 @@ public class DataModel {
         this.entries.getEntry().clear();
         this.fileName = null;
         this.password = null;
+        this.keyMaterial = null;
         this.modified = false;
     }
 
@@ -155,20 +261,10 @@ public class DataModel {
      * @return entry (can be null)
      */
     public Entry getEntryByTitle(String title) {
-        int entryIndex = getEntryIndexByTitle(title);
-        if (entryIndex != -1) {
-            return this.entries.getEntry().get(entryIndex);
-        }
-        return null;
+        return this.entries.getEntryByTitle(title);
     }
 
-    /**
-     * Gets entry index by title.
-     *
-     * @param title entry title
-     * @return entry index
-     */
-    private int getEntryIndexByTitle(String title) {
-        return getTitles().indexOf(title);
+    private static boolean isSameTitle(String title, String otherTitle) {
+        return title == null ? otherTitle == null : title.equalsIgnoreCase(otherTitle);
     }
 }
@@ -0,0 +1,178 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.data;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jpass.io.JPassBuffer;
+import jpass.io.KeyMaterial;
+
+/**
+ * Prepares opening of an encrypted file while the password is being entered.
+ * The file header is read, the file content is read ahead and the document
+ * reader is warmed up in the background. As soon as the password is known, the
+ * key derivation is started in the background as well, so it overlaps with
+ * the remaining preparation.
+ */
+public final class DocumentPreloader {
+
+    private static final Logger LOG = Logger.getLogger(DocumentPreloader.class.getName());
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "JPass-DocumentPreloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Number of bytes read for parsing the file header.
+     */
+    private static final int HEADER_READ_SIZE = 4096;
+
+    /**
+     * Size of the buffer reading the file ahead.
+     */
+    private static final int READ_AHEAD_BUFFER_SIZE = 64 * 1024;
+
+    private final CompletableFuture<JPassBuffer> header;
+    private final CompletableFuture<Void> preload;
+    private volatile CompletableFuture<KeyMaterial> keyMaterial;
+
+    private DocumentPreloader(final String fileName) {
+        this.header = CompletableFuture.supplyAsync(() -> readHeader(fileName), EXECUTOR);
+        this.preload = CompletableFuture.runAsync(() -> {
+            readAhead(fileName);
+            EntriesRepository.warmUp();
+        }, EXECUTOR);
+    }
+
+    /**
+     * Starts preparing the given file for opening.
+     *
+     * @param fileName file name
+     * @return the preloader of the file
+     */
+    public static DocumentPreloader start(final String fileName) {
+        return new DocumentPreloader(fileName);
+    }
+
+    /**
+     * Starts the key derivation with the given password in the background.
+     *
+     * @param password the password
+     */
+    public void deriveKey(final char[] password) {
+        this.keyMaterial = this.header.thenApplyAsync(file -> file == null ? null : file.getKeyMaterial(password, null), EXECUTOR);
+    }
+
+    /**
+     * Waits for the key derivation and gets the derived key material.
+     *
+     * @return the key material, or {@code null} if the file header could not
+     * be read, the key derivation failed or has not been started
+     */
+    public KeyMaterial getKeyMaterial() {
+        CompletableFuture<KeyMaterial> future = this.keyMaterial;
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | CancellationException e) {
+            LOG.log(Level.FINE, "Key derivation failed.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Cancels the preparation. Results of already running tasks are dropped.
+     */
+    public void cancel() {
+        this.header.cancel(false);
+        this.preload.cancel(false);
+        CompletableFuture<KeyMaterial> future = this.keyMaterial;
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Reads the file header.
+     *
+     * @param fileName file name
+     * @return the file header, or {@code null} if it could not be read
+     */
+    private static JPassBuffer readHeader(final String fileName) {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_READ_SIZE);
+            int read = 0;
+            while (read >= 0 && buffer.hasRemaining()) {
+                read = channel.read(buffer);
+            }
+            ((Buffer) buffer).flip();
+            return new JPassBuffer(buffer);
+        } catch (Exception e) {
+            LOG.log(Level.FINE, "Could not read file header.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the whole file and drops its content, so it is read from the page
+     * cache when the document is read. The file is not mapped, as a mapped
+     * file can not be replaced on every platform until the mapping is garbage
+     * collected.
+     *
+     * @param fileName file name
+     */
+    private static void readAhead(final String fileName) {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_AHEAD_BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                ((Buffer) buffer).clear();
+            }
+        } catch (Exception e) {
+            LOG.log(Level.FINE, "Could not read file ahead.", e);
+        }
+    }
+}
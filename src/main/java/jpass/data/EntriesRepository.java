@@ -29,22 +29,55 @@
 package jpass.data;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import jpass.crypt.BlockCipher;
+import jpass.crypt.Cbc;
+import jpass.crypt.DecryptException;
+import jpass.crypt.ParallelCbcDecryptor;
 import jpass.crypt.io.CryptInputStream;
 import jpass.crypt.io.CryptOutputStream;
-import jpass.io.JPassInputStream;
+import jpass.io.ChunkedContainer;
+import jpass.io.EntryRecordReader;
+import jpass.io.EntryRecordWriter;
+import jpass.io.FileChannelOutputStream;
+import jpass.io.JPassBuffer;
 import jpass.io.JPassOutputStream;
+import jpass.io.JPassStream.FileVersionType;
+import jpass.io.JPassStream.PayloadFormat;
+import jpass.io.KeyMaterial;
+import jpass.io.codec.Codec;
+import jpass.io.codec.CodecRegistry;
+import jpass.util.Configuration;
 import jpass.xml.bind.Entries;
-import jpass.xml.converter.XmlConverter;
+import jpass.xml.bind.Entry;
+import jpass.xml.converter.EntryStreamReader;
+import jpass.xml.converter.EntryStreamWriter;
 
+import static jpass.io.JPassStream.DEFAULT_FILE_VERSION;
+import static jpass.io.JPassStream.SUPPORTED_FILE_VERSIONS;
 import static jpass.util.StringUtils.stripString;
 
 /**
@@ -55,6 +88,8 @@ import static jpass.util.StringUtils.stripString;
  */
 public final class EntriesRepository {
 
+    private static final Logger LOG = Logger.getLogger(EntriesRepository.class.getName());
+
     /**
      * File name to read/write.
      */
@@ -66,9 +101,57 @@ public final class EntriesRepository {
     private final char[] key;
 
     /**
-     * Converter between document objects and streams representing XMLs
+     * Key material derived from the key, read from or written to the file.
+     */
+    private KeyMaterial keyMaterial;
+
+    /**
+     * Streaming writer of XML documents, indented for human readable
+     * (unencrypted) files
+     */
+    private static final EntryStreamWriter INDENTED_WRITER = new EntryStreamWriter(true);
+
+    /**
+     * Streaming writer of XML documents for encrypted files
+     */
+    private static final EntryStreamWriter ENCRYPTED_WRITER
+            = new EntryStreamWriter(Configuration.getInstance().is("file.xml.indent.enabled", false));
+
+    /**
+     * File version which the encrypted files are migrated to on save, or
+     * {@code null} if files are saved in the version they were read with.
+     */
+    private static final FileVersionType MIGRATION_FILE_VERSION = getMigrationFileVersion();
+
+    /**
+     * Streaming reader of the entries in XML documents
+     */
+    private static final EntryStreamReader READER = new EntryStreamReader();
+
+    /**
+     * Encrypted files of at least this size (in bytes) are decrypted in
+     * parallel.
+     */
+    private static final int PARALLEL_DECRYPTION_THRESHOLD
+            = Configuration.getInstance().getInteger("crypt.parallel.decryption.threshold", 1024 * 1024);
+
+    /**
+     * Number of bytes read for parsing the file header, more than the longest
+     * header of all file versions.
      */
-    private static final XmlConverter<Entries> CONVERTER = new XmlConverter<>(Entries.class);
+    private static final int HEADER_READ_SIZE = 256;
+
+    /**
+     * Size of the slices read and fed to the decryptor when decrypting
+     * sequentially.
+     */
+    private static final int DECRYPTION_SLICE_SIZE = 64 * 1024;
+
+    /**
+     * Size of the slices read and fed to the decryptor when decrypting in
+     * parallel, several chunks of the decryptor.
+     */
+    private static final int PARALLEL_DECRYPTION_SLICE_SIZE = 4 * 1024 * 1024;
 
     /**
      * Creates a DocumentRepository instance.
@@ -76,9 +159,10 @@ public final class EntriesRepository {
      * @param fileName file name
      * @param key key for encryption
      */
-    private EntriesRepository(final String fileName, final char[] key) {
+    private EntriesRepository(final String fileName, final char[] key, final KeyMaterial keyMaterial) {
         this.fileName = fileName;
         this.key = key;
+        this.keyMaterial = keyMaterial;
     }
 
     /**
@@ -88,7 +172,7 @@ public final class EntriesRepository {
      * @return a new DocumentHelper object
      */
     public static EntriesRepository newInstance(final String fileName) {
-        return new EntriesRepository(fileName, null);
+        return new EntriesRepository(fileName, null, null);
     }
 
     /**
@@ -99,7 +183,33 @@ public final class EntriesRepository {
      * @return a new DocumentHelper object
      */
     public static EntriesRepository newInstance(final String fileName, final char[] key) {
-        return new EntriesRepository(fileName, key);
+        return new EntriesRepository(fileName, key, null);
+    }
+
+    /**
+     * Creates a document repository with encryption, which reuses previously
+     * derived key material. On read, the key material is reused if it belongs
+     * to the file version and salt of the file. On write, the file is saved in
+     * the file version of the key material, unless a migration version is
+     * configured; a new key is derived if the key material is {@code null} or
+     * belongs to another file version than the written one.
+     *
+     * @param fileName file name
+     * @param key key for encryption
+     * @param keyMaterial key material derived from the key (can be null)
+     * @return a new DocumentHelper object
+     */
+    public static EntriesRepository newInstance(final String fileName, final char[] key, final KeyMaterial keyMaterial) {
+        return new EntriesRepository(fileName, key, keyMaterial);
+    }
+
+    /**
+     * Gets the key material of the last read or written document.
+     *
+     * @return the key material, or {@code null} if there is no encryption
+     */
+    public KeyMaterial getKeyMaterial() {
+        return this.keyMaterial;
     }
 
     /**
@@ -112,15 +222,41 @@ public final class EntriesRepository {
      * @throws DocumentProcessException when document could not be read
      */
     public Entries readDocument() throws IOException, DocumentProcessException {
+        Entries entries = new Entries();
+        readDocument(entries.getEntry()::add);
+        return entries;
+    }
+
+    /**
+     * Reads an XML file and passes the entries to the given consumer as soon
+     * as they are decoded.
+     *
+     * @param consumer consumer of the entries, called in document order
+     * @return number of entries read
+     * @throws FileNotFoundException if file is not exists
+     * @throws IOException when I/O error occurred (including incorrect
+     * password, or file format issues)
+     * @throws DocumentProcessException when document could not be read
+     */
+    public int readDocument(final Consumer<Entry> consumer) throws IOException, DocumentProcessException {
         InputStream inputStream = null;
-        Entries entries;
+        int count;
         try {
             if (this.key == null) {
                 inputStream = new BufferedInputStream(new FileInputStream(this.fileName));
             } else {
-                inputStream = new GZIPInputStream(new CryptInputStream(new JPassInputStream(new BufferedInputStream(new FileInputStream(this.fileName)), this.key)));
+                FileInputStream fileStream = new FileInputStream(this.fileName);
+                inputStream = fileStream;
+                if (ChunkedContainer.isChunked(fileStream.getChannel())) {
+                    return readChunkedDocument(fileStream.getChannel(), consumer);
+                }
+                inputStream = openEncryptedDocument(fileStream);
+            }
+            if (this.key != null && this.keyMaterial.getFileVersionType().getPayloadFormat() == PayloadFormat.BINARY) {
+                count = new EntryRecordReader().read(inputStream, consumer);
+            } else {
+                count = READER.read(inputStream, consumer);
             }
-            entries = CONVERTER.read(inputStream);
         } catch (IOException e) {
             throw e;
         } catch (Exception e) {
@@ -130,30 +266,404 @@ public final class EntriesRepository {
                 inputStream.close();
             }
         }
-        return entries;
+        return count;
     }
 
     /**
-     * Writes a document into an XML file.
+     * Reads the chunks of a chunked file in parallel.
+     *
+     * @param channel the file
+     * @param consumer consumer of the entries, called in document order
+     * @return number of entries read
+     * @throws IOException when I/O error occurred (including incorrect
+     * password, or file format issues)
+     */
+    private int readChunkedDocument(final FileChannel channel, final Consumer<Entry> consumer) throws IOException {
+        ChunkedContainer container = ChunkedContainer.open(channel, this.key, this.keyMaterial);
+        this.keyMaterial = container.getKeyMaterial();
+        return container.read(consumer);
+    }
+
+    /**
+     * Opens the encrypted file for reading. The file is read with positional
+     * reads in slices, which are decrypted as the content is decompressed.
+     *
+     * @param fileStream the file, closed when the returned stream is closed
+     * @return stream of the decrypted content
+     * @throws IOException when I/O error occurred (including incorrect
+     * password, or file format issues)
+     */
+    private InputStream openEncryptedDocument(final FileInputStream fileStream) throws IOException {
+        FileChannel channel = fileStream.getChannel();
+        ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_READ_SIZE);
+        readFully(channel, headerBuffer, 0);
+        ((Buffer) headerBuffer).flip();
+        JPassBuffer header = new JPassBuffer(headerBuffer);
+        this.keyMaterial = header.getKeyMaterial(this.key, this.keyMaterial);
+        return header.getCodec().decompress(
+                new DecryptingInputStream(fileStream, header.getHeaderLength(), header.getIv(), this.keyMaterial.getKey()));
+    }
+
+    /**
+     * Reads from the given position until the buffer is full or the end of
+     * the file is reached.
+     */
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+            // read until the buffer is full
+        }
+    }
+
+    /**
+     * Runs a round trip of a single entry document through the compression
+     * codec and the entry format of the written files, so classes are loaded
+     * and initialized before the first real document is read.
+     */
+    static void warmUp() {
+        try {
+            Entries document = new Entries();
+            document.getEntry().add(new Entry());
+            FileVersionType fileVersionType = MIGRATION_FILE_VERSION == null ? DEFAULT_FILE_VERSION : MIGRATION_FILE_VERSION;
+            Codec codec = getWriteCodec(fileVersionType);
+            boolean binary = fileVersionType.getPayloadFormat() != PayloadFormat.XML;
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try (OutputStream compressedStream = codec.compress(outputStream)) {
+                if (binary) {
+                    new EntryRecordWriter().write(document.getEntry(), compressedStream);
+                } else {
+                    ENCRYPTED_WRITER.write(document.getEntry(), compressedStream);
+                }
+            }
+            try (InputStream inputStream = codec.decompress(new ByteArrayInputStream(outputStream.toByteArray()))) {
+                Consumer<Entry> consumer = entry -> {
+                    // nothing to do with the entries
+                };
+                if (binary) {
+                    new EntryRecordReader().read(inputStream, consumer);
+                } else {
+                    READER.read(inputStream, consumer);
+                }
+            }
+        } catch (Exception e) {
+            LOG.log(Level.FINE, "Warm-up failed.", e);
+        }
+    }
+
+    /**
+     * Writes a document into an XML file. The document is written into a
+     * temporary file next to the target file, which is forced to the storage
+     * device and then moved over the target file, so the target file is never
+     * left truncated. An existing chunked file with the same key material is
+     * updated in place instead if entries were only added, only the new
+     * chunks are written. The in place update is crash safe as well: the
+     * written chunks and the new index are appended to the file and forced to
+     * the storage device before the index position in the header is switched
+     * to them, so the file always refers to a complete index, the old one
+     * until the switch.
      *
      * @param document the document
      * @throws DocumentProcessException when document could not be saved
      */
     public void writeDocument(final Entries document) throws DocumentProcessException, IOException {
+        long startTime = System.nanoTime();
+        Path target = Paths.get(this.fileName).toAbsolutePath();
+        Path temporary = null;
         OutputStream outputStream = null;
         try {
-            if (this.key == null) {
-                outputStream = new BufferedOutputStream(new FileOutputStream(this.fileName));
+            if (Files.isSymbolicLink(target)) {
+                target = target.toRealPath();
+            }
+            FileVersionType fileVersionType = null;
+            Codec codec = null;
+            boolean chunked = false;
+            if (this.key != null) {
+                fileVersionType = getWriteFileVersion();
+                if (this.keyMaterial == null || this.keyMaterial.getFileVersionType() != fileVersionType) {
+                    this.keyMaterial = KeyMaterial.generate(fileVersionType, this.key);
+                }
+                codec = getWriteCodec(fileVersionType);
+                chunked = fileVersionType.getPayloadFormat() == PayloadFormat.CHUNKED;
+            }
+            if (chunked) {
+                long bytesWritten = updateChunkedDocument(target, codec, document);
+                if (bytesWritten >= 0) {
+                    LOG.fine(String.format("Updated %d bytes of %s in %d ms", bytesWritten, target,
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)));
+                    return;
+                }
+            }
+
+            temporary = Files.createTempFile(target.getParent(), "." + target.getFileName() + ".", ".tmp");
+            long bytesWritten;
+            if (chunked) {
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                    bytesWritten = ChunkedContainer.write(channel, this.keyMaterial, codec, document.getEntry());
+                }
             } else {
-                outputStream = new GZIPOutputStream(new CryptOutputStream(new JPassOutputStream(new BufferedOutputStream(new FileOutputStream(this.fileName)), this.key)));
+                FileChannelOutputStream fileStream = new FileChannelOutputStream(FileChannel.open(temporary, StandardOpenOption.WRITE));
+                outputStream = fileStream;
+                if (this.key == null) {
+                    INDENTED_WRITER.write(document.getEntry(), outputStream);
+                } else {
+                    outputStream = codec.compress(new CryptOutputStream(new JPassOutputStream(fileStream, this.keyMaterial, codec)));
+                    if (fileVersionType.getPayloadFormat() == PayloadFormat.BINARY) {
+                        new EntryRecordWriter().write(document.getEntry(), outputStream);
+                    } else {
+                        ENCRYPTED_WRITER.write(document.getEntry(), outputStream);
+                    }
+                }
+                outputStream.close();
+                outputStream = null;
+                bytesWritten = fileStream.getBytesWritten();
             }
-            CONVERTER.write(document, outputStream);
+
+            copyPermissions(target, temporary);
+            replace(temporary, target);
+            temporary = null;
+            LOG.fine(String.format("Saved %d bytes to %s in %d ms", bytesWritten, target,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)));
         } catch (Exception e) {
             throw new DocumentProcessException(stripString(e.getMessage()));
         } finally {
             if (outputStream != null) {
                 outputStream.close();
             }
+            if (temporary != null) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * Appends the new chunks to an existing chunked file, see
+     * {@link ChunkedContainer#update(FileChannel, KeyMaterial, Codec, java.util.List)}.
+     *
+     * @param target the target file
+     * @param codec the compression codec of the new chunks
+     * @param document the document
+     * @return number of bytes written, or {@code -1} if the file does not
+     * exist or can not be updated
+     * @throws IOException if the file could not be read or written
+     */
+    private long updateChunkedDocument(final Path target, final Codec codec, final Entries document) throws IOException {
+        if (!Files.isRegularFile(target)) {
+            return -1;
+        }
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return ChunkedContainer.update(channel, this.keyMaterial, codec, document.getEntry());
+        }
+    }
+
+    /**
+     * Gets the file version of the written encrypted file: the configured
+     * migration version, otherwise the version the file was read with.
+     * Version 0 files are saved as version 1, as version 0 is not supported
+     * for writing.
+     *
+     * @return the file version
+     */
+    private FileVersionType getWriteFileVersion() {
+        if (MIGRATION_FILE_VERSION != null) {
+            return MIGRATION_FILE_VERSION;
+        }
+        if (this.keyMaterial == null || this.keyMaterial.getFileVersionType() == FileVersionType.VERSION_0) {
+            return DEFAULT_FILE_VERSION;
+        }
+        return this.keyMaterial.getFileVersionType();
+    }
+
+    /**
+     * Gets the configured file version which the encrypted files are migrated
+     * to on save.
+     *
+     * @return the file version, or {@code null} if it is not configured or
+     * not supported for writing
+     */
+    private static FileVersionType getMigrationFileVersion() {
+        Integer version = Configuration.getInstance().getInteger("file.format.version", null);
+        if (version == null) {
+            return null;
+        }
+        FileVersionType fileVersionType = SUPPORTED_FILE_VERSIONS.get(version);
+        if (fileVersionType == null || fileVersionType == FileVersionType.VERSION_0) {
+            LOG.warning(String.format("File format version %d is not supported for writing, files are not migrated", version));
+            return null;
+        }
+        return fileVersionType;
+    }
+
+    /**
+     * Gets the configured compression codec of the written encrypted files.
+     *
+     * @param fileVersionType the written file version
+     * @return the codec, {@link CodecRegistry#DEFLATE} if the file version can
+     * not store the codec
+     */
+    private static Codec getWriteCodec(final FileVersionType fileVersionType) {
+        return fileVersionType.isCodecInHeader() ? CodecRegistry.getDefaultCodec() : CodecRegistry.DEFLATE;
+    }
+
+    /**
+     * Copies the POSIX permissions and group, or the ACL of the source file to
+     * the target file, so the replaced file keeps its access rights. Nothing
+     * is copied if the source file does not exist.
+     *
+     * @param source the source file
+     * @param target the target file
+     * @throws IOException if the permissions could not be read or written
+     */
+    private static void copyPermissions(final Path source, final Path target) throws IOException {
+        if (!Files.exists(source)) {
+            return;
+        }
+        PosixFileAttributeView posixView = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        if (posixView != null) {
+            PosixFileAttributes attributes = posixView.readAttributes();
+            PosixFileAttributeView targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+            try {
+                targetView.setGroup(attributes.group());
+            } catch (IOException e) {
+                LOG.log(Level.FINE, "Could not copy the group of the file.", e);
+            }
+            // the permissions are set after the group, as changing the group may clear some of them
+            targetView.setPermissions(attributes.permissions());
+            return;
+        }
+        AclFileAttributeView aclView = Files.getFileAttributeView(source, AclFileAttributeView.class);
+        if (aclView != null) {
+            Files.getFileAttributeView(target, AclFileAttributeView.class).setAcl(aclView.getAcl());
+        }
+    }
+
+    /**
+     * Replaces the target file with the source file, atomically if the file
+     * system supports it.
+     *
+     * @param source the source file
+     * @param target the target file
+     * @throws IOException if the file could not be moved
+     */
+    private static void replace(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            LOG.log(Level.WARNING, "Atomic move is not supported, replacing file non-atomically.", e);
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Stream of the decrypted content of an encrypted file. The content is
+     * read with positional reads in slices, which are decrypted one by one, so
+     * only a slice of the content is held in memory. Content of at least
+     * {@link #PARALLEL_DECRYPTION_THRESHOLD} size is decrypted in parallel, in
+     * larger slices.
+     */
+    private static final class DecryptingInputStream extends InputStream {
+
+        private final FileInputStream fileStream;
+        private final FileChannel channel;
+        private final long end;
+        private final ByteBuffer slice;
+        private final byte[] decrypted;
+        private final Cbc cipher;
+        private final ParallelCbcDecryptor parallelCipher;
+        private byte[] iv;
+        private long position;
+        private int decryptedIndex;
+        private int decryptedLength;
+        private boolean finished;
+
+        DecryptingInputStream(final FileInputStream fileStream, final int headerLength, final byte[] iv,
+                final byte[] key) throws IOException {
+            this.fileStream = fileStream;
+            this.channel = fileStream.getChannel();
+            this.position = headerLength;
+            this.end = this.channel.size();
+            long contentLength = Math.max(this.end - this.position, 0);
+            boolean parallel = contentLength >= PARALLEL_DECRYPTION_THRESHOLD;
+            int sliceSize = (int) Math.min(parallel ? PARALLEL_DECRYPTION_SLICE_SIZE : DECRYPTION_SLICE_SIZE, contentLength);
+            this.slice = ByteBuffer.allocate(sliceSize);
+            this.cipher = parallel ? null : new Cbc(iv, key);
+            this.parallelCipher = parallel ? new ParallelCbcDecryptor(key) : null;
+            this.iv = iv;
+            // room for a block kept back by the sequential cipher and the final block
+            this.decrypted = new byte[sliceSize + 2 * BlockCipher.BLOCK_SIZE];
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return this.decrypted[this.decryptedIndex++] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, this.decryptedLength - this.decryptedIndex);
+            System.arraycopy(this.decrypted, this.decryptedIndex, b, off, count);
+            this.decryptedIndex += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.fileStream.close();
+        }
+
+        /**
+         * Decrypts the next slice if the decrypted one is used up.
+         *
+         * @return {@code false} if the end of the content is reached
+         */
+        private boolean fill() throws IOException {
+            try {
+                while (this.decryptedIndex == this.decryptedLength) {
+                    if (this.finished) {
+                        return false;
+                    }
+                    this.decryptedIndex = 0;
+                    this.decryptedLength = 0;
+                    if (this.position >= this.end) {
+                        if (this.cipher != null) {
+                            this.decryptedLength = this.cipher.finishDecryption(this.decrypted, 0);
+                        }
+                        this.finished = true;
+                        continue;
+                    }
+                    ((Buffer) this.slice).clear();
+                    ((Buffer) this.slice).limit((int) Math.min(this.slice.capacity(), this.end - this.position));
+                    readFully(this.channel, this.slice, this.position);
+                    if (this.slice.hasRemaining()) {
+                        throw new IOException("Unexpected end of file");
+                    }
+                    ((Buffer) this.slice).flip();
+                    int size = this.slice.remaining();
+                    this.position += size;
+                    if (this.cipher != null) {
+                        this.decryptedLength = this.cipher.decrypt(this.slice.array(), 0, size, this.decrypted, 0);
+                    } else if (this.position < this.end) {
+                        // the last encrypted block of the slice chains the next slice
+                        this.parallelCipher.decryptBlocks(this.iv, this.slice, this.decrypted, 0);
+                        this.iv = Arrays.copyOfRange(this.slice.array(), size - BlockCipher.BLOCK_SIZE, size);
+                        this.decryptedLength = size;
+                    } else {
+                        this.decryptedLength = this.parallelCipher.decrypt(this.iv, this.slice, this.decrypted, 0);
+                        this.finished = true;
+                    }
+                }
+                return true;
+            } catch (DecryptException e) {
+                throw new IOException("can't decrypt");
+            }
         }
     }
 }
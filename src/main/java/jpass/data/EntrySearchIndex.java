@@ -0,0 +1,287 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.data;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import jpass.xml.bind.Entry;
+
+/**
+ * Substring search index of the entry titles.
+ * <p>
+ * The titles are stored as search keys, folded to lower case and stripped of
+ * accents, so the keys are not computed again for every query. Every trigram of
+ * the keys has a posting list of the entries containing it, and a query is
+ * answered by intersecting the posting lists of its trigrams and checking the
+ * keys of the remaining candidates only. Queries shorter than a trigram scan
+ * the keys.
+ * </p>
+ * <p>
+ * The index is updated incrementally and can be queried from any thread.
+ * </p>
+ */
+public final class EntrySearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Identifiers of the indexed entries. Identifiers are not reused, so the
+     * posting lists stay sorted when entries are added.
+     */
+    private final Map<Entry, Integer> ids = new IdentityHashMap<>();
+    private final Map<Long, PostingList> postingLists = new HashMap<>();
+    private Entry[] entries = new Entry[INITIAL_CAPACITY];
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private int nextId = 0;
+
+    /**
+     * Normalizes a text for searching: accents are removed and the case is
+     * folded in the same way as {@link String#equalsIgnoreCase(String)}
+     * compares characters.
+     *
+     * @param text the text
+     * @return the search key, empty if the text is {@code null}
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        if (isNormalized(text)) {
+            return text;
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                builder.append(Character.toLowerCase(Character.toUpperCase(c)));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean isNormalized(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80 || (c >= 'A' && c <= 'Z')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds an entry to the index.
+     *
+     * @param entry the entry
+     */
+    public synchronized void add(Entry entry) {
+        if (this.ids.containsKey(entry)) {
+            return;
+        }
+        int id = this.nextId++;
+        if (id == this.entries.length) {
+            this.entries = Arrays.copyOf(this.entries, id * 2);
+            this.keys = Arrays.copyOf(this.keys, id * 2);
+        }
+        String key = normalize(entry.getTitle());
+        this.ids.put(entry, id);
+        this.entries[id] = entry;
+        this.keys[id] = key;
+        for (int i = 0; i + GRAM_LENGTH <= key.length(); i++) {
+            this.postingLists.computeIfAbsent(gram(key, i), gram -> new PostingList()).add(id);
+        }
+    }
+
+    /**
+     * Removes an entry from the index.
+     *
+     * @param entry the entry
+     */
+    public synchronized void remove(Entry entry) {
+        Integer id = this.ids.remove(entry);
+        if (id == null) {
+            return;
+        }
+        String key = this.keys[id];
+        for (int i = 0; i + GRAM_LENGTH <= key.length(); i++) {
+            Long gram = gram(key, i);
+            PostingList postingList = this.postingLists.get(gram);
+            if (postingList != null && postingList.remove(id) && postingList.size == 0) {
+                this.postingLists.remove(gram);
+            }
+        }
+        this.entries[id] = null;
+        this.keys[id] = null;
+        if (this.nextId > INITIAL_CAPACITY && this.ids.size() < this.nextId / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * Removes all entries from the index.
+     */
+    public synchronized void clear() {
+        this.ids.clear();
+        this.postingLists.clear();
+        this.entries = new Entry[INITIAL_CAPACITY];
+        this.keys = new String[INITIAL_CAPACITY];
+        this.nextId = 0;
+    }
+
+    /**
+     * Gets the number of indexed entries.
+     *
+     * @return number of entries
+     */
+    public synchronized int size() {
+        return this.ids.size();
+    }
+
+    /**
+     * Finds the entries with titles containing the query, ignoring case and
+     * accents.
+     *
+     * @param query the query
+     * @return the matching entries in no particular order
+     */
+    public synchronized List<Entry> search(String query) {
+        String normalizedQuery = normalize(query);
+        List<Entry> result = new ArrayList<>();
+        if (normalizedQuery.length() < GRAM_LENGTH) {
+            for (int id = 0; id < this.nextId; id++) {
+                if (this.keys[id] != null && this.keys[id].contains(normalizedQuery)) {
+                    result.add(this.entries[id]);
+                }
+            }
+            return result;
+        }
+        int gramCount = normalizedQuery.length() - GRAM_LENGTH + 1;
+        PostingList[] lists = new PostingList[gramCount];
+        for (int i = 0; i < gramCount; i++) {
+            lists[i] = this.postingLists.get(gram(normalizedQuery, i));
+            if (lists[i] == null) {
+                return result;
+            }
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        PostingList shortest = lists[0];
+        for (int i = 0; i < shortest.size; i++) {
+            int id = shortest.ids[i];
+            if (containsInAll(lists, id) && this.keys[id].contains(normalizedQuery)) {
+                result.add(this.entries[id]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a filter matching the entries found by {@link #search(String)}.
+     *
+     * @param query the query
+     * @return the filter
+     */
+    public Predicate<Entry> createFilter(String query) {
+        String normalizedQuery = normalize(query);
+        return entry -> getKey(entry).contains(normalizedQuery);
+    }
+
+    private synchronized String getKey(Entry entry) {
+        Integer id = this.ids.get(entry);
+        return id == null ? normalize(entry.getTitle()) : this.keys[id];
+    }
+
+    private static boolean containsInAll(PostingList[] lists, int id) {
+        for (int i = 1; i < lists.length; i++) {
+            if (!lists[i].contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Assigns new identifiers to the entries after many removals.
+     */
+    private void compact() {
+        List<Entry> indexed = new ArrayList<>(this.ids.size());
+        for (int id = 0; id < this.nextId; id++) {
+            if (this.entries[id] != null) {
+                indexed.add(this.entries[id]);
+            }
+        }
+        clear();
+        indexed.forEach(this::add);
+    }
+
+    private static Long gram(String key, int index) {
+        return ((long) key.charAt(index) << 32) | ((long) key.charAt(index + 1) << 16) | key.charAt(index + 2);
+    }
+
+    /**
+     * Sorted list of entry identifiers.
+     */
+    private static final class PostingList {
+
+        private int[] ids = new int[4];
+        private int size = 0;
+
+        void add(int id) {
+            if (this.size > 0 && this.ids[this.size - 1] == id) {
+                // the trigram occurs more than once in the key
+                return;
+            }
+            if (this.size == this.ids.length) {
+                this.ids = Arrays.copyOf(this.ids, this.size * 2);
+            }
+            this.ids[this.size++] = id;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(this.ids, 0, this.size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(this.ids, index + 1, this.ids, index, this.size - index - 1);
+            this.size--;
+            return true;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(this.ids, 0, this.size, id) >= 0;
+        }
+    }
+}
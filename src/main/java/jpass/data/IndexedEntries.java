@@ -0,0 +1,282 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.data;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import jpass.xml.bind.Entries;
+import jpass.xml.bind.Entry;
+
+/**
+ * Entries with a hash index of the entry titles. Every change of the entry
+ * list is applied to the index, so entries can be looked up by title without
+ * scanning the list. The title of an entry must not be changed while the
+ * entry is in the list.
+ * <p>
+ * The list accepts duplicate titles, so documents with duplicates can still be
+ * loaded; the first entry of a title is found by the lookup, like on a linear
+ * search.
+ * </p>
+ * <p>
+ * The titles are indexed for substring search as well.
+ * </p>
+ * <p>
+ * The position of each entry is kept in an identity map, so an entry can be
+ * found without scanning the list. Appending, removing the last entry and
+ * replacing an entry keep the positions up to date; other changes shift the
+ * positions, so the map is rebuilt on the next lookup.
+ * </p>
+ */
+final class IndexedEntries extends Entries {
+
+    /**
+     * First entry of each title.
+     */
+    private final Map<String, Entry> entriesByTitle = new HashMap<>();
+
+    /**
+     * Number of entries of each case-insensitive title.
+     */
+    private final Map<String, Integer> titleCounts = new HashMap<>();
+
+    private final EntrySearchIndex searchIndex = new EntrySearchIndex();
+
+    /**
+     * First position of each entry, valid only if {@link #positionsValid} is
+     * set.
+     */
+    private final Map<Entry, Integer> positions = new IdentityHashMap<>();
+    private boolean positionsValid = true;
+
+    /**
+     * Whether an entry may be in the list more than once.
+     */
+    private boolean hasDuplicates = false;
+
+    IndexedEntries() {
+        this.entry = new IndexedList();
+    }
+
+    /**
+     * Gets the first entry with the given title.
+     *
+     * @param title the title
+     * @return the entry, or {@code null} if there is no such entry
+     */
+    Entry getEntryByTitle(String title) {
+        return this.entriesByTitle.get(title);
+    }
+
+    /**
+     * Checks whether an entry has the given title, ignoring case.
+     *
+     * @param title the title
+     * @return {@code true} if there is such an entry
+     */
+    boolean containsTitle(String title) {
+        return this.titleCounts.containsKey(foldCase(title));
+    }
+
+    /**
+     * Gets the position of the entry, comparing by identity.
+     *
+     * @param entry the entry
+     * @return the position of the first occurrence, or -1 if the entry is
+     * not in the list
+     */
+    int indexOf(Entry entry) {
+        if (!this.positionsValid) {
+            rebuildPositions();
+        }
+        Integer position = this.positions.get(entry);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * Gets the substring search index of the entry titles.
+     *
+     * @return the search index
+     */
+    EntrySearchIndex getSearchIndex() {
+        return this.searchIndex;
+    }
+
+    private void index(Entry entry) {
+        this.searchIndex.add(entry);
+        this.entriesByTitle.putIfAbsent(entry.getTitle(), entry);
+        this.titleCounts.merge(foldCase(entry.getTitle()), 1, Integer::sum);
+    }
+
+    private void unindex(Entry entry) {
+        this.searchIndex.remove(entry);
+        String title = entry.getTitle();
+        String foldedTitle = foldCase(title);
+        int count = this.titleCounts.get(foldedTitle);
+        if (count == 1) {
+            this.titleCounts.remove(foldedTitle);
+        } else {
+            this.titleCounts.put(foldedTitle, count - 1);
+        }
+        if (this.entriesByTitle.get(title) == entry) {
+            this.entriesByTitle.remove(title);
+            if (count > 1) {
+                // another entry may have the same title
+                this.entry.stream()
+                        .filter(other -> other != entry && equals(title, other.getTitle()))
+                        .findFirst()
+                        .ifPresent(other -> this.entriesByTitle.put(title, other));
+            }
+        }
+    }
+
+    private void addPosition(Entry entry, int index) {
+        Integer existing = this.positions.putIfAbsent(entry, index);
+        if (existing != null) {
+            this.hasDuplicates = true;
+            if (existing > index) {
+                this.positions.put(entry, index);
+            }
+        }
+    }
+
+    private void invalidatePositions() {
+        this.positions.clear();
+        this.positionsValid = false;
+    }
+
+    private void rebuildPositions() {
+        this.positions.clear();
+        this.hasDuplicates = false;
+        for (int i = 0; i < this.entry.size(); i++) {
+            addPosition(this.entry.get(i), i);
+        }
+        this.positionsValid = true;
+    }
+
+    private static boolean equals(String title, String otherTitle) {
+        return title == null ? otherTitle == null : title.equals(otherTitle);
+    }
+
+    /**
+     * Folds the case of the title in the same way as
+     * {@link String#equalsIgnoreCase(String)} compares characters.
+     */
+    private static String foldCase(String title) {
+        if (title == null) {
+            return null;
+        }
+        char[] chars = title.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Entry list which applies every change to the index.
+     */
+    private final class IndexedList extends AbstractList<Entry> implements RandomAccess {
+
+        private final ArrayList<Entry> entries = new ArrayList<>();
+
+        @Override
+        public Entry get(int index) {
+            return this.entries.get(index);
+        }
+
+        @Override
+        public int size() {
+            return this.entries.size();
+        }
+
+        @Override
+        public Entry set(int index, Entry element) {
+            Entry previous = this.entries.set(index, element);
+            unindex(previous);
+            index(element);
+            if (positionsValid && !hasDuplicates) {
+                positions.remove(previous);
+                addPosition(element, index);
+            } else {
+                // the entry may be in the list again
+                invalidatePositions();
+            }
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Entry element) {
+            this.entries.add(index, element);
+            index(element);
+            if (positionsValid && index == this.entries.size() - 1) {
+                addPosition(element, index);
+            } else {
+                invalidatePositions();
+            }
+            this.modCount++;
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends Entry> collection) {
+            this.entries.ensureCapacity(this.entries.size() + collection.size());
+            return super.addAll(collection);
+        }
+
+        @Override
+        public Entry remove(int index) {
+            Entry previous = this.entries.remove(index);
+            unindex(previous);
+            if (positionsValid && index == this.entries.size()) {
+                positions.remove(previous, index);
+            } else {
+                invalidatePositions();
+            }
+            this.modCount++;
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            this.entries.clear();
+            entriesByTitle.clear();
+            titleCounts.clear();
+            searchIndex.clear();
+            positions.clear();
+            positionsValid = true;
+            hasDuplicates = false;
+            this.modCount++;
+        }
+    }
+
+}
@@ -0,0 +1,712 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import jpass.crypt.Cbc;
+import jpass.crypt.DecryptException;
+import jpass.io.JPassStream.FileVersionType;
+import jpass.io.JPassStream.PayloadFormat;
+import jpass.io.codec.Codec;
+import jpass.util.CryptUtils;
+import jpass.xml.bind.Entry;
+
+import static jpass.io.JPassStream.FILE_FORMAT_IDENTIFIER;
+
+/**
+ * Container of the entries of {@link PayloadFormat#CHUNKED} files.
+ * <p>
+ * The entries are split into chunks of about 64 KiB of binary entry records
+ * (see {@link EntryRecordWriter}). Chunk boundaries are derived from the
+ * content of the entries, so inserting, removing or changing an entry only
+ * changes the chunk it belongs to. Every chunk is compressed with the codec
+ * of the file and encrypted in CBC mode with its own random initial values.
+ * </p>
+ * <p>
+ * The file starts with the file header (identifier, version, codec and salt),
+ * followed by the 8 byte position of the chunk index. The index holds the
+ * position, length, number of entries, MAC and keyed content digest of every
+ * chunk, and is authenticated with a MAC over the file header and the index.
+ * The MAC of a chunk covers its initial values and encrypted content, so
+ * chunks are verified before they are decrypted. The keys of the encryption,
+ * the MACs and the digests are derived from the file key with HMAC-SHA256.
+ * </p>
+ * <p>
+ * On update, chunks with unchanged content are left where they are. New
+ * chunks and the new index are appended to the file and forced to the storage
+ * device before the index position in the header is replaced, so the header
+ * always refers to a complete index. The replaced index is overwritten with
+ * zeros afterwards. A file is only updated if entries were appended to it:
+ * every chunk must still be used, except the last one, which is replaced if
+ * its entries are followed by the appended ones. Its range is overwritten
+ * with zeros as well. A chunk of changed or removed entries must not stay
+ * readable with the current key, so such files, and files with more unused
+ * than used space, have to be written again.
+ * </p>
+ * <p>
+ * Chunks are read on demand with {@link #readChunk(int)}, or all at once and
+ * in parallel with {@link #read(Consumer)}.
+ * </p>
+ */
+public final class ChunkedContainer {
+
+    /**
+     * Minimum size of the entry records of a chunk before a content defined
+     * boundary is accepted.
+     */
+    private static final int MIN_CHUNK_SIZE = 48 * 1024;
+
+    /**
+     * Size of the entry records after which a chunk is always closed.
+     */
+    private static final int MAX_CHUNK_SIZE = 128 * 1024;
+
+    /**
+     * A chunk boundary is placed after entries whose hash has none of these
+     * bits set.
+     */
+    private static final int BOUNDARY_MASK = 0x0f;
+
+    private static final int IV_LENGTH = 16;
+    private static final int BLOCK_SIZE = 16;
+    private static final int MAC_LENGTH = 32;
+    private static final int INDEX_ENTRY_LENGTH = 8 + 4 + 4 + MAC_LENGTH + MAC_LENGTH;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    /**
+     * Number of chunks processed in parallel at once, limits the memory used
+     * for encrypted chunks.
+     */
+    private static final int BATCH_SIZE = 4 * ForkJoinPool.getCommonPoolParallelism();
+
+    private static final Random RANDOM = CryptUtils.newRandomNumberGenerator();
+
+    private final FileChannel channel;
+    private final KeyMaterial keyMaterial;
+    private final Codec codec;
+    private final Keys keys;
+    private final byte[] header;
+    private final List<Chunk> chunks;
+
+    private ChunkedContainer(FileChannel channel, KeyMaterial keyMaterial, Codec codec, Keys keys, byte[] header,
+            List<Chunk> chunks) {
+        this.channel = channel;
+        this.keyMaterial = keyMaterial;
+        this.codec = codec;
+        this.keys = keys;
+        this.header = header;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Checks whether the given file is a chunked file.
+     *
+     * @param channel the file
+     * @return {@code true} if the file header belongs to a chunked file
+     * version
+     * @throws IOException if the file could not be read
+     */
+    public static boolean isChunked(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(FILE_FORMAT_IDENTIFIER.length + 1);
+        if (channel.read(buffer, 0) < buffer.capacity()) {
+            return false;
+        }
+        byte[] identifier = Arrays.copyOf(buffer.array(), FILE_FORMAT_IDENTIFIER.length);
+        FileVersionType fileVersionType = JPassStream.SUPPORTED_FILE_VERSIONS.get(buffer.get(identifier.length) & 0xff);
+        return Arrays.equals(FILE_FORMAT_IDENTIFIER, identifier)
+                && fileVersionType != null && fileVersionType.getPayloadFormat() == PayloadFormat.CHUNKED;
+    }
+
+    /**
+     * Opens a chunked file and reads its chunk index. The chunks are not read.
+     *
+     * @param channel the file, must stay open while chunks are read
+     * @param password the password
+     * @param cached previously derived key material (can be null)
+     * @return the container
+     * @throws IOException if the file is not a valid chunked file, or the
+     * index could not be authenticated with the password
+     */
+    public static ChunkedContainer open(FileChannel channel, char[] password, KeyMaterial cached) throws IOException {
+        JPassBuffer header = readHeader(channel);
+        KeyMaterial keyMaterial = header.getKeyMaterial(password, cached);
+        ChunkedContainer container = open(channel, header, keyMaterial);
+        if (container == null) {
+            throw new IOException("can't decrypt");
+        }
+        return container;
+    }
+
+    /**
+     * Writes the entries into an empty file. The file is forced to the storage
+     * device.
+     *
+     * @param channel the file
+     * @param keyMaterial key material of a chunked file version
+     * @param codec the compression codec
+     * @param entries the entries
+     * @return number of bytes written
+     * @throws IOException if the file could not be written
+     */
+    public static long write(FileChannel channel, KeyMaterial keyMaterial, Codec codec, List<Entry> entries)
+            throws IOException {
+        FileVersionType fileVersionType = keyMaterial.getFileVersionType();
+        if (fileVersionType.getPayloadFormat() != PayloadFormat.CHUNKED) {
+            throw new IllegalArgumentException("File version " + fileVersionType.getVersion() + " is not chunked");
+        }
+        ByteArrayOutputStream headerStream = new ByteArrayOutputStream();
+        new JPassOutputStream(headerStream, keyMaterial, codec).close();
+        byte[] header = headerStream.toByteArray();
+
+        ChunkedContainer container = new ChunkedContainer(channel, keyMaterial, codec, new Keys(keyMaterial.getKey()),
+                header, new ArrayList<>());
+        List<byte[]> plainChunks = serialize(split(entries));
+        List<Chunk> chunks = container.appendChunks(plainChunks, digest(container.keys, plainChunks),
+                new Chunk[plainChunks.size()], header.length + 8L);
+        long indexOffset = container.writeIndex(chunks);
+        container.writeFully(0, header);
+        container.writeIndexOffset(indexOffset);
+        channel.force(true);
+        return indexOffset + indexLength(chunks.size());
+    }
+
+    /**
+     * Updates a chunked file with the entries. Only the new chunks, and the
+     * last chunk if entries were appended to it, are written. The file is left
+     * unchanged if it can not be updated, because it is not a chunked file, it
+     * was written with other key material or codec, an entry of an existing
+     * chunk was changed or removed, or it would consist of more unused than
+     * used space.
+     *
+     * @param channel the file, opened for reading and writing
+     * @param keyMaterial key material of the file
+     * @param codec the compression codec
+     * @param entries the entries
+     * @return number of bytes written, or {@code -1} if the file can not be
+     * updated
+     * @throws IOException if the file could not be read or written
+     */
+    public static long update(FileChannel channel, KeyMaterial keyMaterial, Codec codec, List<Entry> entries)
+            throws IOException {
+        if (!isChunked(channel)) {
+            return -1;
+        }
+        JPassBuffer header = readHeader(channel);
+        if (header.getFileVersionType() != keyMaterial.getFileVersionType() || header.getCodec() != codec
+                || !Arrays.equals(header.getSalt(), keyMaterial.getSalt())) {
+            return -1;
+        }
+        ChunkedContainer container = open(channel, header, keyMaterial);
+        if (container == null) {
+            return -1;
+        }
+        return container.update(entries);
+    }
+
+    public KeyMaterial getKeyMaterial() {
+        return keyMaterial;
+    }
+
+    public Codec getCodec() {
+        return codec;
+    }
+
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * Gets the number of entries without reading the chunks.
+     *
+     * @return the number of entries
+     */
+    public int getEntryCount() {
+        return chunks.stream().mapToInt(chunk -> chunk.entryCount).sum();
+    }
+
+    /**
+     * Reads, authenticates and decrypts a chunk.
+     *
+     * @param index index of the chunk
+     * @return the entries of the chunk
+     * @throws IOException if the chunk could not be read, authenticated or
+     * decrypted
+     */
+    public List<Entry> readChunk(int index) throws IOException {
+        Chunk chunk = chunks.get(index);
+        byte[] data = readFully(chunk.offset, chunk.length);
+        if (!MessageDigest.isEqual(chunk.mac, mac(keys.mac, data))) {
+            throw new IOException("Chunk authentication failed");
+        }
+        if (data.length < IV_LENGTH + BLOCK_SIZE || (data.length - IV_LENGTH) % BLOCK_SIZE != 0) {
+            throw new IOException("Invalid chunk length");
+        }
+        Cbc cipher = new Cbc(Arrays.copyOf(data, IV_LENGTH), keys.encryption);
+        byte[] compressed = new byte[data.length - IV_LENGTH];
+        int length;
+        try {
+            length = cipher.decrypt(data, IV_LENGTH, compressed.length, compressed, 0);
+            length += cipher.finishDecryption(compressed, length);
+        } catch (DecryptException e) {
+            throw new IOException("can't decrypt");
+        }
+        List<Entry> entries = new ArrayList<>(chunk.entryCount);
+        try (InputStream inputStream = codec.decompress(new ByteArrayInputStream(compressed, 0, length))) {
+            new EntryRecordReader().read(inputStream, entries::add);
+        }
+        if (entries.size() != chunk.entryCount) {
+            throw new IOException("Invalid number of entries in chunk");
+        }
+        return entries;
+    }
+
+    /**
+     * Reads all chunks, several chunks in parallel, and passes the entries to
+     * the given consumer in document order.
+     *
+     * @param consumer consumer of the entries
+     * @return number of entries read
+     * @throws IOException if a chunk could not be read, authenticated or
+     * decrypted
+     */
+    public int read(Consumer<Entry> consumer) throws IOException {
+        int count = 0;
+        for (int from = 0; from < chunks.size(); from += BATCH_SIZE) {
+            List<List<Entry>> batch = parallel(from, Math.min(from + BATCH_SIZE, chunks.size()), this::readChunk);
+            for (List<Entry> entries : batch) {
+                entries.forEach(consumer);
+                count += entries.size();
+            }
+        }
+        return count;
+    }
+
+    private long update(List<Entry> entries) throws IOException {
+        List<byte[]> plainChunks = serialize(split(entries));
+        List<byte[]> digests = digest(keys, plainChunks);
+
+        Map<ByteBuffer, Chunk> existing = new HashMap<>();
+        for (Chunk chunk : chunks) {
+            existing.put(ByteBuffer.wrap(chunk.digest), chunk);
+        }
+        Set<Chunk> dropped = Collections.newSetFromMap(new IdentityHashMap<>());
+        dropped.addAll(chunks);
+        Chunk[] reused = new Chunk[plainChunks.size()];
+        long usedSpace = header.length + 8L;
+        long changedSize = 0;
+        for (int i = 0; i < reused.length; i++) {
+            reused[i] = existing.get(ByteBuffer.wrap(digests.get(i)));
+            if (reused[i] != null) {
+                dropped.remove(reused[i]);
+                usedSpace += reused[i].length;
+            } else {
+                changedSize += plainChunks.get(i).length;
+            }
+        }
+        if (changedSize == 0 && Arrays.asList(reused).equals(chunks)) {
+            return 0;
+        }
+        long fileSize = channel.size();
+        Chunk replacedChunk = dropped.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (dropped.size() > 1 || (replacedChunk != null && !(dropped.contains(replacedChunk)
+                && isFollowedByAppendedEntries(replacedChunk, entries)))
+                || fileSize - usedSpace > usedSpace + changedSize) {
+            return -1;
+        }
+
+        long replacedIndexOffset = readIndexOffset();
+        List<Chunk> updated = appendChunks(plainChunks, digests, reused, fileSize);
+        long indexOffset = writeIndex(updated);
+        channel.force(true);
+        writeIndexOffset(indexOffset);
+        channel.force(true);
+        writeFully(replacedIndexOffset, new byte[indexLength(chunks.size())]);
+        if (replacedChunk != null) {
+            writeFully(replacedChunk.offset, new byte[replacedChunk.length]);
+        }
+        channel.force(true);
+        return indexOffset + indexLength(updated.size()) - fileSize + 8;
+    }
+
+    /**
+     * Checks whether the entries of the last chunk are unchanged and followed
+     * by appended entries, so the chunk only has to be replaced because its
+     * end is not a chunk boundary any more.
+     *
+     * @param lastChunk the last chunk of the file
+     * @param entries the entries
+     * @return {@code true} if the entries of the chunk are unchanged
+     */
+    private boolean isFollowedByAppendedEntries(Chunk lastChunk, List<Entry> entries) throws IOException {
+        int from = getEntryCount() - lastChunk.entryCount;
+        if (from + lastChunk.entryCount >= entries.size()) {
+            return false;
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new EntryRecordWriter().write(entries.subList(from, from + lastChunk.entryCount), outputStream);
+        return MessageDigest.isEqual(lastChunk.digest, mac(keys.digest, outputStream.toByteArray()));
+    }
+
+    /**
+     * Encrypts and writes the chunks which have no reusable chunk, several
+     * chunks in parallel.
+     *
+     * @param plainChunks the serialized entries of the chunks
+     * @param digests the content digests of the chunks
+     * @param reused existing chunks with the same content, or {@code null}
+     * @param position position of the first written chunk
+     * @return the chunks of the index
+     * @throws IOException if the chunks could not be written
+     */
+    private List<Chunk> appendChunks(List<byte[]> plainChunks, List<byte[]> digests, Chunk[] reused, long position)
+            throws IOException {
+        int[] changed = IntStream.range(0, reused.length).filter(i -> reused[i] == null).toArray();
+        Chunk[] result = reused.clone();
+        long offset = position;
+        for (int from = 0; from < changed.length; from += BATCH_SIZE) {
+            List<byte[]> batch = parallel(from, Math.min(from + BATCH_SIZE, changed.length),
+                    i -> encrypt(plainChunks.get(changed[i])));
+            for (int i = 0; i < batch.size(); i++) {
+                int index = changed[from + i];
+                byte[] data = batch.get(i);
+                writeFully(offset, data);
+                result[index] = new Chunk(offset, data.length, entryCount(plainChunks.get(index)), mac(keys.mac, data),
+                        digests.get(index));
+                offset += data.length;
+            }
+        }
+        return Arrays.asList(result);
+    }
+
+    private byte[] encrypt(byte[] plainChunk) throws IOException {
+        ByteArrayOutputStream compressedStream = new ByteArrayOutputStream(plainChunk.length / 2 + 64);
+        try (OutputStream outputStream = codec.compress(compressedStream)) {
+            outputStream.write(plainChunk);
+        }
+        byte[] compressed = compressedStream.toByteArray();
+        byte[] iv = new byte[IV_LENGTH];
+        RANDOM.nextBytes(iv);
+        byte[] data = new byte[IV_LENGTH + (compressed.length / BLOCK_SIZE + 1) * BLOCK_SIZE];
+        System.arraycopy(iv, 0, data, 0, IV_LENGTH);
+        Cbc cipher = new Cbc(iv, keys.encryption);
+        int length = cipher.encrypt(compressed, 0, compressed.length, data, IV_LENGTH);
+        cipher.finishEncryption(data, IV_LENGTH + length);
+        return data;
+    }
+
+    /**
+     * Writes the index after the last byte of the file.
+     *
+     * @param indexChunks the chunks of the index
+     * @return position of the index
+     * @throws IOException if the index could not be written
+     */
+    private long writeIndex(List<Chunk> indexChunks) throws IOException {
+        long indexOffset = Math.max(channel.size(), header.length + 8L);
+        ByteBuffer index = ByteBuffer.allocate(indexLength(indexChunks.size()));
+        index.putInt(indexChunks.size());
+        for (Chunk chunk : indexChunks) {
+            index.putLong(chunk.offset).putInt(chunk.length).putInt(chunk.entryCount).put(chunk.mac).put(chunk.digest);
+        }
+        index.put(indexMac(keys, header, indexOffset, index.array(), index.position()));
+        writeFully(indexOffset, index.array());
+        return indexOffset;
+    }
+
+    private long readIndexOffset() throws IOException {
+        return ByteBuffer.wrap(readFully(header.length, 8)).getLong();
+    }
+
+    private void writeIndexOffset(long indexOffset) throws IOException {
+        writeFully(header.length, ByteBuffer.allocate(8).putLong(indexOffset).array());
+    }
+
+    /**
+     * Reads and authenticates the index of the file.
+     *
+     * @return the container, or {@code null} if the index could not be
+     * authenticated with the key material
+     */
+    private static ChunkedContainer open(FileChannel channel, JPassBuffer header, KeyMaterial keyMaterial)
+            throws IOException {
+        FileVersionType fileVersionType = header.getFileVersionType();
+        if (fileVersionType.getPayloadFormat() != PayloadFormat.CHUNKED) {
+            throw new IOException("Invalid file format");
+        }
+        int headerLength = FILE_FORMAT_IDENTIFIER.length + 2 + fileVersionType.getSaltLength();
+        ChunkedContainer container = new ChunkedContainer(channel, keyMaterial, header.getCodec(),
+                new Keys(keyMaterial.getKey()), Arrays.copyOf(toArray(header), headerLength), new ArrayList<>());
+
+        long fileSize = channel.size();
+        long indexOffset = container.readIndexOffset();
+        if (indexOffset < headerLength + 8L || indexOffset > fileSize - indexLength(0)) {
+            throw new IOException("Invalid file format");
+        }
+        int chunkCount = ByteBuffer.wrap(container.readFully(indexOffset, 4)).getInt();
+        if (chunkCount < 0 || chunkCount > (fileSize - indexOffset - indexLength(0)) / INDEX_ENTRY_LENGTH) {
+            throw new IOException("Invalid file format");
+        }
+        byte[] index = container.readFully(indexOffset, indexLength(chunkCount));
+        byte[] mac = indexMac(container.keys, container.header, indexOffset, index, index.length - MAC_LENGTH);
+        if (!MessageDigest.isEqual(mac, Arrays.copyOfRange(index, index.length - MAC_LENGTH, index.length))) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(index, 4, index.length - 4 - MAC_LENGTH);
+        for (int i = 0; i < chunkCount; i++) {
+            long offset = buffer.getLong();
+            int length = buffer.getInt();
+            int entryCount = buffer.getInt();
+            byte[] chunkMac = new byte[MAC_LENGTH];
+            byte[] digest = new byte[MAC_LENGTH];
+            buffer.get(chunkMac).get(digest);
+            if (offset < headerLength + 8L || length < 0 || offset > indexOffset - length) {
+                throw new IOException("Invalid file format");
+            }
+            container.chunks.add(new Chunk(offset, length, entryCount, chunkMac, digest));
+        }
+        return container;
+    }
+
+    private static JPassBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(FILE_FORMAT_IDENTIFIER.length + 2 + IV_LENGTH + 8);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // read as much of the header as available
+        }
+        ((Buffer) buffer).flip();
+        return new JPassBuffer(buffer);
+    }
+
+    private static byte[] toArray(JPassBuffer header) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        outputStream.write(FILE_FORMAT_IDENTIFIER, 0, FILE_FORMAT_IDENTIFIER.length);
+        outputStream.write(header.getFileVersionType().getVersion());
+        outputStream.write(header.getCodec().getId());
+        outputStream.write(header.getSalt(), 0, header.getSalt().length);
+        return outputStream.toByteArray();
+    }
+
+    private static int indexLength(int chunkCount) {
+        return 4 + chunkCount * INDEX_ENTRY_LENGTH + MAC_LENGTH;
+    }
+
+    private static byte[] indexMac(Keys keys, byte[] header, long indexOffset, byte[] index, int length) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(keys.mac, MAC_ALGORITHM));
+            mac.update(header);
+            mac.update(ByteBuffer.allocate(8).putLong(indexOffset).array());
+            mac.update(index, 0, length);
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] mac(byte[] key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(key, MAC_ALGORITHM));
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Splits the entries into chunks. A chunk is closed after an entry whose
+     * hash matches {@link #BOUNDARY_MASK} once it holds at least
+     * {@link #MIN_CHUNK_SIZE}, or in any case at {@link #MAX_CHUNK_SIZE}.
+     */
+    static List<List<Entry>> split(List<Entry> entries) {
+        List<List<Entry>> result = new ArrayList<>();
+        int start = 0;
+        long size = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            size += estimateSize(entry);
+            if ((size >= MIN_CHUNK_SIZE && (boundaryHash(entry) & BOUNDARY_MASK) == 0) || size >= MAX_CHUNK_SIZE) {
+                result.add(entries.subList(start, i + 1));
+                start = i + 1;
+                size = 0;
+            }
+        }
+        if (start < entries.size()) {
+            result.add(entries.subList(start, entries.size()));
+        }
+        return result;
+    }
+
+    private static long estimateSize(Entry entry) {
+        return EntryRecordWriter.FIELD_COUNT + 1L + length(entry.getTitle()) + length(entry.getUrl())
+                + length(entry.getUser()) + length(entry.getPassword()) + length(entry.getNotes())
+                + length(entry.getCreationDate()) + length(entry.getLastModification());
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static int boundaryHash(Entry entry) {
+        int hash = Objects.hash(entry.getTitle(), entry.getUrl(), entry.getUser(), entry.getPassword(),
+                entry.getNotes(), entry.getCreationDate(), entry.getLastModification());
+        // spread the bits of the hash code
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+
+    private static List<byte[]> serialize(List<List<Entry>> entryChunks) throws IOException {
+        return parallel(0, entryChunks.size(), i -> {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            new EntryRecordWriter().write(entryChunks.get(i), outputStream);
+            return outputStream.toByteArray();
+        });
+    }
+
+    private static List<byte[]> digest(Keys keys, List<byte[]> plainChunks) throws IOException {
+        return parallel(0, plainChunks.size(), i -> mac(keys.digest, plainChunks.get(i)));
+    }
+
+    private static int entryCount(byte[] plainChunk) throws IOException {
+        // the serialized entries start with the number of entries
+        int value = 0;
+        for (int i = 0, shift = 0; i < 5 && i < plainChunk.length; i++, shift += 7) {
+            value |= (plainChunk[i] & 0x7f) << shift;
+            if ((plainChunk[i] & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid entry records");
+    }
+
+    private byte[] readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of file");
+            }
+        }
+        return buffer.array();
+    }
+
+    private void writeFully(long position, byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    /**
+     * Maps the indices in the given range in parallel.
+     */
+    private static <T> List<T> parallel(int from, int to, IndexFunction<T> function) throws IOException {
+        try {
+            return IntStream.range(from, to).parallel().mapToObj(i -> {
+                try {
+                    return function.apply(i);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexFunction<T> {
+
+        T apply(int index) throws IOException;
+    }
+
+    /**
+     * Keys derived from the file key.
+     */
+    private static final class Keys {
+
+        private final byte[] encryption;
+        private final byte[] mac;
+        private final byte[] digest;
+
+        Keys(byte[] key) {
+            this.encryption = ChunkedContainer.mac(key, "jpass chunk encryption".getBytes(StandardCharsets.UTF_8));
+            this.mac = ChunkedContainer.mac(key, "jpass chunk authentication".getBytes(StandardCharsets.UTF_8));
+            this.digest = ChunkedContainer.mac(key, "jpass chunk digest".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Entry of the chunk index.
+     */
+    private static final class Chunk {
+
+        private final long offset;
+        private final int length;
+        private final int entryCount;
+        private final byte[] mac;
+        private final byte[] digest;
+
+        Chunk(long offset, int length, int entryCount, byte[] mac, byte[] digest) {
+            this.offset = offset;
+            this.length = length;
+            this.entryCount = entryCount;
+            this.mac = mac;
+            this.digest = digest;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import jpass.xml.bind.Entry;
+
+/**
+ * Reader of the binary entry record format written by
+ * {@link EntryRecordWriter}. Records are decoded without a tokenizer and
+ * passed to a consumer one by one.
+ *
+ * <p>
+ * Passwords and notes are not decoded. Their UTF-8 bytes are collected in a
+ * buffer, which the entries keep as encoded values once it holds
+ * {@link #SECRETS_BUFFER_SIZE} bytes or the document ends (see
+ * {@link Entry#setEncodedSecrets(byte[], int, int, int, int)}). The entries
+ * of a buffer are passed to the consumer when it is complete.
+ *
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class EntryRecordReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Size of the encoded passwords and notes after which they are copied into
+     * a buffer shared by their entries.
+     */
+    private static final int SECRETS_BUFFER_SIZE = 64 * 1024;
+
+    private static final int PASSWORD_FIELD = 3;
+    private static final int NOTES_FIELD = 4;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferUsed;
+    private int bufferLength;
+    private InputStream input;
+
+    private byte[] secrets = new byte[SECRETS_BUFFER_SIZE];
+    private int secretsUsed;
+    private final List<Entry> pendingEntries = new ArrayList<>();
+    private int[] pendingRanges = new int[64];
+
+    /**
+     * Reads the entries from the given input stream.
+     *
+     * @param inputStream the input stream
+     * @param consumer consumer of the entries, called in document order
+     * @return number of entries read
+     * @throws IOException if any error occurred, or the data is not a valid
+     * entry record document
+     */
+    public int read(InputStream inputStream, Consumer<Entry> consumer) throws IOException {
+        this.input = inputStream;
+        this.bufferUsed = 0;
+        this.bufferLength = 0;
+        this.secretsUsed = 0;
+        this.pendingEntries.clear();
+        try {
+            int count = readNumber();
+            for (int i = 0; i < count; i++) {
+                readEntry();
+                if (secretsUsed >= SECRETS_BUFFER_SIZE) {
+                    passPendingEntries(consumer);
+                }
+            }
+            passPendingEntries(consumer);
+            return count;
+        } finally {
+            this.input = null;
+            this.pendingEntries.clear();
+        }
+    }
+
+    private void readEntry() throws IOException {
+        int fieldCount = readNumber();
+        String[] fields = new String[EntryRecordWriter.FIELD_COUNT];
+        int range = pendingEntries.size() * 4;
+        if (range + 4 > pendingRanges.length) {
+            pendingRanges = Arrays.copyOf(pendingRanges, pendingRanges.length * 2);
+        }
+        pendingRanges[range + 1] = -1;
+        pendingRanges[range + 3] = -1;
+        for (int i = 0; i < fieldCount; i++) {
+            if (i == PASSWORD_FIELD || i == NOTES_FIELD) {
+                int index = range + (i == PASSWORD_FIELD ? 0 : 2);
+                pendingRanges[index] = secretsUsed;
+                pendingRanges[index + 1] = readEncodedField();
+            } else {
+                String value = readField();
+                if (i < fields.length) {
+                    fields[i] = value;
+                }
+            }
+        }
+        Entry entry = new Entry(fields[5], fields[6]);
+        entry.setTitle(fields[0]);
+        entry.setUrl(fields[1]);
+        entry.setUser(fields[2]);
+        pendingEntries.add(entry);
+    }
+
+    /**
+     * Copies the collected passwords and notes into a buffer of their size,
+     * which the pending entries share, and passes the entries to the consumer.
+     */
+    private void passPendingEntries(Consumer<Entry> consumer) {
+        byte[] encodedSecrets = Arrays.copyOf(secrets, secretsUsed);
+        for (int i = 0; i < pendingEntries.size(); i++) {
+            int range = i * 4;
+            pendingEntries.get(i).setEncodedSecrets(encodedSecrets, pendingRanges[range], pendingRanges[range + 1],
+                    pendingRanges[range + 2], pendingRanges[range + 3]);
+        }
+        pendingEntries.forEach(consumer);
+        pendingEntries.clear();
+        secretsUsed = 0;
+        if (secrets.length > SECRETS_BUFFER_SIZE * 2) {
+            // do not keep the buffer of an exceptionally large field
+            secrets = new byte[SECRETS_BUFFER_SIZE];
+        }
+    }
+
+    /**
+     * Copies the bytes of a field into the buffer of the passwords and notes.
+     *
+     * @return the length of the field, -1 for {@code null} values
+     */
+    private int readEncodedField() throws IOException {
+        int length = readNumber() - 1;
+        if (length < 0) {
+            return -1;
+        }
+        if (length > secrets.length - secretsUsed) {
+            secrets = Arrays.copyOf(secrets, Math.max(secrets.length * 2, secretsUsed + length));
+        }
+        int read = 0;
+        while (read < length) {
+            int cur = Math.min(length - read, buffer.length);
+            ensureAvailable(cur);
+            System.arraycopy(buffer, bufferUsed, secrets, secretsUsed + read, cur);
+            bufferUsed += cur;
+            read += cur;
+        }
+        secretsUsed += length;
+        return length;
+    }
+
+    private String readField() throws IOException {
+        int length = readNumber() - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length <= buffer.length) {
+            ensureAvailable(length);
+            String value = new String(buffer, bufferUsed, length, StandardCharsets.UTF_8);
+            bufferUsed += length;
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        int read = Math.min(length, bufferLength - bufferUsed);
+        System.arraycopy(buffer, bufferUsed, bytes, 0, read);
+        bufferUsed += read;
+        while (read < length) {
+            int cur = input.read(bytes, read, length - read);
+            if (cur < 0) {
+                throw new IOException("Unexpected end of entry records");
+            }
+            read += cur;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readNumber() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            ensureAvailable(1);
+            int b = buffer[bufferUsed++];
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("Invalid entry record number");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Invalid entry record number");
+    }
+
+    /**
+     * Ensures that the given number of bytes are available in the buffer.
+     *
+     * @param length number of bytes, not more than the buffer size
+     * @throws IOException if the stream ends before
+     */
+    private void ensureAvailable(int length) throws IOException {
+        if (bufferLength - bufferUsed >= length) {
+            return;
+        }
+        bufferLength -= bufferUsed;
+        System.arraycopy(buffer, bufferUsed, buffer, 0, bufferLength);
+        bufferUsed = 0;
+        while (bufferLength < length) {
+            int cur = input.read(buffer, bufferLength, buffer.length - bufferLength);
+            if (cur < 0) {
+                throw new IOException("Unexpected end of entry records");
+            }
+            bufferLength += cur;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import jpass.xml.bind.Entry;
+
+/**
+ * Writer of the binary entry record format of {@link JPassStream.PayloadFormat#BINARY}.
+ *
+ * <p>
+ * The document starts with the number of entries, followed by the entry
+ * records. A record starts with the number of its fields, followed by the
+ * fields in the order of title, url, user, password, notes, creation date and
+ * last modification. A field is the length of its UTF-8 bytes plus one (zero
+ * for {@code null} values), followed by the UTF-8 bytes. All numbers are
+ * unsigned variable-length integers with 7 bits per byte, least significant
+ * group first. Readers skip fields they do not know, so new fields can be
+ * appended to records.
+ *
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class EntryRecordWriter {
+
+    /**
+     * Number of fields written for an entry.
+     */
+    static final int FIELD_COUNT = 7;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferUsed;
+    private OutputStream output;
+
+    /**
+     * Writes the entries to the given output stream. The output stream is not
+     * closed.
+     *
+     * @param entries the entries
+     * @param outputStream the output stream
+     * @throws IOException if any error occurred
+     */
+    public void write(Collection<Entry> entries, OutputStream outputStream) throws IOException {
+        this.output = outputStream;
+        this.bufferUsed = 0;
+        try {
+            writeNumber(entries.size());
+            for (Entry entry : entries) {
+                writeNumber(FIELD_COUNT);
+                writeField(entry.getTitle());
+                writeField(entry.getUrl());
+                writeField(entry.getUser());
+                writeField(entry.getPassword());
+                writeField(entry.getNotes());
+                writeField(entry.getCreationDate());
+                writeField(entry.getLastModification());
+            }
+            flushBuffer();
+        } finally {
+            this.output = null;
+        }
+    }
+
+    private void writeField(String value) throws IOException {
+        if (value == null) {
+            writeNumber(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeNumber(bytes.length + 1);
+        if (bytes.length > buffer.length - bufferUsed) {
+            flushBuffer();
+            if (bytes.length > buffer.length) {
+                output.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, bufferUsed, bytes.length);
+        bufferUsed += bytes.length;
+    }
+
+    private void writeNumber(int value) throws IOException {
+        if (buffer.length - bufferUsed < 5) {
+            flushBuffer();
+        }
+        while ((value & ~0x7f) != 0) {
+            buffer[bufferUsed++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        buffer[bufferUsed++] = (byte) value;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (bufferUsed > 0) {
+            output.write(buffer, 0, bufferUsed);
+            bufferUsed = 0;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.io;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import jpass.io.JPassStream.FileVersionType;
+import jpass.io.JPassStream.PayloadFormat;
+import jpass.io.codec.Codec;
+import jpass.io.codec.CodecRegistry;
+
+import static jpass.io.JPassStream.FILE_FORMAT_IDENTIFIER;
+import static jpass.io.JPassStream.SUPPORTED_FILE_VERSIONS;
+
+/**
+ * Reads JPass file format from a byte buffer (the whole file, or its
+ * beginning) and provides file version, codec, salt, initial values and
+ * encrypted content for the decryption. The header can be parsed before the
+ * password is known.
+ *
+ * @see JPassInputStream
+ */
+public class JPassBuffer {
+
+    private static final int IV_LENGTH = 16;
+
+    private final FileVersionType fileVersionType;
+    private final Codec codec;
+    private final byte[] salt;
+    private final byte[] iv;
+    private final int headerLength;
+    private final ByteBuffer content;
+
+    /**
+     * Parses the file header from the given buffer. The position of the given
+     * buffer is not changed.
+     *
+     * @param buffer the whole file content, or at least the file header
+     * @throws IOException if the buffer contains no valid file header
+     */
+    public JPassBuffer(ByteBuffer buffer) throws IOException {
+        ByteBuffer source = buffer.duplicate();
+        int start = source.position();
+
+        int fileVersion = 0;
+        if (source.remaining() > FILE_FORMAT_IDENTIFIER.length) {
+            byte[] identifier = new byte[FILE_FORMAT_IDENTIFIER.length];
+            source.get(identifier);
+            if (Arrays.equals(FILE_FORMAT_IDENTIFIER, identifier)) {
+                fileVersion = source.get() & 0xff;
+            } else {
+                // initial version of JPass had no file identifier, we assume version 0
+                ((Buffer) source).position(start);
+            }
+        }
+
+        this.fileVersionType = Objects.requireNonNull(SUPPORTED_FILE_VERSIONS.get(fileVersion),
+                "Unsupported file version: " + fileVersion);
+        this.codec = fileVersionType.isCodecInHeader() ? readCodec(source) : CodecRegistry.DEFLATE;
+        this.salt = readBytes(source, fileVersionType.getSaltLength());
+        // chunked files have initial values for each chunk
+        this.iv = fileVersionType.getPayloadFormat() == PayloadFormat.CHUNKED ? null : readBytes(source, IV_LENGTH);
+        this.headerLength = source.position() - start;
+        this.content = source.slice();
+    }
+
+    public FileVersionType getFileVersionType() {
+        return fileVersionType;
+    }
+
+    /**
+     * Gets the codec the content is compressed with.
+     *
+     * @return the codec
+     */
+    public Codec getCodec() {
+        return codec;
+    }
+
+    public byte[] getSalt() {
+        return salt;
+    }
+
+    /**
+     * Gets the key material for the given password. The cached key material
+     * is reused if it belongs to the same file version and salt.
+     *
+     * @param password the password
+     * @param cached previously derived key material (can be null)
+     * @return the key material
+     */
+    public KeyMaterial getKeyMaterial(char[] password, KeyMaterial cached) {
+        return KeyMaterial.reuseOrDerive(cached, fileVersionType, password, salt);
+    }
+
+    /**
+     * Gets the initial values of the CBC scheme.
+     *
+     * @return the initial values, or {@code null} for chunked files
+     */
+    public byte[] getIv() {
+        return iv;
+    }
+
+    /**
+     * Gets the length of the file header including the initial values, the
+     * position of the encrypted content in the file.
+     *
+     * @return the header length
+     */
+    public int getHeaderLength() {
+        return headerLength;
+    }
+
+    /**
+     * Gets the encrypted content following the file header and initial values.
+     *
+     * @return read-only view of the encrypted content
+     */
+    public ByteBuffer getContent() {
+        return content.asReadOnlyBuffer();
+    }
+
+    private Codec readCodec(ByteBuffer source) throws IOException {
+        if (!source.hasRemaining()) {
+            throw new IOException("Invalid file format");
+        }
+        int codecId = source.get() & 0xff;
+        Codec result = CodecRegistry.getCodec(codecId);
+        if (result == null) {
+            throw new IOException("Unsupported compression codec: " + codecId);
+        }
+        return result;
+    }
+
+    private byte[] readBytes(ByteBuffer source, int length) throws IOException {
+        if (source.remaining() < length) {
+            throw new IOException("Invalid file format");
+        }
+        byte[] result = new byte[length];
+        source.get(result);
+        return result;
+    }
+}
@@ -32,6 +32,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Objects;
+import jpass.io.codec.Codec;
+import jpass.io.codec.CodecRegistry;
 
 /**
  * Input stream to read JPass file format and provide key for the underlying
@@ -42,9 +44,23 @@ import java.util.Objects;
 public class JPassInputStream extends InputStream implements JPassStream {
 
     private final InputStream parent;
-    private final byte[] generatedKey;
+    private final KeyMaterial keyMaterial;
+    private final Codec codec;
 
     public JPassInputStream(InputStream parent, char[] key) throws IOException {
+        this(parent, key, null);
+    }
+
+    /**
+     * Creates an input stream which reuses the given key material if it
+     * belongs to the file version and salt of the file.
+     *
+     * @param parent the parent stream
+     * @param key the password
+     * @param keyMaterial previously derived key material (can be null)
+     * @throws IOException if the file header could not be read
+     */
+    public JPassInputStream(InputStream parent, char[] key, KeyMaterial keyMaterial) throws IOException {
         this.parent = parent;
 
         if (this.parent.markSupported()) {
@@ -62,8 +78,9 @@ public class JPassInputStream extends InputStream implements JPassStream {
         FileVersionType fileVersionType = Objects.requireNonNull(SUPPORTED_FILE_VERSIONS.get(fileVersion),
                 "Unsupported file version: " + fileVersion);
 
+        this.codec = fileVersionType.isCodecInHeader() ? readCodec(parent) : CodecRegistry.DEFLATE;
         byte[] salt = readBytes(parent, fileVersionType.getSaltLength());
-        this.generatedKey = fileVersionType.getKeyGenerator().apply(key, salt);
+        this.keyMaterial = KeyMaterial.reuseOrDerive(keyMaterial, fileVersionType, key, salt);
     }
 
     @Override
@@ -71,6 +88,16 @@ public class JPassInputStream extends InputStream implements JPassStream {
         return parent.read();
     }
 
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return parent.read(b, off, len);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return parent.available();
+    }
+
     @Override
     public void close() throws IOException {
         parent.close();
@@ -78,7 +105,26 @@ public class JPassInputStream extends InputStream implements JPassStream {
 
     @Override
     public byte[] getKey() {
-        return generatedKey;
+        return keyMaterial.getKey();
+    }
+
+    @Override
+    public KeyMaterial getKeyMaterial() {
+        return keyMaterial;
+    }
+
+    @Override
+    public Codec getCodec() {
+        return codec;
+    }
+
+    private Codec readCodec(InputStream stream) throws IOException {
+        int codecId = stream.read();
+        Codec result = CodecRegistry.getCodec(codecId);
+        if (codecId < 0 || result == null) {
+            throw new IOException("Unsupported compression codec: " + codecId);
+        }
+        return result;
     }
 
     private byte[] readBytes(InputStream stream, int length) throws IOException {
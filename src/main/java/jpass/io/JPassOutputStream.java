@@ -30,7 +30,8 @@ package jpass.io;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import jpass.util.CryptUtils;
+import jpass.io.codec.Codec;
+import jpass.io.codec.CodecRegistry;
 
 /**
  * Output stream to write JPass file format and provide key for the underlying
@@ -41,22 +42,57 @@ import jpass.util.CryptUtils;
 public class JPassOutputStream extends OutputStream implements JPassStream {
 
     private final OutputStream parent;
-    private final byte[] generatedKey;
+    private final KeyMaterial keyMaterial;
+    private final Codec codec;
 
     public JPassOutputStream(OutputStream parent, char[] key) throws IOException {
-        this.parent = parent;
+        // derive a new key with the default file version, as the payload is streamed
+        this(parent, KeyMaterial.generate(key));
+    }
 
-        // get the latest supported file version
-        FileVersionType fileVersionType = SUPPORTED_FILE_VERSIONS.get(SUPPORTED_FILE_VERSIONS.lastKey());
+    /**
+     * Creates an output stream with previously derived key material, so the
+     * key derivation function does not run again.
+     *
+     * @param parent the parent stream
+     * @param keyMaterial the key material to write the file with
+     * @throws IOException if the file header could not be written
+     */
+    public JPassOutputStream(OutputStream parent, KeyMaterial keyMaterial) throws IOException {
+        this(parent, keyMaterial, CodecRegistry.DEFLATE);
+    }
+
+    /**
+     * Creates an output stream with previously derived key material, which
+     * stores the given compression codec in the file header.
+     *
+     * @param parent the parent stream
+     * @param keyMaterial the key material to write the file with
+     * @param codec the codec the content is compressed with
+     * @throws IOException if the file header could not be written
+     * @throws IllegalArgumentException if the file version can not store the
+     * given codec
+     */
+    public JPassOutputStream(OutputStream parent, KeyMaterial keyMaterial, Codec codec) throws IOException {
+        FileVersionType fileVersionType = keyMaterial.getFileVersionType();
+        if (!fileVersionType.isCodecInHeader() && codec != CodecRegistry.DEFLATE) {
+            throw new IllegalArgumentException("Compression codec " + codec.getName()
+                    + " is not supported by file version " + fileVersionType.getVersion());
+        }
+        this.parent = parent;
+        this.keyMaterial = keyMaterial;
+        this.codec = codec;
 
         parent.write(FILE_FORMAT_IDENTIFIER);
         parent.write(fileVersionType.getVersion());
+        if (fileVersionType.isCodecInHeader()) {
+            parent.write(codec.getId());
+        }
 
-        byte[] salt = CryptUtils.generateRandomSalt(fileVersionType.getSaltLength());
+        byte[] salt = keyMaterial.getSalt();
         if (salt.length > 0) {
             parent.write(salt);
         }
-        this.generatedKey = fileVersionType.getKeyGenerator().apply(key, salt);
     }
 
     @Override
@@ -64,6 +100,16 @@ public class JPassOutputStream extends OutputStream implements JPassStream {
         parent.write(b);
     }
 
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        parent.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        parent.flush();
+    }
+
     @Override
     public void close() throws IOException {
         parent.close();
@@ -71,6 +117,16 @@ public class JPassOutputStream extends OutputStream implements JPassStream {
 
     @Override
     public byte[] getKey() {
-        return generatedKey;
+        return keyMaterial.getKey();
+    }
+
+    @Override
+    public KeyMaterial getKeyMaterial() {
+        return keyMaterial;
+    }
+
+    @Override
+    public Codec getCodec() {
+        return codec;
     }
 }
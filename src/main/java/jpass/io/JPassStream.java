@@ -36,6 +36,7 @@ import java.util.TreeMap;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import jpass.io.codec.Codec;
 import jpass.util.CryptUtils;
 
 /**
@@ -45,17 +46,44 @@ import jpass.util.CryptUtils;
  */
 public interface JPassStream {
 
+    /**
+     * Format of the document inside the encrypted stream.
+     */
+    enum PayloadFormat {
+        /**
+         * XML document.
+         */
+        XML,
+        /**
+         * Length-prefixed binary entry records.
+         */
+        BINARY,
+        /**
+         * Binary entry records in separately encrypted chunks, see
+         * {@link ChunkedContainer}.
+         */
+        CHUNKED
+    }
+
     enum FileVersionType {
-        VERSION_0(0, 0, (text, salt) -> CryptUtils.getSha256HashWithDefaultIterations(text)),
-        VERSION_1(1, 16, (text, salt) -> CryptUtils.getPBKDF2KeyWithDefaultIterations(text, salt));
+        VERSION_0(0, 0, PayloadFormat.XML, false, (text, salt) -> CryptUtils.getSha256HashWithDefaultIterations(text)),
+        VERSION_1(1, 16, PayloadFormat.XML, false, (text, salt) -> CryptUtils.getPBKDF2KeyWithDefaultIterations(text, salt)),
+        VERSION_2(2, 16, PayloadFormat.BINARY, false, (text, salt) -> CryptUtils.getPBKDF2KeyWithDefaultIterations(text, salt)),
+        VERSION_3(3, 16, PayloadFormat.BINARY, true, (text, salt) -> CryptUtils.getPBKDF2KeyWithDefaultIterations(text, salt)),
+        VERSION_4(4, 16, PayloadFormat.CHUNKED, true, (text, salt) -> CryptUtils.getPBKDF2KeyWithDefaultIterations(text, salt));
 
         private final int version;
         private final int saltLength;
+        private final PayloadFormat payloadFormat;
+        private final boolean codecInHeader;
         private final BiFunction<char[], byte[], byte[]> keyGenerator;
 
-        private FileVersionType(int version, int saltLength, BiFunction<char[], byte[], byte[]> keyGenerator) {
+        private FileVersionType(int version, int saltLength, PayloadFormat payloadFormat, boolean codecInHeader,
+                BiFunction<char[], byte[], byte[]> keyGenerator) {
             this.version = version;
             this.saltLength = saltLength;
+            this.payloadFormat = Objects.requireNonNull(payloadFormat, "payloadFormat must be provided");
+            this.codecInHeader = codecInHeader;
             this.keyGenerator = Objects.requireNonNull(keyGenerator, "keyGenerator must be provided");
         }
 
@@ -67,6 +95,21 @@ public interface JPassStream {
             return saltLength;
         }
 
+        public PayloadFormat getPayloadFormat() {
+            return payloadFormat;
+        }
+
+        /**
+         * Whether the file header contains the identifier of the compression
+         * codec after the file version. Files without it are compressed with
+         * {@link jpass.io.codec.CodecRegistry#DEFLATE}.
+         *
+         * @return {@code true} if the codec is stored in the file header
+         */
+        public boolean isCodecInHeader() {
+            return codecInHeader;
+        }
+
         public BiFunction<char[], byte[], byte[]> getKeyGenerator() {
             return keyGenerator;
         }
@@ -77,5 +120,16 @@ public interface JPassStream {
     SortedMap<Integer, FileVersionType> SUPPORTED_FILE_VERSIONS = Arrays.stream(FileVersionType.values())
             .collect(Collectors.toMap(FileVersionType::getVersion, Function.identity(), (version, duplicate) -> version, TreeMap::new));
 
+    /**
+     * File version of the streams and files written without a given version.
+     * Its XML payload is streamed after the header, and is readable by all
+     * JPass versions.
+     */
+    FileVersionType DEFAULT_FILE_VERSION = FileVersionType.VERSION_1;
+
     byte[] getKey();
+
+    KeyMaterial getKeyMaterial();
+
+    Codec getCodec();
 }
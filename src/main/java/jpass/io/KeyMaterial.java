@@ -0,0 +1,122 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.io;
+
+import java.util.Arrays;
+import java.util.Objects;
+import jpass.io.JPassStream.FileVersionType;
+import jpass.util.CryptUtils;
+
+/**
+ * Key material of a JPass file: the file version, the salt stored in the file
+ * header and the key derived from the password and the salt. Key material is
+ * kept between open and save operations, so the key derivation function does
+ * not have to run on every save.
+ */
+public final class KeyMaterial {
+
+    private final FileVersionType fileVersionType;
+    private final byte[] salt;
+    private final byte[] key;
+
+    private KeyMaterial(FileVersionType fileVersionType, byte[] salt, byte[] key) {
+        this.fileVersionType = Objects.requireNonNull(fileVersionType, "fileVersionType must be provided");
+        this.salt = salt;
+        this.key = key;
+    }
+
+    /**
+     * Derives the key from the given password and salt.
+     *
+     * @param fileVersionType file version which determines the key derivation
+     * function
+     * @param password the password
+     * @param salt the salt
+     * @return the key material
+     */
+    public static KeyMaterial derive(FileVersionType fileVersionType, char[] password, byte[] salt) {
+        return new KeyMaterial(fileVersionType, salt, fileVersionType.getKeyGenerator().apply(password, salt));
+    }
+
+    /**
+     * Reuses the cached key material if it belongs to the given file version
+     * and salt, otherwise derives the key from the given password and salt.
+     * The cached key material must have been derived from the same password.
+     *
+     * @param cached previously derived key material (can be null)
+     * @param fileVersionType file version which determines the key derivation
+     * function
+     * @param password the password
+     * @param salt the salt
+     * @return the key material
+     */
+    public static KeyMaterial reuseOrDerive(KeyMaterial cached, FileVersionType fileVersionType, char[] password, byte[] salt) {
+        if (cached != null && cached.fileVersionType == fileVersionType && Arrays.equals(cached.salt, salt)) {
+            return cached;
+        }
+        return derive(fileVersionType, password, salt);
+    }
+
+    /**
+     * Derives a new key from the given password and a freshly generated salt,
+     * using the default file version.
+     *
+     * @param password the password
+     * @return the key material
+     * @see JPassStream#DEFAULT_FILE_VERSION
+     */
+    public static KeyMaterial generate(char[] password) {
+        return generate(JPassStream.DEFAULT_FILE_VERSION, password);
+    }
+
+    /**
+     * Derives a new key from the given password and a freshly generated salt,
+     * using the given file version.
+     *
+     * @param fileVersionType file version which determines the key derivation
+     * function
+     * @param password the password
+     * @return the key material
+     */
+    public static KeyMaterial generate(FileVersionType fileVersionType, char[] password) {
+        return derive(fileVersionType, password, CryptUtils.generateRandomSalt(fileVersionType.getSaltLength()));
+    }
+
+    public FileVersionType getFileVersionType() {
+        return fileVersionType;
+    }
+
+    public byte[] getSalt() {
+        return salt;
+    }
+
+    public byte[] getKey() {
+        return key;
+    }
+}
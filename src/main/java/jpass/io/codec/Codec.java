@@ -0,0 +1,75 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.io.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compression codec of the content of encrypted files. The available codecs
+ * are managed by {@link CodecRegistry}.
+ */
+public interface Codec {
+
+    /**
+     * Gets the identifier of the codec, stored in the file header. Identifiers
+     * are part of the file format and must not change.
+     *
+     * @return the identifier, between 0 and 255
+     */
+    int getId();
+
+    /**
+     * Gets the name of the codec, used in the configuration.
+     *
+     * @return the name of the codec
+     */
+    String getName();
+
+    /**
+     * Wraps the given stream into a compressing stream. Closing the returned
+     * stream finishes the compression and closes the given stream.
+     *
+     * @param out the stream of the compressed data
+     * @return stream of the uncompressed data
+     * @throws IOException if the compressed stream could not be initialized
+     */
+    OutputStream compress(OutputStream out) throws IOException;
+
+    /**
+     * Wraps the given stream into a decompressing stream. Closing the returned
+     * stream closes the given stream.
+     *
+     * @param in the stream of the compressed data
+     * @return stream of the uncompressed data
+     * @throws IOException if the compressed stream is invalid
+     */
+    InputStream decompress(InputStream in) throws IOException;
+}
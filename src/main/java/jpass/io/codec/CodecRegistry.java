@@ -0,0 +1,148 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.io.codec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import jpass.util.Configuration;
+
+/**
+ * Registry of the available compression codecs.
+ * <p>
+ * The built-in codecs are:
+ * </p>
+ * <ul>
+ * <li>{@code none} - no compression, the fastest to save,</li>
+ * <li>{@code deflate} - GZIP with the default compression level, the only
+ * codec of files written before the codec was stored in the file header,</li>
+ * <li>{@code deflate-fast} - GZIP with the fastest compression level,</li>
+ * <li>{@code deflate-best} - GZIP with the best compression level, the
+ * smallest files,</li>
+ * <li>{@code lz} - {@link LzCodec}, pure Java LZ77 compression, faster than
+ * deflate but with larger files.</li>
+ * </ul>
+ * <p>
+ * The codec of the saved files is configured with the
+ * {@code file.compression.codec} configuration; if the configured codec is
+ * unknown, {@link #DEFLATE} is used.
+ * </p>
+ */
+public final class CodecRegistry {
+
+    private static final Logger LOG = Logger.getLogger(CodecRegistry.class.getName());
+
+    public static final Codec NONE = new NoneCodec();
+    public static final Codec DEFLATE = new DeflateCodec(1, "deflate", Deflater.DEFAULT_COMPRESSION);
+    public static final Codec DEFLATE_FAST = new DeflateCodec(2, "deflate-fast", Deflater.BEST_SPEED);
+    public static final Codec DEFLATE_BEST = new DeflateCodec(3, "deflate-best", Deflater.BEST_COMPRESSION);
+    public static final Codec LZ = new LzCodec();
+
+    private static final List<Codec> CODECS = new ArrayList<>(Arrays.asList(NONE, DEFLATE, DEFLATE_FAST, DEFLATE_BEST, LZ));
+
+    private static Codec defaultCodec;
+
+    private CodecRegistry() {
+        // not intended to be instantiated
+    }
+
+    /**
+     * Registers a codec. A codec with the same identifier or name is replaced.
+     *
+     * @param codec the codec
+     * @throws IllegalArgumentException if the identifier of the codec is out
+     * of range
+     */
+    public static synchronized void register(Codec codec) {
+        if (codec.getId() < 0 || codec.getId() > 0xff) {
+            throw new IllegalArgumentException("Codec identifier out of range: " + codec.getId());
+        }
+        CODECS.removeIf(registered -> registered.getId() == codec.getId() || registered.getName().equalsIgnoreCase(codec.getName()));
+        CODECS.add(codec);
+        defaultCodec = null;
+    }
+
+    /**
+     * Gets the registered codecs.
+     *
+     * @return unmodifiable list of codecs
+     */
+    public static synchronized List<Codec> getCodecs() {
+        return Collections.unmodifiableList(new ArrayList<>(CODECS));
+    }
+
+    /**
+     * Gets a codec by identifier.
+     *
+     * @param id the identifier stored in the file header
+     * @return the codec, or {@code null} if there is no such codec
+     */
+    public static synchronized Codec getCodec(int id) {
+        return CODECS.stream()
+                .filter(codec -> codec.getId() == id)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Gets a codec by name.
+     *
+     * @param name the name of the codec
+     * @return the codec, or {@code null} if there is no such codec
+     */
+    public static synchronized Codec getCodec(String name) {
+        return CODECS.stream()
+                .filter(codec -> codec.getName().equalsIgnoreCase(name))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Gets the codec to be used for saving files. The codec is selected on the
+     * first call and cached afterwards.
+     *
+     * @return the default codec
+     */
+    public static synchronized Codec getDefaultCodec() {
+        if (defaultCodec == null) {
+            String name = Configuration.getInstance().get("file.compression.codec", DEFLATE.getName());
+            defaultCodec = getCodec(name);
+            if (defaultCodec == null) {
+                LOG.log(Level.WARNING, String.format("Compression codec [%s] is not available, using [%s]", name, DEFLATE.getName()));
+                defaultCodec = DEFLATE;
+            }
+            LOG.log(Level.CONFIG, String.format("Using compression codec [%s]", defaultCodec.getName()));
+        }
+        return defaultCodec;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.io.codec;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Fast codec of the LZ77 family, trading compression ratio for speed.
+ * <p>
+ * The content is split into blocks of {@link #BLOCK_SIZE} bytes. Each block
+ * starts with a 4 byte big-endian length, the highest bit of which is set if
+ * the block is stored without compression, followed by the CRC-32 of the
+ * uncompressed block and the block data. A block of zero length marks the end
+ * of the content.
+ * </p>
+ * <p>
+ * Compressed blocks consist of sequences of literals and matches, similar to
+ * the LZ4 block format. A sequence starts with a token, the high 4 bits of
+ * which hold the number of literals, the low 4 bits the match length minus
+ * {@link #MIN_MATCH}; a value of 15 is continued in the following bytes, each
+ * byte of 255 continuing further. The literals are followed by the 2 byte
+ * little-endian offset of the match. The last sequence of a block has
+ * literals only.
+ * </p>
+ */
+final class LzCodec implements Codec {
+
+    /**
+     * Maximum size of the uncompressed blocks.
+     */
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * Flag of the blocks stored without compression.
+     */
+    static final int STORED_FLAG = 0x80000000;
+
+    /**
+     * Minimum length of a match.
+     */
+    static final int MIN_MATCH = 4;
+
+    /**
+     * Maximum distance of a match.
+     */
+    static final int MAX_OFFSET = 0xffff;
+
+    @Override
+    public int getId() {
+        return 4;
+    }
+
+    @Override
+    public String getName() {
+        return "lz";
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) {
+        return new LzOutputStream(out);
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) {
+        return new LzInputStream(in);
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
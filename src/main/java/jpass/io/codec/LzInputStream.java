@@ -0,0 +1,220 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.io.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+import static jpass.io.codec.LzCodec.BLOCK_SIZE;
+import static jpass.io.codec.LzCodec.MIN_MATCH;
+import static jpass.io.codec.LzCodec.STORED_FLAG;
+
+/**
+ * Input stream which decompresses the content written by {@link LzOutputStream}.
+ * The checksum of every block is verified before its content is returned.
+ */
+final class LzInputStream extends InputStream {
+
+    private final InputStream in;
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private final byte[] compressed = new byte[LzOutputStream.maxCompressedLength(BLOCK_SIZE)];
+    private final byte[] header = new byte[8];
+    private final CRC32 crc = new CRC32();
+    private int position;
+    private int count;
+    private boolean finished;
+
+    LzInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == count && !readBlock()) {
+            return -1;
+        }
+        return block[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == count && !readBlock()) {
+            return -1;
+        }
+        int size = Math.min(len, count - position);
+        System.arraycopy(block, position, b, off, size);
+        position += size;
+        return size;
+    }
+
+    @Override
+    public int available() {
+        return count - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads the next non-empty block.
+     *
+     * @return {@code false} if the end of the content is reached
+     * @throws IOException if the block could not be read or is corrupt
+     */
+    private boolean readBlock() throws IOException {
+        position = 0;
+        count = 0;
+        while (count == 0) {
+            if (finished) {
+                return false;
+            }
+            readFully(header, header.length);
+            int length = readInt(header, 0);
+            int checksum = readInt(header, 4);
+            if (length == 0) {
+                finished = true;
+                continue;
+            }
+            if ((length & STORED_FLAG) != 0) {
+                count = length & ~STORED_FLAG;
+                if (count > BLOCK_SIZE) {
+                    throw new IOException("Invalid block length: " + count);
+                }
+                readFully(block, count);
+            } else {
+                if (length > compressed.length) {
+                    throw new IOException("Invalid block length: " + length);
+                }
+                readFully(compressed, length);
+                count = decompressBlock(compressed, length, block);
+            }
+            crc.reset();
+            crc.update(block, 0, count);
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Block checksum mismatch");
+            }
+        }
+        return true;
+    }
+
+    private void readFully(byte[] buffer, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(buffer, offset, length - offset);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of compressed content");
+            }
+            offset += read;
+        }
+    }
+
+    private static int readInt(byte[] buffer, int index) {
+        return (buffer[index] & 0xff) << 24 | (buffer[index + 1] & 0xff) << 16
+                | (buffer[index + 2] & 0xff) << 8 | (buffer[index + 3] & 0xff);
+    }
+
+    /**
+     * Decompresses a block. Every length and offset is checked against the
+     * bounds of the buffers, so corrupt blocks are rejected.
+     *
+     * @param src the compressed block
+     * @param length length of the compressed block
+     * @param dst the uncompressed block
+     * @return length of the uncompressed block
+     * @throws IOException if the block is corrupt
+     */
+    static int decompressBlock(byte[] src, int length, byte[] dst) throws IOException {
+        int index = 0;
+        int dstIndex = 0;
+        while (true) {
+            if (index >= length) {
+                throw new IOException("Corrupt compressed block");
+            }
+            int token = src[index++] & 0xff;
+            int literalLength = token >>> 4;
+            if (literalLength == 15) {
+                int value;
+                do {
+                    if (index >= length) {
+                        throw new IOException("Corrupt compressed block");
+                    }
+                    value = src[index++] & 0xff;
+                    literalLength += value;
+                } while (value == 255);
+            }
+            if (literalLength > length - index || literalLength > dst.length - dstIndex) {
+                throw new IOException("Corrupt compressed block");
+            }
+            System.arraycopy(src, index, dst, dstIndex, literalLength);
+            index += literalLength;
+            dstIndex += literalLength;
+            if (index == length) {
+                return dstIndex;
+            }
+
+            if (index + 2 > length) {
+                throw new IOException("Corrupt compressed block");
+            }
+            int offset = (src[index] & 0xff) | (src[index + 1] & 0xff) << 8;
+            index += 2;
+            int matchLength = token & 0x0f;
+            if (matchLength == 15) {
+                int value;
+                do {
+                    if (index >= length) {
+                        throw new IOException("Corrupt compressed block");
+                    }
+                    value = src[index++] & 0xff;
+                    matchLength += value;
+                } while (value == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (offset == 0 || offset > dstIndex || matchLength > dst.length - dstIndex) {
+                throw new IOException("Corrupt compressed block");
+            }
+            int reference = dstIndex - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(dst, reference, dst, dstIndex, matchLength);
+                dstIndex += matchLength;
+            } else {
+                // overlapping match repeats the last offset bytes
+                for (int i = 0; i < matchLength; i++) {
+                    dst[dstIndex++] = dst[reference + i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.io.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static jpass.io.codec.LzCodec.BLOCK_SIZE;
+import static jpass.io.codec.LzCodec.MAX_OFFSET;
+import static jpass.io.codec.LzCodec.MIN_MATCH;
+import static jpass.io.codec.LzCodec.STORED_FLAG;
+
+/**
+ * Output stream which compresses the content with {@link LzCodec}. The content
+ * is buffered until a whole block is available, so flushing the stream does
+ * not write the pending block.
+ */
+final class LzOutputStream extends OutputStream {
+
+    private static final int HASH_LOG = 14;
+
+    private final OutputStream out;
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private final byte[] compressed = new byte[maxCompressedLength(BLOCK_SIZE)];
+    private final int[] hashTable = new int[1 << HASH_LOG];
+    private final byte[] header = new byte[8];
+    private final CRC32 crc = new CRC32();
+    private int count;
+    private boolean closed;
+
+    LzOutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == block.length) {
+            writeBlock();
+        }
+        block[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == block.length) {
+                writeBlock();
+            }
+            int size = Math.min(len, block.length - count);
+            System.arraycopy(b, off, block, count, size);
+            count += size;
+            off += size;
+            len -= size;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (count > 0) {
+                writeBlock();
+            }
+            writeHeader(0, 0);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        crc.reset();
+        crc.update(block, 0, count);
+        int checksum = (int) crc.getValue();
+        int length = compressBlock(block, count, compressed, hashTable);
+        if (length < count) {
+            writeHeader(length, checksum);
+            out.write(compressed, 0, length);
+        } else {
+            writeHeader(count | STORED_FLAG, checksum);
+            out.write(block, 0, count);
+        }
+        count = 0;
+    }
+
+    private void writeHeader(int length, int checksum) throws IOException {
+        writeInt(header, 0, length);
+        writeInt(header, 4, checksum);
+        out.write(header);
+    }
+
+    private static void writeInt(byte[] buffer, int index, int value) {
+        buffer[index] = (byte) (value >>> 24);
+        buffer[index + 1] = (byte) (value >>> 16);
+        buffer[index + 2] = (byte) (value >>> 8);
+        buffer[index + 3] = (byte) value;
+    }
+
+    /**
+     * Gets the maximum length of a compressed block.
+     *
+     * @param length length of the uncompressed block
+     * @return maximum length of the compressed block
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses a block. Matches are found through a hash table of the
+     * positions of the last seen 4 byte sequences.
+     *
+     * @param src the uncompressed block
+     * @param length length of the uncompressed block
+     * @param dst the compressed block, at least
+     * {@link #maxCompressedLength(int)} long
+     * @param hashTable hash table of at least {@code 1 << HASH_LOG} entries
+     * @return length of the compressed block
+     */
+    static int compressBlock(byte[] src, int length, byte[] dst, int[] hashTable) {
+        Arrays.fill(hashTable, -1);
+        int anchor = 0;
+        int index = 0;
+        int dstIndex = 0;
+        int matchLimit = length - MIN_MATCH;
+        while (index <= matchLimit) {
+            int sequence = readInt(src, index);
+            int hash = (sequence * -1640531535) >>> (32 - HASH_LOG);
+            int reference = hashTable[hash];
+            hashTable[hash] = index;
+            if (reference < 0 || index - reference > MAX_OFFSET || readInt(src, reference) != sequence) {
+                // skip faster through incompressible data
+                index += 1 + ((index - anchor) >>> 6);
+                continue;
+            }
+            int matchLength = MIN_MATCH;
+            while (index + matchLength < length && src[reference + matchLength] == src[index + matchLength]) {
+                matchLength++;
+            }
+            dstIndex = writeSequence(src, anchor, index - anchor, dst, dstIndex, matchLength - MIN_MATCH);
+            int offset = index - reference;
+            dst[dstIndex++] = (byte) offset;
+            dst[dstIndex++] = (byte) (offset >>> 8);
+            dstIndex = writeLength(dst, dstIndex, matchLength - MIN_MATCH);
+            index += matchLength;
+            anchor = index;
+        }
+        return writeSequence(src, anchor, length - anchor, dst, dstIndex, 0);
+    }
+
+    private static int writeSequence(byte[] src, int literalIndex, int literalLength, byte[] dst, int dstIndex,
+            int matchLength) {
+        dst[dstIndex++] = (byte) ((Math.min(literalLength, 15) << 4) | Math.min(matchLength, 15));
+        dstIndex = writeLength(dst, dstIndex, literalLength);
+        System.arraycopy(src, literalIndex, dst, dstIndex, literalLength);
+        return dstIndex + literalLength;
+    }
+
+    private static int writeLength(byte[] dst, int dstIndex, int length) {
+        if (length < 15) {
+            return dstIndex;
+        }
+        int remaining = length - 15;
+        while (remaining >= 255) {
+            dst[dstIndex++] = (byte) 255;
+            remaining -= 255;
+        }
+        dst[dstIndex++] = (byte) remaining;
+        return dstIndex;
+    }
+
+    private static int readInt(byte[] buffer, int index) {
+        return (buffer[index] & 0xff) | (buffer[index + 1] & 0xff) << 8
+                | (buffer[index + 2] & 0xff) << 16 | (buffer[index + 3] & 0xff) << 24;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.ui;
+
+import java.awt.Component;
+import java.awt.Point;
+import java.awt.Rectangle;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableColumn;
+
+/**
+ * Sizes the columns of a table, except the first one, to fit their content.
+ * The widths are measured when the data of the table model changes, not when
+ * the cells are painted: changed rows are measured as they are reported, and
+ * after a change of all rows a sample of the rows is measured, so the cost
+ * does not depend on the number of rows. Columns only grow, until the table is
+ * emptied.
+ */
+final class EntryColumnSizer implements TableModelListener {
+
+    /**
+     * Maximum number of rows measured after a change of all rows, in addition
+     * to the visible rows.
+     */
+    private static final int SAMPLE_SIZE = 256;
+
+    private final JTable table;
+    private final int[] minimumWidths;
+    private boolean resizeScheduled = false;
+
+    private EntryColumnSizer(JTable table) {
+        this.table = table;
+        this.minimumWidths = new int[table.getColumnCount()];
+        for (int column = 0; column < this.minimumWidths.length; column++) {
+            this.minimumWidths[column] = table.getColumnModel().getColumn(column).getPreferredWidth();
+        }
+    }
+
+    /**
+     * Creates a column sizer for the table and registers it as a listener of
+     * the table model.
+     *
+     * @param table the table
+     * @return the installed column sizer
+     */
+    static EntryColumnSizer install(JTable table) {
+        EntryColumnSizer sizer = new EntryColumnSizer(table);
+        table.getModel().addTableModelListener(sizer);
+        return sizer;
+    }
+
+    @Override
+    public void tableChanged(TableModelEvent event) {
+        if (event.getType() == TableModelEvent.DELETE) {
+            return;
+        }
+        int rowCount = this.table.getRowCount();
+        if (event.getFirstRow() == TableModelEvent.HEADER_ROW || event.getLastRow() >= rowCount
+                || event.getLastRow() - event.getFirstRow() >= SAMPLE_SIZE) {
+            scheduleResize();
+        } else {
+            for (int row = event.getFirstRow(); row <= event.getLastRow(); row++) {
+                fitRow(row);
+            }
+        }
+    }
+
+    /**
+     * Measures a sample of the rows after the pending events are processed, so
+     * a series of changes is measured once.
+     */
+    private void scheduleResize() {
+        if (this.resizeScheduled) {
+            return;
+        }
+        this.resizeScheduled = true;
+        SwingUtilities.invokeLater(() -> {
+            this.resizeScheduled = false;
+            resize();
+        });
+    }
+
+    private void resize() {
+        int rowCount = this.table.getRowCount();
+        if (rowCount == 0) {
+            for (int column = 1; column < this.minimumWidths.length; column++) {
+                TableColumn tableColumn = this.table.getColumnModel().getColumn(column);
+                tableColumn.setMaxWidth(Integer.MAX_VALUE);
+                tableColumn.setPreferredWidth(this.minimumWidths[column]);
+            }
+            return;
+        }
+        Rectangle visible = this.table.getVisibleRect();
+        int firstVisible = Math.max(this.table.rowAtPoint(visible.getLocation()), 0);
+        int lastVisible = this.table.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+        if (lastVisible == -1) {
+            lastVisible = Math.min(rowCount - 1, firstVisible + SAMPLE_SIZE - 1);
+        }
+        for (int row = firstVisible; row <= lastVisible; row++) {
+            fitRow(row);
+        }
+        int step = Math.max(rowCount / SAMPLE_SIZE, 1);
+        for (int row = 0; row < rowCount; row += step) {
+            fitRow(row);
+        }
+        fitRow(rowCount - 1);
+    }
+
+    private void fitRow(int row) {
+        for (int column = 1; column < this.minimumWidths.length; column++) {
+            Component component = this.table.prepareRenderer(this.table.getCellRenderer(row, column), row, column);
+            int width = component.getPreferredSize().width + this.table.getIntercellSpacing().width;
+            if (width > this.table.getColumnModel().getColumn(column).getPreferredWidth()) {
+                setWidth(column, width);
+            }
+        }
+    }
+
+    private void setWidth(int column, int width) {
+        TableColumn tableColumn = this.table.getColumnModel().getColumn(column);
+        tableColumn.setPreferredWidth(width);
+        tableColumn.setMaxWidth(width);
+    }
+}
@@ -28,21 +28,21 @@
  */
 package jpass.ui;
 
-import java.awt.Component;
-import java.time.format.DateTimeFormatter;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 import javax.swing.JTable;
-import javax.swing.table.DefaultTableModel;
-import javax.swing.table.TableCellRenderer;
-import javax.swing.table.TableColumn;
+import javax.swing.SwingUtilities;
 import jpass.ui.action.TableListener;
 import jpass.util.Configuration;
 import jpass.util.DateUtils;
+import jpass.util.TimestampFormatter;
 import jpass.xml.bind.Entry;
 
 /**
@@ -50,22 +50,24 @@ import jpass.xml.bind.Entry;
  */
 public class EntryDetailsTable extends JTable {
 
-    private static final DateTimeFormatter FORMATTER
-            = DateUtils.createFormatter(Configuration.getInstance().get("date.format", "yyyy-MM-dd"));
+    private static final TimestampFormatter FORMATTER = new TimestampFormatter(
+            DateUtils.createFormatter(Configuration.getInstance().get("date.format", "yyyy-MM-dd")));
 
     private enum DetailType {
-        TITLE("Title", Entry::getTitle),
-        URL("URL", Entry::getUrl),
-        USER("User", Entry::getUser),
-        MODIFIED("Modified", entry -> DateUtils.formatIsoDateTime(entry.getLastModification(), FORMATTER)),
-        CREATED("Created", entry -> DateUtils.formatIsoDateTime(entry.getCreationDate(), FORMATTER));
+        TITLE("Title", Entry::getTitle, null),
+        URL("URL", Entry::getUrl, null),
+        USER("User", Entry::getUser, null),
+        MODIFIED("Modified", entry -> FORMATTER.format(entry.getLastModificationTime()), Entry::getLastModificationTime),
+        CREATED("Created", entry -> FORMATTER.format(entry.getCreationTime()), Entry::getCreationTime);
 
         private final String description;
         private final Function<Entry, String> valueMapper;
+        private final ToLongFunction<Entry> timeMapper;
 
-        private DetailType(String description, Function<Entry, String> valueMapper) {
+        private DetailType(String description, Function<Entry, String> valueMapper, ToLongFunction<Entry> timeMapper) {
             this.description = description;
             this.valueMapper = valueMapper;
+            this.timeMapper = timeMapper;
         }
 
         public String getDescription() {
@@ -75,6 +77,15 @@ public class EntryDetailsTable extends JTable {
         public String getValue(Entry entry) {
             return entry != null ? valueMapper.apply(entry) : "";
         }
+
+        public EntryTableModel.Column toColumn() {
+            if (this == TITLE) {
+                return EntryTableModel.Column.title(description);
+            } else if (timeMapper != null) {
+                return EntryTableModel.Column.time(description, this::getValue, timeMapper);
+            }
+            return EntryTableModel.Column.text(description, this::getValue);
+        }
     }
 
     private static final Map<String, DetailType> DETAILS_BY_NAME = Arrays.stream(DetailType.values())
@@ -86,7 +97,7 @@ public class EntryDetailsTable extends JTable {
     };
 
     private final List<DetailType> detailsToDisplay;
-    private final DefaultTableModel tableModel;
+    private final EntryTableModel tableModel;
 
     public EntryDetailsTable() {
         super();
@@ -103,10 +114,23 @@ public class EntryDetailsTable extends JTable {
                     .forEach(detailsToDisplay::add);
         }
 
-        tableModel = new DefaultTableModel();
-        detailsToDisplay.forEach(detail -> tableModel.addColumn(detail.getDescription()));
+        tableModel = new EntryTableModel(detailsToDisplay.stream()
+                .map(DetailType::toColumn)
+                .collect(Collectors.toList()));
+        tableModel.sortBy(detailsToDisplay.indexOf(DetailType.TITLE), true);
         setModel(tableModel);
+        EntryColumnSizer.install(this);
         getTableHeader().setReorderingAllowed(false);
+        getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent event) {
+                int column = getTableHeader().columnAtPoint(event.getPoint());
+                if (isEnabled() && SwingUtilities.isLeftMouseButton(event) && column != -1) {
+                    sortBy(convertColumnIndexToModel(column));
+                }
+            }
+        });
+        refreshSortIndicator();
         addMouseListener(new TableListener());
     }
 
@@ -115,30 +139,66 @@ public class EntryDetailsTable extends JTable {
         return false;
     }
 
-    @Override
-    public Component prepareRenderer(TableCellRenderer renderer, int row, int column) {
-        Component component = super.prepareRenderer(renderer, row, column);
-        if (column > 0) {
-            int rendererWidth = component.getPreferredSize().width;
-            TableColumn tableColumn = getColumnModel().getColumn(column);
-            int columnWidth = Math.max(rendererWidth + getIntercellSpacing().width, tableColumn.getPreferredWidth());
-            tableColumn.setPreferredWidth(columnWidth);
-            tableColumn.setMaxWidth(columnWidth);
+    /**
+     * Sorts the entries by a column, keeping the selected entry selected.
+     * Sorting by the sorted column again reverses the order.
+     *
+     * @param column the column of the table model
+     */
+    public void sortBy(int column) {
+        Entry selectedEntry = getSelectedEntry();
+        tableModel.sortBy(column);
+        refreshSortIndicator();
+        if (selectedEntry != null) {
+            selectEntry(selectedEntry);
         }
-        return component;
     }
 
-    public void clear() {
-        tableModel.setRowCount(0);
+    private void refreshSortIndicator() {
+        for (int column = 0; column < getColumnCount(); column++) {
+            int modelColumn = convertColumnIndexToModel(column);
+            String name = tableModel.getColumnName(modelColumn);
+            if (modelColumn == tableModel.getSortColumn()) {
+                name += tableModel.isSortAscending() ? " \u25b2" : " \u25bc";
+            }
+            getColumnModel().getColumn(column).setHeaderValue(name);
+        }
+        getTableHeader().repaint();
     }
 
-    public void addRow(Entry entry) {
-        tableModel.addRow(detailsToDisplay.stream()
-                .map(detail -> detail.getValue(entry))
-                .toArray(Object[]::new));
+    /**
+     * Gets the sorted model of the displayed entries.
+     *
+     * @return the table model
+     */
+    public EntryTableModel getEntryTableModel() {
+        return tableModel;
     }
 
-    public int rowCount() {
-        return tableModel.getRowCount();
+    /**
+     * Gets the entry of the selected row.
+     *
+     * @return the selected entry, or {@code null} if no row is selected
+     */
+    public Entry getSelectedEntry() {
+        int row = getSelectedRow();
+        return row == -1 ? null : tableModel.getEntry(row);
+    }
+
+    /**
+     * Selects the row of the entry, if it is displayed.
+     *
+     * @param entry the entry
+     */
+    public void selectEntry(Entry entry) {
+        int row = tableModel.getRow(entry);
+        if (row != -1) {
+            setRowSelectionInterval(row, row);
+            scrollRectToVisible(getCellRect(row, 0, true));
+        }
+    }
+
+    public void clear() {
+        tableModel.clear();
     }
 }
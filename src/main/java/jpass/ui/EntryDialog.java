@@ -289,12 +289,7 @@ public class EntryDialog extends JDialog implements ActionListener {
             currentTitleText = "";
         }
         if (this.newEntry || !currentTitleText.equalsIgnoreCase(this.originalTitle)) {
-            for (Entry entry : parent.getModel().getEntries().getEntry()) {
-                if (currentTitleText.equalsIgnoreCase(entry.getTitle())) {
-                    titleIsOk = false;
-                    break;
-                }
-            }
+            titleIsOk = !parent.getModel().containsTitle(currentTitleText);
         }
         return titleIsOk;
     }
@@ -0,0 +1,159 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.ui;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import jpass.data.EntrySearchIndex;
+import jpass.xml.bind.Entry;
+
+/**
+ * Searches the entries of an {@link EntryTableModel} in the background, using
+ * the {@link EntrySearchIndex search index} of the entries. Searches requested
+ * within the debounce delay are coalesced, and the result of a search is
+ * dropped as soon as a newer one is requested, so only the result of the
+ * latest search is published to the table model.
+ * <p>
+ * The methods of this class must be called on the event dispatch thread.
+ * </p>
+ */
+public final class EntrySearchExecutor {
+
+    private static final Logger LOG = Logger.getLogger(EntrySearchExecutor.class.getName());
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "JPass-EntrySearch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final EntryTableModel tableModel;
+    private final EntrySearchIndex searchIndex;
+    private final Timer debounceTimer;
+    private final AtomicInteger generation = new AtomicInteger();
+    private String pendingCriteria;
+    private Runnable pendingCallback;
+
+    /**
+     * Creates a new search executor.
+     *
+     * @param tableModel the table model to filter
+     * @param searchIndex the search index of the entries
+     * @param debounceDelay the delay in milliseconds to wait for further
+     * search requests
+     */
+    public EntrySearchExecutor(EntryTableModel tableModel, EntrySearchIndex searchIndex, int debounceDelay) {
+        this.tableModel = tableModel;
+        this.searchIndex = searchIndex;
+        this.debounceTimer = new Timer(debounceDelay, event -> start());
+        this.debounceTimer.setRepeats(false);
+    }
+
+    /**
+     * Requests a search. The search is started when no other search is
+     * requested within the debounce delay. Clearing the search is applied
+     * immediately.
+     *
+     * @param criteria the search criteria, empty to display all entries
+     * @param callback called on the event dispatch thread when the result is
+     * published to the table model
+     */
+    public void search(String criteria, Runnable callback) {
+        cancel();
+        if (criteria.isEmpty()) {
+            this.tableModel.setFilter(null);
+            callback.run();
+            return;
+        }
+        this.pendingCriteria = criteria;
+        this.pendingCallback = callback;
+        this.debounceTimer.restart();
+    }
+
+    /**
+     * Cancels the pending and running searches.
+     */
+    public void cancel() {
+        this.debounceTimer.stop();
+        this.pendingCriteria = null;
+        this.pendingCallback = null;
+        this.generation.incrementAndGet();
+    }
+
+    private void start() {
+        String criteria = this.pendingCriteria;
+        Runnable callback = this.pendingCallback;
+        if (criteria == null) {
+            return;
+        }
+        this.pendingCriteria = null;
+        this.pendingCallback = null;
+        start(criteria, callback);
+    }
+
+    private void start(String criteria, Runnable callback) {
+        int searchGeneration = this.generation.incrementAndGet();
+        int modificationCount = this.tableModel.getModificationCount();
+        Comparator<Entry> order = this.tableModel.getOrder();
+        EXECUTOR.execute(() -> {
+            if (this.generation.get() != searchGeneration) {
+                return;
+            }
+            List<Entry> found;
+            try {
+                found = this.searchIndex.search(criteria);
+                found.sort(order);
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Entry search failed.", e);
+                return;
+            }
+            SwingUtilities.invokeLater(() -> publish(criteria, callback, found, modificationCount, searchGeneration));
+        });
+    }
+
+    private void publish(String criteria, Runnable callback, List<Entry> found,
+            int modificationCount, int searchGeneration) {
+        if (this.generation.get() != searchGeneration) {
+            return;
+        }
+        if (this.tableModel.setFilter(this.searchIndex.createFilter(criteria), found, modificationCount)) {
+            callback.run();
+        } else {
+            // the entries have been changed during the search
+            start(criteria, callback);
+        }
+    }
+}
@@ -0,0 +1,681 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.ui;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import javax.swing.table.AbstractTableModel;
+import jpass.xml.bind.Entry;
+
+/**
+ * Table model of sorted entries. Single entries are inserted, replaced and
+ * removed at their sorted position, found by binary search, and only the
+ * affected row is reported to the listeners.
+ * <p>
+ * The entries are sorted by title, or by any column. Sorting all entries is an
+ * index sort of primitive {@link SortKeys sort keys}: text keys are cached per
+ * entry, and date keys are the timestamps parsed by the entries. Entries with
+ * equal keys are sorted by title.
+ * </p>
+ * <p>
+ * The model can be filtered; the rows are the entries matching the filter, in
+ * the same order.
+ * </p>
+ * <p>
+ * Cell values are computed when a row is painted, and kept in a bounded cache
+ * of the recently painted entries, so the cost of refreshing the table does
+ * not depend on the number of entries.
+ * </p>
+ */
+public class EntryTableModel extends AbstractTableModel {
+
+    /**
+     * Order of the entries by title.
+     */
+    private static final Comparator<Entry> TITLE_ORDER = Comparator
+            .comparing(Entry::getTitle, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(Entry::getTitle, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /**
+     * Maximum number of entries with cached cell values.
+     */
+    private static final int VALUE_CACHE_SIZE = 1024;
+
+    /**
+     * Column of the table.
+     */
+    public static final class Column {
+
+        private final String name;
+        private final Function<Entry, String> value;
+        private final ToLongFunction<Entry> time;
+        private final boolean title;
+
+        private Column(String name, Function<Entry, String> value, ToLongFunction<Entry> time, boolean title) {
+            this.name = name;
+            this.value = value;
+            this.time = time;
+            this.title = title;
+        }
+
+        /**
+         * Creates a column of the entry titles.
+         *
+         * @param name the column name
+         * @return the column
+         */
+        public static Column title(String name) {
+            return new Column(name, Entry::getTitle, null, true);
+        }
+
+        /**
+         * Creates a column of texts, sorted ignoring case.
+         *
+         * @param name the column name
+         * @param value the text of an entry
+         * @return the column
+         */
+        public static Column text(String name, Function<Entry, String> value) {
+            return new Column(name, value, null, false);
+        }
+
+        /**
+         * Creates a column of formatted timestamps, sorted by the timestamps.
+         *
+         * @param name the column name
+         * @param value the formatted timestamp of an entry
+         * @param time the timestamp of an entry
+         * @return the column
+         */
+        public static Column time(String name, Function<Entry, String> value, ToLongFunction<Entry> time) {
+            return new Column(name, value, time, false);
+        }
+
+        public String getName() {
+            return this.name;
+        }
+    }
+
+    private final List<Column> columns;
+
+    /**
+     * Sorted column, -1 if the entries are sorted by title.
+     */
+    private int sortColumn = -1;
+    private boolean sortAscending = true;
+    private Comparator<Entry> order = TITLE_ORDER;
+
+    /**
+     * Cached title keys, and text keys of each text column.
+     */
+    private final Map<Entry, byte[]> titleKeys = new IdentityHashMap<>();
+    private final List<Map<Entry, byte[]>> textKeys;
+
+    /**
+     * All entries sorted by title, kept for sorting by other columns until the
+     * entries are changed.
+     */
+    private Entry[] titleOrder = null;
+
+    /**
+     * All entries in sorted order.
+     */
+    private final ArrayList<Entry> entries = new ArrayList<>();
+
+    /**
+     * Entries matching the filter in sorted order, the same list as
+     * {@link #entries} if there is no filter.
+     */
+    private ArrayList<Entry> rows = this.entries;
+    private Predicate<Entry> filter = null;
+
+    /**
+     * Number of changes of the entries, used for detecting stale filter
+     * results.
+     */
+    private int modificationCount = 0;
+
+    /**
+     * Cell values of the recently painted entries, least recently used first.
+     */
+    private final Map<Entry, String[]> valueCache = new LinkedHashMap<Entry, String[]>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Entry, String[]> eldest) {
+            return size() > VALUE_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Creates a new table model.
+     *
+     * @param columns the columns
+     */
+    public EntryTableModel(List<Column> columns) {
+        this.columns = new ArrayList<>(columns);
+        this.textKeys = new ArrayList<>();
+        for (Column column : this.columns) {
+            this.textKeys.add(column.title || column.time != null ? null : new IdentityHashMap<>());
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return this.rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return this.columns.size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return this.columns.get(column).name;
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Entry entry = this.rows.get(row);
+        String[] values = this.valueCache.get(entry);
+        if (values == null) {
+            values = new String[this.columns.size()];
+            this.valueCache.put(entry, values);
+        }
+        if (values[column] == null) {
+            values[column] = this.columns.get(column).value.apply(entry);
+        }
+        return values[column];
+    }
+
+    /**
+     * Gets the entry of a row.
+     *
+     * @param row the row index
+     * @return the entry
+     */
+    public Entry getEntry(int row) {
+        return this.rows.get(row);
+    }
+
+    /**
+     * Gets the row of an entry.
+     *
+     * @param entry the entry
+     * @return the row index, or -1 if the entry is not displayed
+     */
+    public int getRow(Entry entry) {
+        return find(this.rows, entry);
+    }
+
+    /**
+     * Gets the number of all entries, including the ones not matching the
+     * filter.
+     *
+     * @return number of entries
+     */
+    public int getEntryCount() {
+        return this.entries.size();
+    }
+
+    /**
+     * Replaces all entries of the model.
+     *
+     * @param newEntries the entries
+     */
+    public void setEntries(Collection<Entry> newEntries) {
+        setEntries(newEntries, this.filter);
+    }
+
+    /**
+     * Replaces all entries and the filter of the model.
+     *
+     * @param newEntries the entries
+     * @param newFilter the filter, or {@code null} to display all entries
+     */
+    public void setEntries(Collection<Entry> newEntries, Predicate<Entry> newFilter) {
+        this.modificationCount++;
+        this.titleOrder = null;
+        this.valueCache.clear();
+        clearKeys();
+        this.entries.clear();
+        this.entries.addAll(newEntries);
+        sortEntries();
+        this.filter = newFilter;
+        applyFilter();
+    }
+
+    /**
+     * Adds entries to the model. The entries are sorted and merged into the
+     * current entries, so loading a document in batches does not sort the
+     * whole list again for every batch.
+     *
+     * @param newEntries the entries
+     */
+    public void addEntries(Collection<Entry> newEntries) {
+        if (newEntries.size() == 1) {
+            addEntry(newEntries.iterator().next());
+            return;
+        }
+        this.modificationCount++;
+        this.titleOrder = null;
+        List<Entry> sorted = new ArrayList<>(newEntries);
+        sorted.sort(this.order);
+        merge(this.entries, sorted);
+        if (this.rows != this.entries) {
+            sorted.removeIf(this.filter.negate());
+            merge(this.rows, sorted);
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Adds an entry to the model.
+     *
+     * @param entry the entry
+     */
+    public void addEntry(Entry entry) {
+        this.modificationCount++;
+        this.titleOrder = null;
+        int row = insert(this.entries, entry);
+        if (this.rows != this.entries) {
+            if (!this.filter.test(entry)) {
+                return;
+            }
+            row = insert(this.rows, entry);
+        }
+        fireTableRowsInserted(row, row);
+    }
+
+    /**
+     * Replaces an entry with its edited version. If the sorted position does
+     * not change, the entry is replaced in place.
+     *
+     * @param original the original entry
+     * @param replacement the edited entry
+     */
+    public void replaceEntry(Entry original, Entry replacement) {
+        int index = find(this.entries, original);
+        if (index == -1 || !isInPlace(this.entries, index, replacement)) {
+            removeEntry(original);
+            addEntry(replacement);
+            return;
+        }
+        this.modificationCount++;
+        this.titleOrder = null;
+        this.valueCache.remove(original);
+        removeKeys(original);
+        this.entries.set(index, replacement);
+        if (this.rows == this.entries) {
+            fireTableRowsUpdated(index, index);
+            return;
+        }
+        int row = find(this.rows, original);
+        boolean matches = this.filter.test(replacement);
+        if (row != -1 && matches) {
+            this.rows.set(row, replacement);
+            fireTableRowsUpdated(row, row);
+        } else if (row != -1) {
+            this.rows.remove(row);
+            fireTableRowsDeleted(row, row);
+        } else if (matches) {
+            row = insert(this.rows, replacement);
+            fireTableRowsInserted(row, row);
+        }
+    }
+
+    /**
+     * Removes an entry from the model.
+     *
+     * @param entry the entry
+     */
+    public void removeEntry(Entry entry) {
+        int index = find(this.entries, entry);
+        if (index == -1) {
+            return;
+        }
+        this.modificationCount++;
+        this.titleOrder = null;
+        this.valueCache.remove(entry);
+        removeKeys(entry);
+        this.entries.remove(index);
+        int row = index;
+        if (this.rows != this.entries) {
+            row = find(this.rows, entry);
+            if (row == -1) {
+                return;
+            }
+            this.rows.remove(row);
+        }
+        fireTableRowsDeleted(row, row);
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        this.modificationCount++;
+        this.titleOrder = null;
+        this.valueCache.clear();
+        clearKeys();
+        this.entries.clear();
+        this.entries.trimToSize();
+        applyFilter();
+    }
+
+    /**
+     * Sorts the entries by a column. Sorting by the sorted column again
+     * reverses the order.
+     *
+     * @param column the column
+     */
+    public void sortBy(int column) {
+        sortBy(column, column != this.sortColumn || !this.sortAscending);
+    }
+
+    /**
+     * Sorts the entries by a column.
+     *
+     * @param column the column, or -1 to sort by title
+     * @param ascending the direction
+     */
+    public void sortBy(int column, boolean ascending) {
+        this.modificationCount++;
+        this.sortColumn = column;
+        this.sortAscending = ascending;
+        this.order = createOrder();
+        sortEntries();
+        applyFilter();
+    }
+
+    /**
+     * Gets the sorted column.
+     *
+     * @return the sorted column, or -1 if the entries are sorted by title
+     */
+    public int getSortColumn() {
+        return this.sortColumn;
+    }
+
+    public boolean isSortAscending() {
+        return this.sortAscending;
+    }
+
+    /**
+     * Gets the order of the entries, for sorting entries searched in the
+     * background.
+     *
+     * @return the order
+     */
+    public Comparator<Entry> getOrder() {
+        return this.order;
+    }
+
+    /**
+     * Sets the filter of the rows. The sorted entries are filtered again, but
+     * not sorted.
+     *
+     * @param filter the filter, or {@code null} to display all entries
+     */
+    public void setFilter(Predicate<Entry> filter) {
+        this.filter = filter;
+        applyFilter();
+    }
+
+    /**
+     * Sets the filter of the rows together with the entries matching it, which
+     * were searched in the background.
+     *
+     * @param filter the filter
+     * @param filteredEntries the sorted entries matching the filter
+     * @param modificationCount the modification count of the copied entries
+     * @return {@code true} if the rows are set, {@code false} if the entries
+     * have been changed since they were copied
+     */
+    public boolean setFilter(Predicate<Entry> filter, List<Entry> filteredEntries, int modificationCount) {
+        if (modificationCount != this.modificationCount) {
+            return false;
+        }
+        this.filter = filter;
+        this.rows = new ArrayList<>(filteredEntries);
+        fireTableDataChanged();
+        return true;
+    }
+
+    /**
+     * Gets the number of changes of the entries.
+     *
+     * @return the modification count
+     */
+    public int getModificationCount() {
+        return this.modificationCount;
+    }
+
+    private void applyFilter() {
+        if (this.filter == null) {
+            this.rows = this.entries;
+        } else {
+            ArrayList<Entry> filtered = new ArrayList<>();
+            for (Entry entry : this.entries) {
+                if (this.filter.test(entry)) {
+                    filtered.add(entry);
+                }
+            }
+            this.rows = filtered;
+        }
+        fireTableDataChanged();
+    }
+
+    private Comparator<Entry> createOrder() {
+        Column column = this.sortColumn == -1 ? null : this.columns.get(this.sortColumn);
+        if (column == null || column.title) {
+            return this.sortAscending ? TITLE_ORDER : TITLE_ORDER.reversed();
+        }
+        Comparator<Entry> keyOrder;
+        if (column.time != null) {
+            keyOrder = Comparator.comparingLong(column.time);
+        } else {
+            Function<Entry, String> value = column.value;
+            keyOrder = Comparator.comparing(entry -> {
+                String text = value.apply(entry);
+                return text == null ? "" : text;
+            }, String.CASE_INSENSITIVE_ORDER);
+        }
+        return (this.sortAscending ? keyOrder : keyOrder.reversed()).thenComparing(TITLE_ORDER);
+    }
+
+    /**
+     * Sorts all entries by the primitive keys of the sorted column. The
+     * entries are sorted by title first, and the stable sort of other columns
+     * keeps the title order of equal keys.
+     */
+    private void sortEntries() {
+        int size = this.entries.size();
+        if (this.titleOrder == null) {
+            Entry[] unsorted = this.entries.toArray(new Entry[size]);
+            byte[][] keys = new byte[size][];
+            for (int i = 0; i < size; i++) {
+                keys[i] = getKey(this.titleKeys, unsorted[i], Entry::getTitle, true);
+            }
+            int[] sorted = SortKeys.sort(keys, true);
+            this.titleOrder = new Entry[size];
+            for (int i = 0; i < size; i++) {
+                this.titleOrder[i] = unsorted[sorted[i]];
+            }
+        }
+        Entry[] byTitle = this.titleOrder;
+
+        Column column = this.sortColumn == -1 ? null : this.columns.get(this.sortColumn);
+        int[] sorted;
+        if (column == null || column.title) {
+            sorted = null;
+        } else if (column.time != null) {
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = column.time.applyAsLong(byTitle[i]);
+            }
+            sorted = SortKeys.sort(keys, this.sortAscending);
+        } else {
+            Map<Entry, byte[]> cache = this.textKeys.get(this.sortColumn);
+            byte[][] keys = new byte[size][];
+            for (int i = 0; i < size; i++) {
+                keys[i] = getKey(cache, byTitle[i], column.value, false);
+            }
+            sorted = SortKeys.sort(keys, this.sortAscending);
+        }
+
+        this.entries.clear();
+        this.entries.ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            if (sorted != null) {
+                this.entries.add(byTitle[sorted[i]]);
+            } else {
+                this.entries.add(byTitle[this.sortAscending ? i : size - 1 - i]);
+            }
+        }
+    }
+
+    private static byte[] getKey(Map<Entry, byte[]> cache, Entry entry, Function<Entry, String> value, boolean title) {
+        byte[] key = cache.get(entry);
+        if (key == null) {
+            String text = value.apply(entry);
+            key = title ? SortKeys.titleKey(text) : SortKeys.textKey(text);
+            cache.put(entry, key);
+        }
+        return key;
+    }
+
+    private void removeKeys(Entry entry) {
+        this.titleKeys.remove(entry);
+        for (Map<Entry, byte[]> cache : this.textKeys) {
+            if (cache != null) {
+                cache.remove(entry);
+            }
+        }
+    }
+
+    private void clearKeys() {
+        this.titleKeys.clear();
+        for (Map<Entry, byte[]> cache : this.textKeys) {
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    /**
+     * Inserts an entry at its sorted position, after the equal entries.
+     */
+    private int insert(List<Entry> list, Entry entry) {
+        int index = Collections.binarySearch(list, entry, this.order);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            while (index < list.size() && this.order.compare(list.get(index), entry) == 0) {
+                index++;
+            }
+        }
+        list.add(index, entry);
+        return index;
+    }
+
+    /**
+     * Finds an entry by identity around its sorted position.
+     */
+    private int find(List<Entry> list, Entry entry) {
+        int index = Collections.binarySearch(list, entry, this.order);
+        if (index < 0) {
+            return -1;
+        }
+        for (int i = index; i >= 0 && this.order.compare(list.get(i), entry) == 0; i--) {
+            if (list.get(i) == entry) {
+                return i;
+            }
+        }
+        for (int i = index + 1; i < list.size() && this.order.compare(list.get(i), entry) == 0; i++) {
+            if (list.get(i) == entry) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the entry keeps the order if it is put to the index.
+     */
+    private boolean isInPlace(List<Entry> list, int index, Entry entry) {
+        return (index == 0 || this.order.compare(list.get(index - 1), entry) <= 0)
+                && (index == list.size() - 1 || this.order.compare(entry, list.get(index + 1)) <= 0);
+    }
+
+    /**
+     * Merges sorted entries into a sorted list.
+     */
+    private void merge(ArrayList<Entry> list, List<Entry> sorted) {
+        if (sorted.isEmpty()) {
+            return;
+        }
+        if (list.isEmpty() || this.order.compare(list.get(list.size() - 1), sorted.get(0)) <= 0) {
+            list.addAll(sorted);
+            return;
+        }
+        Entry[] merged = new Entry[list.size() + sorted.size()];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < list.size() && j < sorted.size()) {
+            if (this.order.compare(sorted.get(j), list.get(i)) < 0) {
+                merged[k++] = sorted.get(j++);
+            } else {
+                merged[k++] = list.get(i++);
+            }
+        }
+        while (i < list.size()) {
+            merged[k++] = list.get(i++);
+        }
+        while (j < sorted.size()) {
+            merged[k++] = sorted.get(j++);
+        }
+        list.clear();
+        Collections.addAll(list, merged);
+    }
+}
@@ -39,9 +39,6 @@ import jpass.xml.bind.Entry;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.event.KeyEvent;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -49,7 +46,6 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.swing.JFrame;
-import javax.swing.JTable;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JPanel;
@@ -91,6 +87,7 @@ public final class JPassFrame extends JFrame {
     private final JScrollPane scrollPane;
 
     private final EntryDetailsTable entryDetailsTable;
+    private final EntrySearchExecutor searchExecutor;
     private final DataModel model = DataModel.getInstance();
     private final StatusPanel statusPanel;
     private volatile boolean processing = false;
@@ -125,7 +122,7 @@ public final class JPassFrame extends JFrame {
 
         this.searchPanel = new SearchPanel(enabled -> {
             if (enabled) {
-                refreshEntryTitleList(null);
+                filterEntryTitleList();
             }
         });
 
@@ -190,6 +187,8 @@ public final class JPassFrame extends JFrame {
         this.popup.add(MenuActionType.FIND_ENTRY.getAction());
 
         this.entryDetailsTable = new EntryDetailsTable();
+        this.searchExecutor = new EntrySearchExecutor(this.entryDetailsTable.getEntryTableModel(), this.model.getSearchIndex(),
+                Configuration.getInstance().getInteger("search.debounce.delay", 150));
         this.scrollPane = new JScrollPane(this.entryDetailsTable);
         MenuActionType.bindAllActions(this.entryDetailsTable);
 
@@ -230,7 +229,7 @@ public final class JPassFrame extends JFrame {
      *
      * @return entry title list
      */
-    public JTable getEntryTitleTable() {
+    public EntryDetailsTable getEntryTitleTable() {
         return this.entryDetailsTable;
     }
 
@@ -247,6 +246,7 @@ public final class JPassFrame extends JFrame {
      * Clears data model.
      */
     public void clearModel() {
+        this.searchExecutor.cancel();
         this.model.clear();
         this.entryDetailsTable.clear();
     }
@@ -260,35 +260,87 @@ public final class JPassFrame extends JFrame {
                 + PROGRAM_NAME);
     }
 
+    /**
+     * Appends entries to the entry table while a file is being loaded. The
+     * entry table is refreshed from the data model when loading has finished.
+     *
+     * @param entries the loaded entries
+     * @param loadedCount number of entries loaded so far
+     */
+    public void appendLoadedEntries(List<Entry> entries, int loadedCount) {
+        this.entryDetailsTable.getEntryTableModel().addEntries(entries);
+        this.statusPanel.setText("Loading entries: " + loadedCount);
+    }
+
     /**
      * Refresh the entry titles based on data model.
      *
      * @param selectTitle title to select, or {@code null} if nothing to select
      */
     public void refreshEntryTitleList(String selectTitle) {
-        this.entryDetailsTable.clear();
-        List<Entry> entries = new ArrayList<>(this.model.getEntries().getEntry());
-        Collections.sort(entries, Comparator.comparing(Entry::getTitle, String.CASE_INSENSITIVE_ORDER));
+        this.searchExecutor.cancel();
+        EntryTableModel tableModel = this.entryDetailsTable.getEntryTableModel();
         String searchCriteria = this.searchPanel.getSearchCriteria();
-        entries.stream()
-                .filter(entry -> searchCriteria.isEmpty() || entry.getTitle().toLowerCase().contains(searchCriteria.toLowerCase()))
-                .forEach(this.entryDetailsTable::addRow);
-
+        tableModel.setEntries(this.model.getEntries().getEntry(),
+                searchCriteria.isEmpty() ? null : this.model.getSearchIndex().createFilter(searchCriteria));
         if (selectTitle != null) {
-            int rowCount = this.entryDetailsTable.getModel().getRowCount();
-            for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
-                String title = String.valueOf(this.entryDetailsTable.getModel().getValueAt(rowIndex, 0));
-                if (selectTitle.equals(title)) {
-                    this.entryDetailsTable.setRowSelectionInterval(rowIndex, rowIndex);
-                    break;
-                }
+            Entry entry = this.model.getEntryByTitle(selectTitle);
+            if (entry != null) {
+                this.entryDetailsTable.selectEntry(entry);
             }
         }
+        refreshStatus();
+    }
+
+    /**
+     * Filters the entry titles by the search criteria. The entries are not
+     * sorted again, they are filtered in the background once the search
+     * criteria has not changed for the debounce delay.
+     */
+    public void filterEntryTitleList() {
+        this.searchExecutor.search(this.searchPanel.getSearchCriteria(), this::refreshStatus);
+    }
+
+    /**
+     * Adds a new entry of the data model to the entry titles and selects it.
+     *
+     * @param entry the added entry
+     */
+    public void refreshAddedEntry(Entry entry) {
+        this.entryDetailsTable.getEntryTableModel().addEntry(entry);
+        this.entryDetailsTable.selectEntry(entry);
+        refreshStatus();
+    }
+
+    /**
+     * Replaces an edited entry of the data model in the entry titles and
+     * selects it.
+     *
+     * @param original the original entry
+     * @param entry the edited entry
+     */
+    public void refreshReplacedEntry(Entry original, Entry entry) {
+        this.entryDetailsTable.getEntryTableModel().replaceEntry(original, entry);
+        this.entryDetailsTable.selectEntry(entry);
+        refreshStatus();
+    }
+
+    /**
+     * Removes a deleted entry of the data model from the entry titles.
+     *
+     * @param entry the deleted entry
+     */
+    public void refreshRemovedEntry(Entry entry) {
+        this.entryDetailsTable.getEntryTableModel().removeEntry(entry);
+        refreshStatus();
+    }
 
-        if (searchCriteria.isEmpty()) {
-            this.statusPanel.setText("Entries count: " + entries.size());
+    private void refreshStatus() {
+        EntryTableModel tableModel = this.entryDetailsTable.getEntryTableModel();
+        if (this.searchPanel.getSearchCriteria().isEmpty()) {
+            this.statusPanel.setText("Entries count: " + tableModel.getEntryCount());
         } else {
-            this.statusPanel.setText("Entries found: " + this.entryDetailsTable.getRowCount() + " / " + entries.size());
+            this.statusPanel.setText("Entries found: " + tableModel.getRowCount() + " / " + tableModel.getEntryCount());
         }
     }
 
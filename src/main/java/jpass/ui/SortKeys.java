@@ -0,0 +1,276 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.ui;
+
+/**
+ * Primitive sort keys of table columns and an index sort using them.
+ * <p>
+ * Text keys are the UTF-16 code units of the case folded text in big-endian
+ * byte order, so comparing the keys as unsigned bytes gives the order of
+ * {@link String#CASE_INSENSITIVE_ORDER}. Title keys are followed by a zero code
+ * unit and the original text, which breaks the ties of titles differing only
+ * in case by their natural order. Titles cannot contain the zero code unit, as
+ * it is not a valid XML character.
+ * </p>
+ * <p>
+ * The sorts are stable merge sorts of the key indexes, specialized for the key
+ * types, so no comparator is called or allocated.
+ * </p>
+ */
+final class SortKeys {
+
+    private static final byte[] NULL_KEY = new byte[0];
+
+    /**
+     * Length of the runs sorted by insertion before merging.
+     */
+    private static final int RUN_LENGTH = 16;
+
+    private SortKeys() {
+        // not intended to be instantiated
+    }
+
+    /**
+     * Creates the key of a text, ordered like
+     * {@link String#CASE_INSENSITIVE_ORDER}. {@code null} is ordered as an
+     * empty text.
+     *
+     * @param text the text
+     * @return the key
+     */
+    static byte[] textKey(String text) {
+        if (text == null) {
+            return NULL_KEY;
+        }
+        byte[] key = new byte[text.length() * 2];
+        putFolded(text, key, 0);
+        return key;
+    }
+
+    /**
+     * Creates the key of a title, ordered like the titles of the entry table:
+     * ignoring case first, then by natural order. {@code null} is ordered
+     * first.
+     *
+     * @param title the title
+     * @return the key
+     */
+    static byte[] titleKey(String title) {
+        if (title == null) {
+            return NULL_KEY;
+        }
+        int length = title.length();
+        byte[] key = new byte[length * 4 + 2];
+        putFolded(title, key, 0);
+        int offset = length * 2 + 2;
+        for (int i = 0; i < length; i++) {
+            char c = title.charAt(i);
+            key[offset++] = (byte) (c >>> 8);
+            key[offset++] = (byte) c;
+        }
+        return key;
+    }
+
+    private static void putFolded(String text, byte[] key, int offset) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(Character.toUpperCase(text.charAt(i)));
+            key[offset++] = (byte) (c >>> 8);
+            key[offset++] = (byte) c;
+        }
+    }
+
+    /**
+     * Compares two keys as unsigned bytes.
+     *
+     * @param first the first key
+     * @param second the second key
+     * @return the comparison result
+     */
+    static int compare(byte[] first, byte[] second) {
+        return compare(first, second, 0);
+    }
+
+    private static int compare(byte[] first, byte[] second, int offset) {
+        int length = Math.min(first.length, second.length);
+        for (int i = offset; i < length; i++) {
+            if (first[i] != second[i]) {
+                return (first[i] & 0xff) - (second[i] & 0xff);
+            }
+        }
+        return first.length - second.length;
+    }
+
+    /**
+     * Sorts the indexes of timestamp keys. Indexes of equal keys keep their
+     * order.
+     *
+     * @param keys the keys
+     * @param ascending the direction
+     * @return the sorted indexes
+     */
+    static int[] sort(long[] keys, boolean ascending) {
+        int length = keys.length;
+        int[] indexes = identity(length);
+        for (int start = 0; start < length; start += RUN_LENGTH) {
+            int end = Math.min(start + RUN_LENGTH, length);
+            for (int i = start + 1; i < end; i++) {
+                int index = indexes[i];
+                int j = i - 1;
+                while (j >= start && compare(keys[indexes[j]], keys[index], ascending) > 0) {
+                    indexes[j + 1] = indexes[j];
+                    j--;
+                }
+                indexes[j + 1] = index;
+            }
+        }
+        int[] source = indexes;
+        int[] target = new int[length];
+        for (int width = RUN_LENGTH; width < length; width *= 2) {
+            for (int start = 0; start < length; start += 2 * width) {
+                int middle = Math.min(start + width, length);
+                int end = Math.min(start + 2 * width, length);
+                int i = start;
+                int j = middle;
+                int k = start;
+                while (i < middle && j < end) {
+                    if (compare(keys[source[j]], keys[source[i]], ascending) < 0) {
+                        target[k++] = source[j++];
+                    } else {
+                        target[k++] = source[i++];
+                    }
+                }
+                System.arraycopy(source, i, target, k, middle - i);
+                k += middle - i;
+                System.arraycopy(source, j, target, k, end - j);
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        return source;
+    }
+
+    private static int compare(long first, long second, boolean ascending) {
+        return ascending ? Long.compare(first, second) : Long.compare(second, first);
+    }
+
+    /**
+     * Sorts the indexes of text or title keys. Indexes of equal keys keep their
+     * order. The first eight bytes after the common prefix of all keys, such
+     * as a common URL scheme, are compared as numbers.
+     *
+     * @param keys the keys
+     * @param ascending the direction
+     * @return the sorted indexes
+     */
+    static int[] sort(byte[][] keys, boolean ascending) {
+        int length = keys.length;
+        int offset = length == 0 ? 0 : keys[0].length;
+        for (int i = 1; i < length && offset > 0; i++) {
+            offset = Math.min(offset, mismatch(keys[0], keys[i]));
+        }
+        long[] prefixes = new long[length];
+        for (int i = 0; i < length; i++) {
+            prefixes[i] = prefix(keys[i], offset);
+        }
+        int[] indexes = identity(length);
+        for (int start = 0; start < length; start += RUN_LENGTH) {
+            int end = Math.min(start + RUN_LENGTH, length);
+            for (int i = start + 1; i < end; i++) {
+                int index = indexes[i];
+                int j = i - 1;
+                while (j >= start && compare(keys, prefixes, offset, indexes[j], index, ascending) > 0) {
+                    indexes[j + 1] = indexes[j];
+                    j--;
+                }
+                indexes[j + 1] = index;
+            }
+        }
+        int[] source = indexes;
+        int[] target = new int[length];
+        for (int width = RUN_LENGTH; width < length; width *= 2) {
+            for (int start = 0; start < length; start += 2 * width) {
+                int middle = Math.min(start + width, length);
+                int end = Math.min(start + 2 * width, length);
+                int i = start;
+                int j = middle;
+                int k = start;
+                while (i < middle && j < end) {
+                    if (compare(keys, prefixes, offset, source[j], source[i], ascending) < 0) {
+                        target[k++] = source[j++];
+                    } else {
+                        target[k++] = source[i++];
+                    }
+                }
+                System.arraycopy(source, i, target, k, middle - i);
+                k += middle - i;
+                System.arraycopy(source, j, target, k, end - j);
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        return source;
+    }
+
+    private static int compare(byte[][] keys, long[] prefixes, int offset, int first, int second,
+            boolean ascending) {
+        int result = Long.compareUnsigned(prefixes[first], prefixes[second]);
+        if (result == 0) {
+            result = compare(keys[first], keys[second], offset + Long.BYTES);
+        }
+        return ascending ? result : -result;
+    }
+
+    private static int mismatch(byte[] first, byte[] second) {
+        int length = Math.min(first.length, second.length);
+        for (int i = 0; i < length; i++) {
+            if (first[i] != second[i]) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private static long prefix(byte[] key, int offset) {
+        long prefix = 0;
+        for (int i = offset; i < offset + Long.BYTES; i++) {
+            prefix = (prefix << 8) | (i < key.length ? key[i] & 0xff : 0);
+        }
+        return prefix;
+    }
+
+    private static int[] identity(int length) {
+        int[] indexes = new int[length];
+        for (int i = 0; i < length; i++) {
+            indexes[i] = i;
+        }
+        return indexes;
+    }
+}
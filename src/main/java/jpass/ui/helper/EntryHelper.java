@@ -63,11 +63,11 @@ public final class EntryHelper {
         }
         int option = showQuestionMessage(parent, "Do you really want to delete this entry?", YES_NO_OPTION);
         if (option == YES_OPTION) {
-            String title = (String) parent.getEntryTitleTable().getValueAt(parent.getEntryTitleTable().getSelectedRow(), 0);
-            parent.getModel().getEntries().getEntry().remove(parent.getModel().getEntryByTitle(title));
+            Entry entry = parent.getEntryTitleTable().getSelectedEntry();
+            parent.getModel().removeEntry(entry);
             parent.getModel().setModified(true);
             parent.refreshFrameTitle();
-            parent.refreshEntryTitleList(null);
+            parent.refreshRemovedEntry(entry);
         }
     }
 
@@ -81,14 +81,13 @@ public final class EntryHelper {
             showWarningMessage(parent, "Please select an entry.");
             return;
         }
-        String title = (String) parent.getEntryTitleTable().getValueAt(parent.getEntryTitleTable().getSelectedRow(), 0);
-        Entry originalEntry = parent.getModel().getEntryByTitle(title);
+        Entry originalEntry = parent.getEntryTitleTable().getSelectedEntry();
         EntryDialog dialog = new EntryDialog(parent, "Duplicate Entry", originalEntry, true);
         dialog.getModifiedEntry().ifPresent(entry -> {
-            parent.getModel().getEntries().getEntry().add(entry);
+            parent.getModel().addEntry(entry);
             parent.getModel().setModified(true);
             parent.refreshFrameTitle();
-            parent.refreshEntryTitleList(entry.getTitle());
+            parent.refreshAddedEntry(entry);
         });
     }
 
@@ -102,16 +101,14 @@ public final class EntryHelper {
             showWarningMessage(parent, "Please select an entry.");
             return;
         }
-        String title = (String) parent.getEntryTitleTable().getValueAt(parent.getEntryTitleTable().getSelectedRow(), 0);
-        Entry originalEntry = parent.getModel().getEntryByTitle(title);
+        Entry originalEntry = parent.getEntryTitleTable().getSelectedEntry();
         EntryDialog dialog = new EntryDialog(parent, "Edit Entry", originalEntry, false);
         dialog.getModifiedEntry().ifPresent(entry -> {
             entry.setCreationDate(originalEntry.getCreationDate());
-            parent.getModel().getEntries().getEntry().remove(originalEntry);
-            parent.getModel().getEntries().getEntry().add(entry);
+            parent.getModel().replaceEntry(originalEntry, entry);
             parent.getModel().setModified(true);
             parent.refreshFrameTitle();
-            parent.refreshEntryTitleList(entry.getTitle());
+            parent.refreshReplacedEntry(originalEntry, entry);
         });
     }
 
@@ -123,10 +120,10 @@ public final class EntryHelper {
     public static void addEntry(JPassFrame parent) {
         EntryDialog dialog = new EntryDialog(parent, "Add New Entry", null, true);
         dialog.getModifiedEntry().ifPresent(entry -> {
-            parent.getModel().getEntries().getEntry().add(entry);
+            parent.getModel().addEntry(entry);
             parent.getModel().setModified(true);
             parent.refreshFrameTitle();
-            parent.refreshEntryTitleList(entry.getTitle());
+            parent.refreshAddedEntry(entry);
         });
     }
 
@@ -141,8 +138,7 @@ public final class EntryHelper {
             showWarningMessage(parent, "Please select an entry.");
             return null;
         }
-        String title = (String) parent.getEntryTitleTable().getValueAt(parent.getEntryTitleTable().getSelectedRow(), 0);
-        return parent.getModel().getEntryByTitle(title);
+        return parent.getEntryTitleTable().getSelectedEntry();
     }
 
     /**
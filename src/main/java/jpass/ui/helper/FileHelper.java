@@ -31,14 +31,20 @@ package jpass.ui.helper;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.JFileChooser;
+import javax.swing.SwingUtilities;
 import javax.swing.filechooser.FileFilter;
 
+import jpass.data.DocumentPreloader;
 import jpass.data.EntriesRepository;
 import jpass.ui.JPassFrame;
 import jpass.ui.action.Worker;
 import jpass.util.Configuration;
+import jpass.xml.bind.Entries;
+import jpass.xml.bind.Entry;
 
 import static jpass.ui.MessageDialog.showPasswordDialog;
 import static jpass.ui.MessageDialog.showWarningMessage;
@@ -75,6 +81,11 @@ public final class FileHelper {
             = "File is already exists:\n%s\n\nDo you want to overwrite?";
 
     private static final String JPASS_DATA_FILES = "JPass Data Files (*.jpass)";
+
+    /**
+     * Number of entries shown together while a file is being loaded.
+     */
+    private static final int LOADED_ENTRIES_BATCH_SIZE = 500;
     private static final String XML_FILES = "XML Files (*.xml)";
 
     private FileHelper() {
@@ -230,9 +241,11 @@ public final class FileHelper {
             @Override
             protected Void doInBackground() throws Exception {
                 try {
-                    EntriesRepository.newInstance(fileName, password).writeDocument(parent.getModel().getEntries());
+                    EntriesRepository repository = EntriesRepository.newInstance(fileName, password, parent.getModel().getKeyMaterial());
+                    repository.writeDocument(parent.getModel().getEntries());
                     parent.getModel().setFileName(fileName);
                     parent.getModel().setPassword(password);
+                    parent.getModel().setKeyMaterial(repository.getKeyMaterial());
                     parent.getModel().setModified(false);
                 } catch (Throwable e) {
                     throw new Exception(format(OPERATION_ERROR_MESSAGE, "save", e.getMessage()));
@@ -291,17 +304,32 @@ public final class FileHelper {
         if (fileName == null) {
             return;
         }
+        // read the file header and prepare reading while the password is being entered
+        final DocumentPreloader preloader = DocumentPreloader.start(fileName);
         final char[] password = showPasswordDialog(parent, false);
         if (password == null) {
+            preloader.cancel();
             return;
         }
+        preloader.deriveKey(password);
         Worker worker = new Worker(parent) {
             @Override
             protected Void doInBackground() throws Exception {
                 try {
-                    parent.getModel().setEntries(EntriesRepository.newInstance(fileName, password).readDocument());
+                    EntriesRepository repository = EntriesRepository.newInstance(fileName, password, preloader.getKeyMaterial());
+                    Entries entries = new Entries();
+                    List<Entry> batch = new ArrayList<>();
+                    repository.readDocument(entry -> {
+                        entries.getEntry().add(entry);
+                        batch.add(entry);
+                        if (batch.size() >= LOADED_ENTRIES_BATCH_SIZE) {
+                            publishLoadedEntries(parent, batch, entries.getEntry().size());
+                        }
+                    });
+                    parent.getModel().setEntries(entries);
                     parent.getModel().setFileName(fileName);
                     parent.getModel().setPassword(password);
+                    parent.getModel().setKeyMaterial(repository.getKeyMaterial());
                     parent.getSearchPanel().setVisible(false);
                 } catch (FileNotFoundException e) {
                     throw e;
@@ -330,6 +358,20 @@ public final class FileHelper {
         worker.execute();
     }
 
+    /**
+     * Shows the loaded entries on the event dispatch thread, and clears the
+     * given batch.
+     *
+     * @param parent parent frame
+     * @param batch the loaded entries to show
+     * @param loadedCount number of entries loaded so far
+     */
+    private static void publishLoadedEntries(final JPassFrame parent, final List<Entry> batch, final int loadedCount) {
+        final List<Entry> entries = new ArrayList<>(batch);
+        batch.clear();
+        SwingUtilities.invokeLater(() -> parent.appendLoadedEntries(entries, loadedCount));
+    }
+
     /**
      * Handles file not found exception.
      *
@@ -344,9 +386,11 @@ public final class FileHelper {
                 @Override
                 protected Void doInBackground() throws Exception {
                     try {
-                        EntriesRepository.newInstance(fileName, password).writeDocument(parent.getModel().getEntries());
+                        EntriesRepository repository = EntriesRepository.newInstance(fileName, password);
+                        repository.writeDocument(parent.getModel().getEntries());
                         parent.getModel().setFileName(fileName);
                         parent.getModel().setPassword(password);
+                        parent.getModel().setKeyMaterial(repository.getKeyMaterial());
                     } catch (Exception ex) {
                         throw new Exception(format(OPERATION_ERROR_MESSAGE, "open", ex.getMessage()));
                     }
@@ -31,10 +31,9 @@ package jpass.util;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.time.temporal.ChronoUnit;
-import java.util.Date;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,19 +53,69 @@ public class DateUtils {
     }
 
     public static String formatIsoDateTime(String dateString, DateTimeFormatter formatter) {
-        LocalDateTime dateTime;
-        try {
-            dateTime = LocalDateTime.parse(dateString, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        } catch (DateTimeParseException | NullPointerException e) {
+        return formatTimestamp(parseTimestamp(dateString), formatter);
+    }
+
+    /**
+     * Parses an ISO local date-time or an epoch timestamp in milliseconds into
+     * a local timestamp: the milliseconds of the local date-time since
+     * 1970-01-01T00:00, independent of time zones. ISO local date-times are
+     * kept as they are, even if they fall into a daylight saving time gap of
+     * the system time zone; epoch timestamps are converted to the local
+     * date-time of the system time zone. The format is checked before
+     * parsing, so timestamps of either format are parsed without exceptions.
+     *
+     * @param dateString the date string
+     * @return the local timestamp in milliseconds, 0 if the date string cannot
+     * be parsed
+     */
+    public static long parseTimestamp(String dateString) {
+        if (isEpochTimestamp(dateString)) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(dateString)), ZoneId.systemDefault())
+                    .toInstant(ZoneOffset.UTC)
+                    .toEpochMilli();
+        }
+        if (isIsoDateTime(dateString)) {
             try {
-                // fallback to epoch timestamp
-                Date date = new Date(Long.parseLong(dateString));
-                dateTime = LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
-            } catch (NumberFormatException | DateTimeParseException | NullPointerException ex) {
-                LOG.log(Level.WARNING, String.format("Could not parse timestamp [%s] due to [%s]", dateString, ex.getMessage()));
-                dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(0), ZoneId.systemDefault());
+                return LocalDateTime.parse(dateString, DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+                        .toInstant(ZoneOffset.UTC)
+                        .toEpochMilli();
+            } catch (DateTimeParseException e) {
+                LOG.log(Level.WARNING, String.format("Could not parse timestamp [%s] due to [%s]", dateString, e.getMessage()));
+                return 0;
             }
         }
-        return formatter.format(dateTime.truncatedTo(ChronoUnit.SECONDS));
+        LOG.log(Level.WARNING, String.format("Could not parse timestamp [%s]", dateString));
+        return 0;
+    }
+
+    /**
+     * Formats a local timestamp, truncated to seconds.
+     *
+     * @param localMillis the local timestamp in milliseconds
+     * @param formatter the formatter
+     * @return the formatted timestamp
+     * @see #parseTimestamp(String)
+     */
+    public static String formatTimestamp(long localMillis, DateTimeFormatter formatter) {
+        return formatter.format(LocalDateTime.ofEpochSecond(Math.floorDiv(localMillis, 1000L), 0, ZoneOffset.UTC));
+    }
+
+    private static boolean isEpochTimestamp(String dateString) {
+        if (dateString == null || dateString.isEmpty() || dateString.length() > 18) {
+            return false;
+        }
+        for (int i = 0; i < dateString.length(); i++) {
+            char c = dateString.charAt(i);
+            if ((c < '0' || c > '9') && !(i == 0 && c == '-' && dateString.length() > 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIsoDateTime(String dateString) {
+        return dateString != null && dateString.length() >= 16
+                && dateString.charAt(4) == '-' && dateString.charAt(7) == '-' && dateString.charAt(10) == 'T';
     }
 }
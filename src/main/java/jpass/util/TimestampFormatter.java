@@ -0,0 +1,76 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.util;
+
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Formats timestamps with a date-time formatter, caching the recently
+ * formatted values. Timestamps within the same second share a cached value.
+ */
+public final class TimestampFormatter {
+
+    private static final int CACHE_SIZE = 4096;
+
+    private final DateTimeFormatter formatter;
+    private final Map<Long, String> cache = new LinkedHashMap<Long, String>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Creates a new timestamp formatter.
+     *
+     * @param formatter the date-time formatter
+     */
+    public TimestampFormatter(DateTimeFormatter formatter) {
+        this.formatter = formatter;
+    }
+
+    /**
+     * Formats a local timestamp, truncated to seconds.
+     *
+     * @param localMillis the local timestamp in milliseconds
+     * @return the formatted timestamp
+     * @see DateUtils#formatTimestamp(long, DateTimeFormatter)
+     */
+    public synchronized String format(long localMillis) {
+        Long second = Math.floorDiv(localMillis, 1000L);
+        String formatted = this.cache.get(second);
+        if (formatted == null) {
+            formatted = DateUtils.formatTimestamp(localMillis, this.formatter);
+            this.cache.put(second, formatted);
+        }
+        return formatted;
+    }
+}
@@ -1,8 +1,11 @@
 package jpass.xml.bind;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import jpass.util.DateUtils;
 
 /**
  * <p>
@@ -36,10 +39,27 @@ import java.time.temporal.ChronoUnit;
  * &lt;/complexType&gt;
  * </pre>
  *
+ * <p>
+ * The dates are parsed once, on the first access of their timestamps.
+ *
+ * <p>
+ * Password and notes of entries read from binary entry records are kept as
+ * UTF-8 byte ranges of a buffer which the entries read together share, and
+ * are decoded on every access, so they are not held in memory as strings.
  *
  */
 public class Entry {
 
+    /**
+     * Timestamp value of dates which are not parsed yet.
+     */
+    private static final long UNPARSED = Long.MIN_VALUE;
+
+    /**
+     * Encoded length of fields which are not kept encoded.
+     */
+    private static final int NOT_ENCODED = -2;
+
     protected String title;
     protected String url;
     protected String user;
@@ -47,6 +67,13 @@ public class Entry {
     protected String notes;
     protected String lastModification;
     protected String creationDate;
+    private volatile long creationTime = UNPARSED;
+    private volatile long lastModificationTime = UNPARSED;
+    private byte[] encodedSecrets;
+    private int encodedPasswordOffset;
+    private int encodedPasswordLength;
+    private int encodedNotesOffset;
+    private int encodedNotesLength;
 
     public Entry() {
         String now = LocalDateTime.now()
@@ -56,6 +83,18 @@ public class Entry {
         this.lastModification = now;
     }
 
+    /**
+     * Creates an entry with the given dates, without formatting the current
+     * time as the default dates.
+     *
+     * @param creationDate the creation date
+     * @param lastModification the last modification date
+     */
+    public Entry(String creationDate, String lastModification) {
+        this.creationDate = creationDate;
+        this.lastModification = lastModification;
+    }
+
     /**
      * Gets the value of the title property.
      *
@@ -116,6 +155,9 @@ public class Entry {
      * @return possible object is {@link String}
      */
     public String getPassword() {
+        if (encodedSecrets != null && encodedPasswordLength != NOT_ENCODED) {
+            return decode(encodedPasswordOffset, encodedPasswordLength);
+        }
         return password;
     }
 
@@ -126,6 +168,8 @@ public class Entry {
      */
     public void setPassword(String value) {
         this.password = value;
+        this.encodedPasswordLength = NOT_ENCODED;
+        releaseEncodedSecrets();
     }
 
     /**
@@ -134,6 +178,9 @@ public class Entry {
      * @return possible object is {@link String}
      */
     public String getNotes() {
+        if (encodedSecrets != null && encodedNotesLength != NOT_ENCODED) {
+            return decode(encodedNotesOffset, encodedNotesLength);
+        }
         return notes;
     }
 
@@ -144,6 +191,41 @@ public class Entry {
      */
     public void setNotes(String value) {
         this.notes = value;
+        this.encodedNotesLength = NOT_ENCODED;
+        releaseEncodedSecrets();
+    }
+
+    /**
+     * Sets the password and the notes as UTF-8 byte ranges of the given
+     * buffer, which are decoded on access. The buffer is not copied, and must
+     * not be modified afterwards.
+     *
+     * @param buffer the buffer of the encoded values
+     * @param passwordOffset position of the password
+     * @param passwordLength length of the password, -1 for no password
+     * @param notesOffset position of the notes
+     * @param notesLength length of the notes, -1 for no notes
+     */
+    @JsonIgnore
+    public void setEncodedSecrets(byte[] buffer, int passwordOffset, int passwordLength, int notesOffset,
+            int notesLength) {
+        this.password = null;
+        this.notes = null;
+        this.encodedSecrets = buffer;
+        this.encodedPasswordOffset = passwordOffset;
+        this.encodedPasswordLength = passwordLength;
+        this.encodedNotesOffset = notesOffset;
+        this.encodedNotesLength = notesLength;
+    }
+
+    private String decode(int offset, int length) {
+        return length < 0 ? null : new String(encodedSecrets, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private void releaseEncodedSecrets() {
+        if (encodedPasswordLength == NOT_ENCODED && encodedNotesLength == NOT_ENCODED) {
+            encodedSecrets = null;
+        }
     }
 
     /**
@@ -162,6 +244,24 @@ public class Entry {
      */
     public void setCreationDate(String date) {
         this.creationDate = date;
+        this.creationTime = UNPARSED;
+    }
+
+    /**
+     * Gets the creation date as local timestamp.
+     *
+     * @return the creation date in milliseconds, 0 if the date cannot be
+     * parsed
+     * @see DateUtils#parseTimestamp(String)
+     */
+    @JsonIgnore
+    public long getCreationTime() {
+        long time = creationTime;
+        if (time == UNPARSED) {
+            time = DateUtils.parseTimestamp(creationDate);
+            creationTime = time;
+        }
+        return time;
     }
 
     /**
@@ -173,4 +273,31 @@ public class Entry {
         return lastModification;
     }
 
+    /**
+     * Sets the value of the last modification property.
+     *
+     * @param date the last modification date
+     */
+    public void setLastModification(String date) {
+        this.lastModification = date;
+        this.lastModificationTime = UNPARSED;
+    }
+
+    /**
+     * Gets the last modification date as local timestamp.
+     *
+     * @return the last modification date in milliseconds, 0 if the date
+     * cannot be parsed
+     * @see DateUtils#parseTimestamp(String)
+     */
+    @JsonIgnore
+    public long getLastModificationTime() {
+        long time = lastModificationTime;
+        if (time == UNPARSED) {
+            time = DateUtils.parseTimestamp(lastModification);
+            lastModificationTime = time;
+        }
+        return time;
+    }
+
 }
@@ -0,0 +1,96 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.xml.converter;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.dataformat.xml.deser.FromXmlParser;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+import jpass.xml.bind.Entry;
+
+/**
+ * Streaming reader of entries documents. Entries are decoded one by one from
+ * the XML token stream and passed to a consumer as soon as they are decoded,
+ * without building the whole document object first. Documents with another
+ * root element or with unknown elements are rejected.
+ */
+public class EntryStreamReader {
+
+    private static final String ROOT_ELEMENT = "entries";
+    private static final String ENTRY_ELEMENT = "entry";
+
+    private final XmlMapper mapper;
+
+    public EntryStreamReader() {
+        this.mapper = XmlConverter.createMapper();
+    }
+
+    /**
+     * Reads the entries document from the given input stream.
+     *
+     * @param inputStream the input stream
+     * @param consumer consumer of the entries, called in document order
+     * @return number of entries read
+     * @throws IOException if any error occurred, or the document is not an
+     * entries document
+     */
+    public int read(InputStream inputStream, Consumer<Entry> consumer) throws IOException {
+        int count = 0;
+        try (JsonParser parser = mapper.getFactory().createParser(inputStream)) {
+            // the parser is positioned on the root element until the first token is read
+            String rootName = ((FromXmlParser) parser).getStaxReader().getLocalName();
+            if (!ROOT_ELEMENT.equals(rootName)) {
+                throw new IOException(String.format("Unexpected root element [%s]", rootName));
+            }
+            JsonToken token = parser.nextToken();
+            if (token != JsonToken.START_OBJECT) {
+                if (token == JsonToken.VALUE_STRING && !parser.getText().trim().isEmpty()) {
+                    throw new IOException(String.format("Unexpected content of element [%s]", ROOT_ELEMENT));
+                }
+                // empty document
+                return count;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                if (!ENTRY_ELEMENT.equals(name)) {
+                    throw new IOException(String.format("Unexpected element [%s]", name));
+                }
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IOException(String.format("Unexpected content of element [%s]", ENTRY_ELEMENT));
+                }
+                consumer.accept(mapper.readValue(parser, Entry.class));
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.xml.converter;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.dataformat.xml.ser.ToXmlGenerator;
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.xml.namespace.QName;
+import jpass.xml.bind.Entry;
+
+/**
+ * Streaming writer of entries documents. Entries are serialized one by one
+ * directly to the output stream, without building the whole document first.
+ */
+public class EntryStreamWriter {
+
+    private static final QName ROOT_ELEMENT = new QName("entries");
+    private static final String ENTRY_ELEMENT = "entry";
+
+    private final XmlMapper mapper;
+    private final ObjectWriter entryWriter;
+    private final boolean indentOutput;
+
+    /**
+     * Creates a writer.
+     *
+     * @param indentOutput whether the XML output should be indented
+     */
+    public EntryStreamWriter(boolean indentOutput) {
+        this.mapper = XmlConverter.createMapper();
+        this.indentOutput = indentOutput;
+        ObjectWriter writer = this.mapper.writerFor(Entry.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.entryWriter = indentOutput
+                ? writer.with(SerializationFeature.INDENT_OUTPUT)
+                : writer.without(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    /**
+     * Writes the entries document to the given output stream. The output
+     * stream is flushed but not closed.
+     *
+     * @param entries the entries of the document
+     * @param outputStream the output stream
+     * @throws IOException if any error occurred
+     */
+    public void write(Iterable<Entry> entries, OutputStream outputStream) throws IOException {
+        try (ToXmlGenerator generator = (ToXmlGenerator) mapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (indentOutput) {
+                generator.useDefaultPrettyPrinter();
+            }
+            generator.initGenerator();
+            generator.setNextName(ROOT_ELEMENT);
+            generator.writeStartObject();
+            for (Entry entry : entries) {
+                generator.writeFieldName(ENTRY_ELEMENT);
+                entryWriter.writeValue(generator, entry);
+            }
+            generator.writeEndObject();
+        }
+    }
+}
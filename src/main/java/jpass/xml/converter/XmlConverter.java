@@ -50,11 +50,21 @@ public class XmlConverter<T> {
 
     public XmlConverter(Class<T> documentClass) {
         this.documentClass = documentClass;
+        this.mapper = createMapper();
+    }
+
+    /**
+     * Creates the XML mapper used for the JPass documents.
+     *
+     * @return the XML mapper
+     */
+    static XmlMapper createMapper() {
         JacksonXmlModule module = new JacksonXmlModule();
         module.setDefaultUseWrapper(false);
-        this.mapper = new XmlMapper(module);
-        this.mapper.enable(SerializationFeature.INDENT_OUTPUT);
-        this.mapper.enable(ToXmlGenerator.Feature.WRITE_XML_DECLARATION);
+        XmlMapper mapper = new XmlMapper(module);
+        mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        mapper.enable(ToXmlGenerator.Feature.WRITE_XML_DECLARATION);
+        return mapper;
     }
 
     /**
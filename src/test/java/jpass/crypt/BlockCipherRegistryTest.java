@@ -0,0 +1,102 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.crypt;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link BlockCipherRegistry}.
+ */
+public class BlockCipherRegistryTest {
+
+    @Test
+    public void shouldPassSelfTestWithBuiltInProviders() {
+        Assert.assertTrue(BlockCipherRegistry.selfTest(BlockCipherRegistry.JCE));
+        Assert.assertTrue(BlockCipherRegistry.selfTest(BlockCipherRegistry.TABLE));
+        Assert.assertTrue(BlockCipherRegistry.selfTest(BlockCipherRegistry.REFERENCE));
+    }
+
+    @Test
+    public void shouldSelectProviderPassingSelfTest() {
+        BlockCipherProvider provider = BlockCipherRegistry.getDefaultProvider();
+        Assert.assertNotNull(provider);
+        Assert.assertTrue(BlockCipherRegistry.selfTest(provider));
+    }
+
+    @Test
+    public void shouldFindProviderByName() {
+        Assert.assertSame(BlockCipherRegistry.JCE, BlockCipherRegistry.getProvider("jce"));
+        Assert.assertSame(BlockCipherRegistry.TABLE, BlockCipherRegistry.getProvider("TABLE"));
+        Assert.assertNull(BlockCipherRegistry.getProvider("unknown"));
+    }
+
+    @Test
+    public void shouldFailSelfTestWithBrokenProvider() {
+        BlockCipherProvider identity = BlockCipherProvider.of("identity", key -> new BlockCipher() {
+            @Override
+            public void encrypt(byte[] inBlock, int inIndex, byte[] outBlock, int outIndex) {
+                System.arraycopy(inBlock, inIndex, outBlock, outIndex, BLOCK_SIZE);
+            }
+
+            @Override
+            public void decrypt(byte[] inBlock, int inIndex, byte[] outBlock, int outIndex) {
+                System.arraycopy(inBlock, inIndex, outBlock, outIndex, BLOCK_SIZE);
+            }
+        });
+        BlockCipherProvider failing = BlockCipherProvider.of("failing", key -> {
+            throw new IllegalStateException("not available");
+        });
+
+        Assert.assertFalse(BlockCipherRegistry.selfTest(identity));
+        Assert.assertFalse(BlockCipherRegistry.selfTest(failing));
+    }
+
+    @Test
+    public void shouldProduceSameResultsWithAllProviders() {
+        Random rnd = new Random();
+        byte[] key = new byte[32];
+        byte[] data = new byte[16];
+        byte[] expected = new byte[16];
+        byte[] actual = new byte[16];
+
+        for (int i = 0; i < 10; ++i) {
+            rnd.nextBytes(key);
+            rnd.nextBytes(data);
+            BlockCipher reference = BlockCipherRegistry.REFERENCE.newCipher(key);
+            reference.encrypt(data, 0, expected, 0);
+            for (BlockCipherProvider provider : BlockCipherRegistry.getProviders()) {
+                provider.newCipher(key).encrypt(data, 0, actual, 0);
+                Assert.assertArrayEquals(expected, actual);
+            }
+        }
+    }
+}
@@ -155,6 +155,97 @@ public class CbcTest {
         Assert.assertTrue(Arrays.equals(plain, _decrypted.toByteArray()));
     }
 
+    /**
+     * Test the bulk methods against the stream based methods with random
+     * message sizes and random chunks.
+     */
+    @Test
+    public void shouldEncryptAndDecryptWithBulkMethods() throws DecryptException, IOException {
+        Random rnd = new Random();
+        byte[] key = new byte[32];
+        byte[] iv = new byte[16];
+
+        for (int size = 0; size < 300; size += 1 + rnd.nextInt(7)) {
+            rnd.nextBytes(key);
+            rnd.nextBytes(iv);
+            byte[] data = new byte[size];
+            rnd.nextBytes(data);
+
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            Cbc streamEncrypt = new Cbc(iv, key, expected);
+            streamEncrypt.encrypt(data);
+            streamEncrypt.finishEncryption();
+
+            Cbc encrypt = new Cbc(iv, key);
+            byte[] encrypted = new byte[size + 16];
+            int encryptedLength = 0;
+            int pos = 0;
+            while (pos < size) {
+                int chunk = Math.min(size - pos, rnd.nextInt(40));
+                int maxOutput = encrypt.getOutputSize(chunk);
+                int produced = encrypt.encrypt(data, pos, chunk, encrypted, encryptedLength);
+                Assert.assertTrue(produced <= maxOutput);
+                Assert.assertEquals(0, produced % 16);
+                encryptedLength += produced;
+                pos += chunk;
+            }
+            encryptedLength += encrypt.finishEncryption(encrypted, encryptedLength);
+
+            Assert.assertArrayEquals(expected.toByteArray(), Arrays.copyOf(encrypted, encryptedLength));
+
+            Cbc decrypt = new Cbc(iv, key);
+            byte[] decrypted = new byte[encryptedLength + 16];
+            int decryptedLength = 0;
+            pos = 0;
+            while (pos < encryptedLength) {
+                int chunk = Math.min(encryptedLength - pos, rnd.nextInt(70));
+                int maxOutput = decrypt.getOutputSize(chunk);
+                int produced = decrypt.decrypt(encrypted, pos, chunk, decrypted, decryptedLength);
+                Assert.assertTrue(produced <= maxOutput);
+                decryptedLength += produced;
+                pos += chunk;
+            }
+            decryptedLength += decrypt.finishDecryption(decrypted, decryptedLength);
+
+            Assert.assertArrayEquals(data, Arrays.copyOf(decrypted, decryptedLength));
+        }
+    }
+
+    /**
+     * Test that whole aligned buffers are processed in one invocation.
+     */
+    @Test
+    public void shouldProcessAlignedBufferInOneInvocation() throws DecryptException {
+        byte[] iv = new byte[16];
+        byte[] key = new byte[32];
+        byte[] data = new byte[4096];
+        new Random().nextBytes(data);
+
+        Cbc encrypt = new Cbc(iv, key);
+        byte[] encrypted = new byte[data.length + 16];
+        Assert.assertEquals(data.length, encrypt.encrypt(data, 0, data.length, encrypted, 0));
+        Assert.assertEquals(16, encrypt.finishEncryption(encrypted, data.length));
+
+        Cbc decrypt = new Cbc(iv, key);
+        byte[] decrypted = new byte[encrypted.length];
+        Assert.assertEquals(data.length, decrypt.decrypt(encrypted, 0, encrypted.length, decrypted, 0));
+        Assert.assertEquals(0, decrypt.finishDecryption(decrypted, data.length));
+        Assert.assertArrayEquals(data, Arrays.copyOf(decrypted, data.length));
+    }
+
+    /**
+     * Test that an incomplete last block is rejected.
+     */
+    @Test(expected = DecryptException.class)
+    public void shouldRejectIncompleteLastBlock() throws DecryptException {
+        byte[] iv = new byte[16];
+        byte[] key = new byte[32];
+        Cbc decrypt = new Cbc(iv, key);
+        byte[] out = new byte[64];
+        decrypt.decrypt(new byte[20], 0, 20, out, 0);
+        decrypt.finishDecryption(out, 0);
+    }
+
     /**
      * Test the encryption of one random message with the noted size.
      *
@@ -0,0 +1,146 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.crypt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ParallelCbcDecryptor}. The data is encrypted with
+ * {@link Cbc} and decrypted in parallel.
+ */
+public class ParallelCbcDecryptorTest {
+
+    @Test
+    public void shouldDecryptDataEncryptedByCbc() throws DecryptException, IOException {
+        Random rnd = new Random();
+        byte[] key = new byte[32];
+        byte[] iv = new byte[16];
+        rnd.nextBytes(key);
+        rnd.nextBytes(iv);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        for (int size : new int[]{0, 1, 15, 16, 17, 1000, 65536, 300001}) {
+            byte[] plain = new byte[size];
+            rnd.nextBytes(plain);
+            byte[] encrypted = encrypt(iv, key, plain);
+
+            for (int chunkSize : new int[]{16, 100, 4096, ParallelCbcDecryptor.DEFAULT_CHUNK_SIZE}) {
+                for (BlockCipherProvider provider : BlockCipherRegistry.getProviders()) {
+                    ParallelCbcDecryptor decryptor = new ParallelCbcDecryptor(provider, key, chunkSize, pool);
+                    byte[] decrypted = new byte[encrypted.length + 3];
+                    int length = decryptor.decrypt(iv, encrypted, 0, encrypted.length, decrypted, 3);
+
+                    Assert.assertEquals(size, length);
+                    Assert.assertArrayEquals(plain, Arrays.copyOfRange(decrypted, 3, 3 + length));
+                }
+            }
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void shouldNotChangeInputBufferPosition() throws DecryptException, IOException {
+        byte[] key = new byte[32];
+        byte[] iv = new byte[16];
+        byte[] plain = new byte[5000];
+        new Random().nextBytes(plain);
+        byte[] encrypted = encrypt(iv, key, plain);
+        ByteBuffer input = ByteBuffer.allocateDirect(encrypted.length + 10);
+        input.position(10);
+        input.put(encrypted);
+        input.position(10);
+
+        byte[] decrypted = new byte[encrypted.length];
+        int length = new ParallelCbcDecryptor(key).decrypt(iv, input, decrypted, 0);
+
+        Assert.assertEquals(10, input.position());
+        Assert.assertArrayEquals(plain, Arrays.copyOf(decrypted, length));
+    }
+
+    @Test
+    public void shouldDecryptConsecutiveSlices() throws DecryptException, IOException {
+        byte[] key = new byte[32];
+        byte[] iv = new byte[16];
+        byte[] plain = new byte[100000];
+        new Random().nextBytes(plain);
+        byte[] encrypted = encrypt(iv, key, plain);
+        ParallelCbcDecryptor decryptor = new ParallelCbcDecryptor(BlockCipherRegistry.getDefaultProvider(), key, 4096,
+                ForkJoinPool.commonPool());
+
+        byte[] decrypted = new byte[encrypted.length];
+        int sliceSize = 16 * 1000;
+        byte[] sliceIv = iv;
+        int offset = 0;
+        while (encrypted.length - offset > sliceSize) {
+            decryptor.decryptBlocks(sliceIv, ByteBuffer.wrap(encrypted, offset, sliceSize), decrypted, offset);
+            offset += sliceSize;
+            sliceIv = Arrays.copyOfRange(encrypted, offset - 16, offset);
+        }
+        int length = offset + decryptor.decrypt(sliceIv, encrypted, offset, encrypted.length - offset, decrypted, offset);
+
+        Assert.assertEquals(plain.length, length);
+        Assert.assertArrayEquals(plain, Arrays.copyOf(decrypted, length));
+    }
+
+    @Test(expected = DecryptException.class)
+    public void shouldRejectIncompleteBlock() throws DecryptException {
+        new ParallelCbcDecryptor(new byte[32]).decrypt(new byte[16], new byte[40], 0, 40, new byte[40], 0);
+    }
+
+    @Test(expected = DecryptException.class)
+    public void shouldRejectInvalidPadding() throws DecryptException, IOException {
+        byte[] key = new byte[32];
+        byte[] iv = new byte[16];
+        byte[] encrypted = encrypt(iv, key, new byte[100]);
+        byte[] wrongKey = new byte[32];
+        wrongKey[0] = 1;
+
+        // a wrong key produces a random last byte, try until the padding is illegal
+        for (int i = 0; i < 64; i++) {
+            wrongKey[1] = (byte) i;
+            new ParallelCbcDecryptor(wrongKey).decrypt(iv, encrypted, 0, encrypted.length, new byte[encrypted.length], 0);
+        }
+    }
+
+    private static byte[] encrypt(byte[] iv, byte[] key, byte[] plain) throws IOException {
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        Cbc cipher = new Cbc(iv, key, encrypted);
+        cipher.encrypt(plain);
+        cipher.finishEncryption();
+        return encrypted.toByteArray();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.crypt;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link TableAes256}. The results are compared against the
+ * reference values of &quot;Federal Information Processing Standards
+ * Publication 197&quot; and against {@link Aes256}.
+ */
+public class TableAes256Test {
+
+    /**
+     * Number of times, a random sample will be encrypted.
+     */
+    private static final int RANDOM_TRIES = 100;
+
+    @Test
+    public void shouldEncryptAndDecryptTestMessage() {
+        byte[] key = new byte[32];
+        for (int i = 0; i < key.length; ++i) {
+            key[i] = (byte) i;
+        }
+        byte[] block = {(byte) 0x00, (byte) 0x11, (byte) 0x22, (byte) 0x33, (byte) 0x44, (byte) 0x55, (byte) 0x66,
+            (byte) 0x77, (byte) 0x88, (byte) 0x99, (byte) 0xaa, (byte) 0xbb, (byte) 0xcc, (byte) 0xdd, (byte) 0xee,
+            (byte) 0xff};
+        byte[] expectedEncrypted = {(byte) 0x8e, (byte) 0xa2, (byte) 0xb7, (byte) 0xca, (byte) 0x51, (byte) 0x67,
+            (byte) 0x45, (byte) 0xbf, (byte) 0xea, (byte) 0xfc, (byte) 0x49, (byte) 0x90, (byte) 0x4b, (byte) 0x49,
+            (byte) 0x60, (byte) 0x89};
+
+        TableAes256 cipher = new TableAes256(key);
+
+        byte[] encrypted = new byte[16];
+        cipher.encrypt(block, 0, encrypted, 0);
+        Assert.assertArrayEquals(expectedEncrypted, encrypted);
+
+        byte[] decrypted = new byte[16];
+        cipher.decrypt(expectedEncrypted, 0, decrypted, 0);
+        Assert.assertArrayEquals(block, decrypted);
+    }
+
+    @Test
+    public void shouldProduceSameResultsAsReferenceImplementation() {
+        Random rnd = new Random();
+        byte[] key = new byte[32];
+        byte[] data = new byte[16];
+        byte[] expected = new byte[16];
+        byte[] actual = new byte[16];
+
+        for (int i = 0; i < RANDOM_TRIES; ++i) {
+            rnd.nextBytes(key);
+            rnd.nextBytes(data);
+            Aes256 reference = new Aes256(key);
+            TableAes256 cipher = new TableAes256(key);
+
+            reference.encrypt(data, 0, expected, 0);
+            cipher.encrypt(data, 0, actual, 0);
+            Assert.assertArrayEquals(expected, actual);
+
+            reference.decrypt(data, 0, expected, 0);
+            cipher.decrypt(data, 0, actual, 0);
+            Assert.assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void shouldEncryptAndDecryptInPlaceWithOffset() {
+        Random rnd = new Random();
+        byte[] key = new byte[32];
+        rnd.nextBytes(key);
+        byte[] data = new byte[40];
+        rnd.nextBytes(data);
+        byte[] original = data.clone();
+
+        TableAes256 cipher = new TableAes256(key);
+        cipher.encrypt(data, 7, data, 7);
+        cipher.decrypt(data, 7, data, 7);
+
+        Assert.assertArrayEquals(original, data);
+    }
+}
@@ -3,10 +3,16 @@ package jpass.crypt.io;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.Arrays;
 import java.util.Random;
+import jpass.crypt.Cbc;
 
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
 /**
@@ -57,4 +63,273 @@ public class CryptIOStreamTest {
         Assert.assertEquals(plain.length, decrypted.toByteArray().length);
         Assert.assertTrue(Arrays.equals(plain, decrypted.toByteArray()));
     }
+
+    /**
+     * Random messages will be decrypted with bulk reads of different sizes and
+     * different fetch buffer sizes.
+     */
+    @Test
+    public void shouldDecryptWithBulkReads() throws IOException {
+        Random rnd = new Random();
+        byte[] key = new byte[32];
+        rnd.nextBytes(key);
+
+        for (int size : new int[]{0, 1, 15, 16, 17, 1000, 70000, 200003}) {
+            byte[] plain = new byte[size];
+            rnd.nextBytes(plain);
+            byte[] encrypted = encrypt(plain, key);
+
+            for (int fetchSize : new int[]{16, 100, 4096, CryptInputStream.DEFAULT_FETCH_BUFFER_SIZE}) {
+                for (int readSize : new int[]{1, 512, 8192, 100000}) {
+                    CryptInputStream decrypter = new CryptInputStream(new ByteArrayInputStream(encrypted), key, fetchSize);
+                    ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[readSize];
+                    int read;
+                    while ((read = decrypter.read(buffer, 0, buffer.length)) >= 0) {
+                        Assert.assertTrue(read > 0);
+                        decrypted.write(buffer, 0, read);
+                    }
+                    decrypter.close();
+
+                    Assert.assertArrayEquals(plain, decrypted.toByteArray());
+                }
+            }
+        }
+    }
+
+    /**
+     * Skipping and reading single {@code byte}s can be mixed with bulk reads.
+     */
+    @Test
+    public void shouldSkipAndReportAvailableBytes() throws IOException {
+        Random rnd = new Random();
+        byte[] key = new byte[32];
+        rnd.nextBytes(key);
+        byte[] plain = new byte[10000];
+        rnd.nextBytes(plain);
+
+        CryptInputStream decrypter = new CryptInputStream(new ByteArrayInputStream(encrypt(plain, key)), key, 1024);
+        Assert.assertEquals(0, decrypter.available());
+        Assert.assertEquals(plain[0] & 0xff, decrypter.read());
+        Assert.assertTrue(decrypter.available() > 0);
+
+        Assert.assertEquals(4999, decrypter.skip(4999));
+        Assert.assertEquals(plain[5000] & 0xff, decrypter.read());
+
+        byte[] buffer = new byte[100];
+        Assert.assertEquals(100, readFully(decrypter, buffer));
+        Assert.assertArrayEquals(Arrays.copyOfRange(plain, 5001, 5101), buffer);
+
+        Assert.assertEquals(plain.length - 5101, decrypter.skip(Long.MAX_VALUE));
+        Assert.assertEquals(0, decrypter.available());
+        Assert.assertEquals(-1, decrypter.read());
+        Assert.assertEquals(0, decrypter.skip(10));
+    }
+
+    /**
+     * The encrypted data is fetched from the underlying stream in chunks of the
+     * fetch buffer size.
+     */
+    @Test
+    public void shouldFetchDataInLargeChunks() throws IOException {
+        byte[] key = new byte[32];
+        byte[] plain = new byte[1024 * 1024];
+        new Random().nextBytes(plain);
+        CountingInputStream parent = new CountingInputStream(new ByteArrayInputStream(encrypt(plain, key)));
+
+        CryptInputStream decrypter = new CryptInputStream(parent, key);
+        byte[] buffer = new byte[512];
+        while (decrypter.read(buffer, 0, buffer.length) >= 0) {
+            // consume
+        }
+
+        int expectedCalls = plain.length / CryptInputStream.DEFAULT_FETCH_BUFFER_SIZE + 3;
+        Assert.assertTrue("parent reads: " + parent.calls, parent.calls <= expectedCalls);
+    }
+
+    /**
+     * Bulk reads do not allocate memory per chunk.
+     */
+    @Test
+    public void shouldNotAllocatePerChunk() throws IOException {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled());
+
+        byte[] key = new byte[32];
+        byte[] plain = new byte[4 * 1024 * 1024];
+        byte[] encrypted = encrypt(plain, key);
+        byte[] buffer = new byte[64 * 1024];
+
+        // warm up
+        decryptAll(new CryptInputStream(new ByteArrayInputStream(encrypted), key), buffer);
+
+        CryptInputStream decrypter = new CryptInputStream(new ByteArrayInputStream(encrypted), key);
+        long before = allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        decryptAll(decrypter, buffer);
+        long allocated = allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+        Assert.assertTrue("allocated bytes: " + allocated, allocated < plain.length / 16);
+    }
+
+    /**
+     * Random messages will be encrypted with bulk writes of different sizes,
+     * mixed with single {@code byte} writes, and compared with the result of
+     * the cipher.
+     */
+    @Test
+    public void shouldEncryptWithBulkWrites() throws IOException {
+        Random rnd = new Random();
+        byte[] key = new byte[32];
+        byte[] iv = new byte[16];
+        rnd.nextBytes(key);
+        rnd.nextBytes(iv);
+
+        for (int size : new int[]{0, 1, 15, 16, 17, 1000, 70000, 200003}) {
+            byte[] plain = new byte[size];
+            rnd.nextBytes(plain);
+
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            Cbc cipher = new Cbc(iv, key, expected);
+            cipher.encrypt(plain);
+            cipher.finishEncryption();
+
+            for (int bufferSize : new int[]{32, 100, CryptOutputStream.DEFAULT_BUFFER_SIZE}) {
+                ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+                CryptOutputStream output = new CryptOutputStream(encrypted, key, iv, bufferSize);
+                int pos = 0;
+                while (pos < size) {
+                    if (rnd.nextInt(10) == 0) {
+                        output.write(plain[pos++]);
+                    } else {
+                        int len = Math.min(size - pos, rnd.nextInt(20000));
+                        output.write(plain, pos, len);
+                        pos += len;
+                    }
+                }
+                output.close();
+
+                Assert.assertArrayEquals(expected.toByteArray(), encrypted.toByteArray());
+            }
+        }
+    }
+
+    /**
+     * Flushing writes all complete blocks, but keeps back an incomplete block.
+     */
+    @Test
+    public void shouldFlushOnlyCompleteBlocks() throws IOException {
+        byte[] key = new byte[32];
+        byte[] iv = new byte[16];
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        CryptOutputStream output = new CryptOutputStream(encrypted, key, iv);
+
+        output.write(new byte[40]);
+        Assert.assertEquals(0, encrypted.size());
+        output.flush();
+        Assert.assertEquals(32, encrypted.size());
+
+        output.write(new byte[8]);
+        output.flush();
+        Assert.assertEquals(48, encrypted.size());
+
+        output.close();
+        Assert.assertEquals(64, encrypted.size());
+        output.close();
+        Assert.assertEquals(64, encrypted.size());
+    }
+
+    /**
+     * The encrypted data is passed to the underlying stream in large chunks.
+     */
+    @Test
+    public void shouldWriteDataInLargeChunks() throws IOException {
+        byte[] key = new byte[32];
+        byte[] plain = new byte[1024 * 1024];
+        new Random().nextBytes(plain);
+        CountingOutputStream parent = new CountingOutputStream();
+
+        CryptOutputStream output = new CryptOutputStream(parent, key);
+        for (int pos = 0; pos < plain.length; pos += 512) {
+            output.write(plain, pos, 512);
+        }
+        output.close();
+
+        int expectedCalls = plain.length / CryptOutputStream.DEFAULT_BUFFER_SIZE + 3;
+        Assert.assertTrue("parent writes: " + parent.calls, parent.calls <= expectedCalls);
+        Assert.assertEquals(16 + plain.length + 16, parent.size);
+    }
+
+    private static byte[] encrypt(byte[] plain, byte[] key) throws IOException {
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        CryptOutputStream output = new CryptOutputStream(encrypted, key);
+        output.write(plain);
+        output.close();
+        return encrypted.toByteArray();
+    }
+
+    private static int readFully(InputStream input, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = input.read(buffer, total, buffer.length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static void decryptAll(InputStream input, byte[] buffer) throws IOException {
+        while (input.read(buffer, 0, buffer.length) >= 0) {
+            // consume
+        }
+    }
+
+    /**
+     * Input stream counting the bulk read invocations.
+     */
+    private static class CountingInputStream extends InputStream {
+
+        private final InputStream parent;
+        private int calls = 0;
+
+        CountingInputStream(InputStream parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public int read() throws IOException {
+            calls++;
+            return parent.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            calls++;
+            return parent.read(b, off, len);
+        }
+    }
+
+    /**
+     * Output stream counting the write invocations.
+     */
+    private static class CountingOutputStream extends OutputStream {
+
+        private int calls = 0;
+        private int size = 0;
+
+        @Override
+        public void write(int b) {
+            calls++;
+            size++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            calls++;
+            size += len;
+        }
+    }
 }
@@ -28,6 +28,7 @@
  */
 package jpass.data;
 
+import jpass.io.KeyMaterial;
 import jpass.xml.bind.Entries;
 import jpass.xml.bind.Entry;
 import org.junit.Before;
@@ -37,9 +38,12 @@ import java.util.List;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class DataModelTest {
 
@@ -120,6 +124,16 @@ public class DataModelTest {
         assertNotEquals(previousPassword, dataModel.getPassword());
     }
 
+    @Test
+    public void setPasswordClearsKeyMaterialTest() {
+        dataModel.setKeyMaterial(KeyMaterial.generate(dataModel.getPassword()));
+        assertNotNull(dataModel.getKeyMaterial());
+
+        dataModel.setPassword(new char[]{'t', 'e', 's', 't', 's'});
+
+        assertNull(dataModel.getKeyMaterial());
+    }
+
     @Test
     public void clearTest() {
         dataModel.clear();
@@ -143,4 +157,162 @@ public class DataModelTest {
         Entry result = dataModel.getEntryByTitle("EntryT");
         assertNull(result);
     }
+
+    @Test
+    public void setEntriesRebuildsTitleIndexTest() {
+        Entries entries = new Entries();
+        Entry entry = newEntry("Other");
+        entries.getEntry().add(entry);
+
+        dataModel.setEntries(entries);
+
+        assertNull(dataModel.getEntryByTitle("EntryTest"));
+        assertSame(entry, dataModel.getEntryByTitle("Other"));
+    }
+
+    @Test
+    public void addEntryTest() {
+        Entry entry = newEntry("Other");
+
+        dataModel.addEntry(entry);
+
+        assertEquals(2, dataModel.getEntries().getEntry().size());
+        assertSame(entry, dataModel.getEntryByTitle("Other"));
+        assertTrue(dataModel.containsTitle("OTHER"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addEntryWithExistingTitleTest() {
+        dataModel.addEntry(newEntry("entrytest"));
+    }
+
+    @Test
+    public void replaceEntryTest() {
+        Entry original = dataModel.getEntryByTitle("EntryTest");
+        dataModel.addEntry(newEntry("Other"));
+        Entry replacement = newEntry("Renamed");
+
+        dataModel.replaceEntry(original, replacement);
+
+        assertSame(replacement, dataModel.getEntries().getEntry().get(0));
+        assertNull(dataModel.getEntryByTitle("EntryTest"));
+        assertFalse(dataModel.containsTitle("EntryTest"));
+        assertSame(replacement, dataModel.getEntryByTitle("Renamed"));
+    }
+
+    @Test
+    public void replaceEntryWithChangedCaseTest() {
+        Entry original = dataModel.getEntryByTitle("EntryTest");
+        Entry replacement = newEntry("ENTRYTEST");
+
+        dataModel.replaceEntry(original, replacement);
+
+        assertSame(replacement, dataModel.getEntryByTitle("ENTRYTEST"));
+        assertNull(dataModel.getEntryByTitle("EntryTest"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void replaceEntryWithExistingTitleTest() {
+        dataModel.addEntry(newEntry("Other"));
+
+        dataModel.replaceEntry(dataModel.getEntryByTitle("EntryTest"), newEntry("other"));
+    }
+
+    @Test
+    public void removeEntryTest() {
+        Entry entry = dataModel.getEntryByTitle("EntryTest");
+
+        assertTrue(dataModel.removeEntry(entry));
+
+        assertEquals(0, dataModel.getEntries().getEntry().size());
+        assertNull(dataModel.getEntryByTitle("EntryTest"));
+        assertFalse(dataModel.containsTitle("EntryTest"));
+        assertFalse(dataModel.removeEntry(entry));
+    }
+
+    @Test
+    public void removeEntryWithDuplicateTitleTest() {
+        Entries entries = new Entries();
+        Entry first = newEntry("Duplicate");
+        Entry second = newEntry("Duplicate");
+        entries.getEntry().add(first);
+        entries.getEntry().add(second);
+        dataModel.setEntries(entries);
+        assertSame(first, dataModel.getEntryByTitle("Duplicate"));
+
+        dataModel.removeEntry(first);
+
+        assertSame(second, dataModel.getEntryByTitle("Duplicate"));
+        assertTrue(dataModel.containsTitle("Duplicate"));
+    }
+
+    @Test
+    public void replaceAndRemoveEntriesAfterPositionsShiftTest() {
+        Entry first = dataModel.getEntryByTitle("EntryTest");
+        Entry second = newEntry("Second");
+        Entry third = newEntry("Third");
+        Entry fourth = newEntry("Fourth");
+        dataModel.addEntry(second);
+        dataModel.addEntry(third);
+        dataModel.addEntry(fourth);
+
+        assertTrue(dataModel.removeEntry(second));
+        Entry replacement = newEntry("Replacement");
+        dataModel.replaceEntry(fourth, replacement);
+        dataModel.getEntries().getEntry().add(0, second);
+        assertTrue(dataModel.removeEntry(third));
+
+        List<Entry> entryList = dataModel.getEntries().getEntry();
+        assertEquals(3, entryList.size());
+        assertSame(second, entryList.get(0));
+        assertSame(first, entryList.get(1));
+        assertSame(replacement, entryList.get(2));
+        assertFalse(dataModel.removeEntry(third));
+        assertFalse(dataModel.removeEntry(fourth));
+    }
+
+    @Test
+    public void removeEntryAddedTwiceTest() {
+        Entry entry = dataModel.getEntryByTitle("EntryTest");
+        Entry other = newEntry("Other");
+        dataModel.addEntry(other);
+        dataModel.getEntries().getEntry().add(entry);
+
+        dataModel.replaceEntry(entry, newEntry("Replacement"));
+        assertTrue(dataModel.removeEntry(entry));
+        assertFalse(dataModel.removeEntry(entry));
+
+        List<Entry> entryList = dataModel.getEntries().getEntry();
+        assertEquals(2, entryList.size());
+        assertSame(other, entryList.get(1));
+    }
+
+    @Test
+    public void clearClearsTitleIndexTest() {
+        dataModel.clear();
+
+        assertNull(dataModel.getEntryByTitle("EntryTest"));
+        assertFalse(dataModel.containsTitle("EntryTest"));
+    }
+
+    @Test
+    public void searchIndexFollowsEntriesTest() {
+        Entry original = dataModel.getEntryByTitle("EntryTest");
+        dataModel.addEntry(newEntry("Other"));
+        dataModel.replaceEntry(original, newEntry("Renamed"));
+
+        assertEquals(1, dataModel.getSearchIndex().search("other").size());
+        assertEquals(1, dataModel.getSearchIndex().search("NAME").size());
+        assertEquals(0, dataModel.getSearchIndex().search("entrytest").size());
+
+        dataModel.clear();
+
+        assertEquals(0, dataModel.getSearchIndex().size());
+    }
+
+    private static Entry newEntry(String title) {
+        Entry entry = new Entry();
+        entry.setTitle(title);
+        return entry;
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.data;
+
+import java.io.IOException;
+import jpass.io.KeyMaterial;
+import jpass.xml.bind.Entries;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DocumentPreloaderTest {
+
+    private static final String FILE_NAME = "src/test/resources/jpass-test-v1.jpass";
+
+    private final char[] correctKey = "sesame".toCharArray();
+
+    @Test
+    public void shouldDeriveKeyMaterialForFileHeader() throws DocumentProcessException, IOException {
+        // given
+        DocumentPreloader preloader = DocumentPreloader.start(FILE_NAME);
+
+        // when
+        preloader.deriveKey(correctKey);
+        KeyMaterial keyMaterial = preloader.getKeyMaterial();
+
+        // then
+        EntriesRepository repository = EntriesRepository.newInstance(FILE_NAME, correctKey, keyMaterial);
+        Entries entries = repository.readDocument();
+        Assert.assertEquals(1, entries.getEntry().size());
+        Assert.assertSame(keyMaterial, repository.getKeyMaterial());
+    }
+
+    @Test
+    public void shouldReturnNoKeyMaterialForNonExistingFile() {
+        // given
+        DocumentPreloader preloader = DocumentPreloader.start("not_existing_path");
+
+        // when
+        preloader.deriveKey(correctKey);
+
+        // then
+        Assert.assertNull(preloader.getKeyMaterial());
+    }
+
+    @Test
+    public void shouldReturnNoKeyMaterialWhenCancelled() {
+        // given
+        DocumentPreloader preloader = DocumentPreloader.start(FILE_NAME);
+
+        // when
+        preloader.cancel();
+
+        // then
+        Assert.assertNull(preloader.getKeyMaterial());
+    }
+}
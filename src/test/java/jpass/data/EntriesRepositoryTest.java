@@ -30,11 +30,32 @@ package jpass.data;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import jpass.crypt.io.CryptOutputStream;
+import jpass.io.JPassOutputStream;
+import jpass.io.JPassStream.FileVersionType;
+import jpass.io.KeyMaterial;
 import jpass.xml.bind.Entries;
 import jpass.xml.bind.Entry;
+import jpass.xml.converter.EntryStreamWriter;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -144,6 +165,32 @@ public class EntriesRepositoryTest {
         EntriesRepository.newInstance(filePath).readDocument();
     }
 
+    @Test(expected = IOException.class)
+    public void shouldThrowExceptionWhenReadingUnencryptedDocumentWithUnexpectedRootElement() throws DocumentProcessException, IOException {
+        // given
+        try ( FileWriter writer = new FileWriter(filePath)) {
+            writer.append("<?xml version='1.0' encoding='UTF-8'?><bookmarks><entry><title>Duff</title></entry></bookmarks>");
+        } catch (Exception e) {
+            Assert.fail("could not prepare test data");
+        }
+
+        // when
+        EntriesRepository.newInstance(filePath).readDocument();
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldThrowExceptionWhenReadingUnencryptedDocumentWithUnknownElement() throws DocumentProcessException, IOException {
+        // given
+        try ( FileWriter writer = new FileWriter(filePath)) {
+            writer.append("<?xml version='1.0' encoding='UTF-8'?><entries><bookmark><title>Duff</title></bookmark></entries>");
+        } catch (Exception e) {
+            Assert.fail("could not prepare test data");
+        }
+
+        // when
+        EntriesRepository.newInstance(filePath).readDocument();
+    }
+
     @Test(expected = FileNotFoundException.class)
     public void shouldThrowExceptionWhenReadingUnecrypredDocumentWithNonExistingFile() throws DocumentProcessException, IOException {
         // given
@@ -189,6 +236,312 @@ public class EntriesRepositoryTest {
         assertEquals(expectedEntries, readEntries);
     }
 
+    @Test
+    public void shouldWriteAndReadLargeEncryptedFile() throws DocumentProcessException, IOException {
+        // given
+        Random random = new Random();
+        Entries expectedEntries = new Entries();
+        for (int i = 0; i < 2000; i++) {
+            Entry entry = createEntry();
+            entry.setTitle(TITLE + i);
+            byte[] notes = new byte[600];
+            random.nextBytes(notes);
+            entry.setNotes(Base64.getEncoder().encodeToString(notes));
+            expectedEntries.getEntry().add(entry);
+        }
+        EntriesRepository.newInstance(filePath, correctKey).writeDocument(expectedEntries);
+        Assert.assertTrue(new File(filePath).length() > 1024 * 1024);
+
+        // when
+        Entries readEntries = EntriesRepository.newInstance(filePath, correctKey).readDocument();
+
+        // then
+        Assert.assertEquals(expectedEntries.getEntry().size(), readEntries.getEntry().size());
+        for (int i = 0; i < expectedEntries.getEntry().size(); i++) {
+            assertEquals(expectedEntries.getEntry().get(i), readEntries.getEntry().get(i));
+        }
+    }
+
+    @Test
+    public void shouldReadEncryptedFileOfSeveralSlices() throws DocumentProcessException, IOException {
+        // sequentially decrypted slices of 64 KiB, and parallel decrypted slices of 4 MiB
+        for (int entryCount : new int[]{600, 7000}) {
+            // given
+            Random random = new Random(entryCount);
+            Entries expectedEntries = new Entries();
+            for (int i = 0; i < entryCount; i++) {
+                Entry entry = createEntry();
+                entry.setTitle(TITLE + i);
+                byte[] notes = new byte[600];
+                random.nextBytes(notes);
+                entry.setNotes(Base64.getEncoder().encodeToString(notes));
+                expectedEntries.getEntry().add(entry);
+            }
+            EntriesRepository.newInstance(filePath, correctKey, KeyMaterial.generate(FileVersionType.VERSION_3, correctKey))
+                    .writeDocument(expectedEntries);
+            Assert.assertTrue(new File(filePath).length() > entryCount * 600L);
+
+            // when
+            Entries readEntries = EntriesRepository.newInstance(filePath, correctKey).readDocument();
+
+            // then
+            Assert.assertEquals(expectedEntries.getEntry().size(), readEntries.getEntry().size());
+            for (int i = 0; i < expectedEntries.getEntry().size(); i++) {
+                assertEquals(expectedEntries.getEntry().get(i), readEntries.getEntry().get(i));
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldThrowExceptionWhenReadingLargeDocumentWithIncorrectKey() throws DocumentProcessException, IOException {
+        // given
+        Entries entries = new Entries();
+        Random random = new Random();
+        for (int i = 0; i < 2000; i++) {
+            Entry entry = createEntry();
+            byte[] notes = new byte[600];
+            random.nextBytes(notes);
+            entry.setNotes(Base64.getEncoder().encodeToString(notes));
+            entries.getEntry().add(entry);
+        }
+        EntriesRepository.newInstance(filePath, correctKey).writeDocument(entries);
+
+        // when
+        EntriesRepository.newInstance(filePath, incorrectKey).readDocument();
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldThrowExceptionWhenReadingTruncatedFile() throws DocumentProcessException, IOException {
+        // given
+        EntriesRepository.newInstance(filePath, correctKey).writeDocument(createEntries());
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "rw")) {
+            file.setLength(file.length() - 5);
+        }
+
+        // when
+        EntriesRepository.newInstance(filePath, correctKey).readDocument();
+    }
+
+    @Test
+    public void shouldReplaceExistingFileWithoutLeavingTemporaryFiles() throws DocumentProcessException, IOException {
+        // given
+        File directory = Files.createTempDirectory("jpass").toFile();
+        File file = new File(directory, "test.jpass");
+        EntriesRepository.newInstance(file.getPath(), correctKey).writeDocument(createEntries());
+        Entries expectedEntries = createEntries();
+        expectedEntries.getEntry().get(0).setTitle("Moe's Tavern");
+
+        // when
+        EntriesRepository.newInstance(file.getPath(), correctKey).writeDocument(expectedEntries);
+
+        // then
+        Entries readEntries = EntriesRepository.newInstance(file.getPath(), correctKey).readDocument();
+        assertEquals(expectedEntries, readEntries);
+        Assert.assertArrayEquals(new String[]{"test.jpass"}, directory.list());
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(directory.delete());
+    }
+
+    @Test
+    public void shouldKeepPermissionsOfReplacedFile() throws DocumentProcessException, IOException {
+        // given
+        Path path = new File(filePath).toPath();
+        Assume.assumeTrue(Files.getFileAttributeView(path, PosixFileAttributeView.class) != null);
+        EntriesRepository.newInstance(filePath, correctKey).writeDocument(createEntries());
+        Set<PosixFilePermission> expectedPermissions = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(path, expectedPermissions);
+
+        // when
+        EntriesRepository.newInstance(filePath, correctKey).writeDocument(createEntries());
+
+        // then
+        Assert.assertEquals(expectedPermissions, Files.getPosixFilePermissions(path));
+        assertEquals(createEntries(), EntriesRepository.newInstance(filePath, correctKey).readDocument());
+    }
+
+    @Test
+    public void shouldReuseKeyMaterialWhenWritingDocument() throws DocumentProcessException, IOException {
+        // given
+        EntriesRepository repository = EntriesRepository.newInstance(filePath, correctKey);
+        repository.writeDocument(createEntries());
+        KeyMaterial keyMaterial = repository.getKeyMaterial();
+
+        // when
+        EntriesRepository secondRepository = EntriesRepository.newInstance(filePath, correctKey, keyMaterial);
+        secondRepository.writeDocument(createEntries());
+
+        // then
+        Assert.assertSame(keyMaterial, secondRepository.getKeyMaterial());
+        EntriesRepository readRepository = EntriesRepository.newInstance(filePath, correctKey);
+        assertEquals(createEntries(), readRepository.readDocument());
+        Assert.assertArrayEquals(keyMaterial.getSalt(), readRepository.getKeyMaterial().getSalt());
+        Assert.assertArrayEquals(keyMaterial.getKey(), readRepository.getKeyMaterial().getKey());
+    }
+
+    @Test
+    public void shouldRewriteChunkedFileWithChangedEntry() throws DocumentProcessException, IOException {
+        // given
+        Entries expectedEntries = new Entries();
+        for (int i = 0; i < 5000; i++) {
+            Entry entry = new Entry();
+            entry.setTitle("Entry " + i);
+            entry.setPassword("Password " + i);
+            expectedEntries.getEntry().add(entry);
+        }
+        EntriesRepository repository = EntriesRepository.newInstance(filePath, correctKey,
+                KeyMaterial.generate(FileVersionType.VERSION_4, correctKey));
+        repository.writeDocument(expectedEntries);
+        Object fileKey = Files.readAttributes(new File(filePath).toPath(), BasicFileAttributes.class).fileKey();
+        expectedEntries.getEntry().get(2500).setPassword("Moe's Tavern");
+
+        // when
+        EntriesRepository.newInstance(filePath, correctKey, repository.getKeyMaterial()).writeDocument(expectedEntries);
+
+        // then
+        // the file key is not available on every platform
+        Assert.assertTrue(fileKey == null
+                || !fileKey.equals(Files.readAttributes(new File(filePath).toPath(), BasicFileAttributes.class).fileKey()));
+        Entries readEntries = EntriesRepository.newInstance(filePath, correctKey).readDocument();
+        Assert.assertEquals(expectedEntries.getEntry().size(), readEntries.getEntry().size());
+        for (int i = 0; i < expectedEntries.getEntry().size(); i++) {
+            assertEquals(expectedEntries.getEntry().get(i), readEntries.getEntry().get(i));
+        }
+    }
+
+    @Test
+    public void shouldDeriveNewKeyMaterialWhenWritingOldFileVersion() throws DocumentProcessException, IOException {
+        // given
+        EntriesRepository repository = EntriesRepository.newInstance("src/test/resources/jpass-test-v0.jpass", correctKey);
+        Entries entries = repository.readDocument();
+        KeyMaterial keyMaterial = repository.getKeyMaterial();
+        Assert.assertEquals(FileVersionType.VERSION_0, keyMaterial.getFileVersionType());
+
+        // when
+        EntriesRepository writeRepository = EntriesRepository.newInstance(filePath, correctKey, keyMaterial);
+        writeRepository.writeDocument(entries);
+
+        // then
+        Assert.assertEquals(FileVersionType.VERSION_1, writeRepository.getKeyMaterial().getFileVersionType());
+        assertEquals(entries, EntriesRepository.newInstance(filePath, correctKey).readDocument());
+    }
+
+    @Test
+    public void shouldReuseMatchingKeyMaterialWhenReadingDocument() throws DocumentProcessException, IOException {
+        // given
+        EntriesRepository writeRepository = EntriesRepository.newInstance(filePath, correctKey);
+        writeRepository.writeDocument(createEntries());
+        KeyMaterial keyMaterial = writeRepository.getKeyMaterial();
+
+        // when
+        EntriesRepository repository = EntriesRepository.newInstance(filePath, correctKey, keyMaterial);
+        Entries readEntries = repository.readDocument();
+
+        // then
+        assertEquals(createEntries(), readEntries);
+        Assert.assertSame(keyMaterial, repository.getKeyMaterial());
+    }
+
+    @Test
+    public void shouldDeriveKeyWhenKeyMaterialDoesNotMatchDocument() throws DocumentProcessException, IOException {
+        // given
+        EntriesRepository writeRepository = EntriesRepository.newInstance(filePath, correctKey);
+        writeRepository.writeDocument(createEntries());
+        KeyMaterial otherKeyMaterial = KeyMaterial.generate(correctKey);
+
+        // when
+        EntriesRepository repository = EntriesRepository.newInstance(filePath, correctKey, otherKeyMaterial);
+        Entries readEntries = repository.readDocument();
+
+        // then
+        assertEquals(createEntries(), readEntries);
+        Assert.assertArrayEquals(writeRepository.getKeyMaterial().getSalt(), repository.getKeyMaterial().getSalt());
+    }
+
+    @Test
+    public void shouldPassEntriesToConsumerInDocumentOrder() throws DocumentProcessException, IOException {
+        // given
+        Entries expectedEntries = new Entries();
+        for (int i = 0; i < 10; i++) {
+            Entry entry = createEntry();
+            entry.setTitle(TITLE + i);
+            expectedEntries.getEntry().add(entry);
+        }
+        EntriesRepository.newInstance(filePath, correctKey).writeDocument(expectedEntries);
+        List<Entry> readEntries = new ArrayList<>();
+
+        // when
+        int count = EntriesRepository.newInstance(filePath, correctKey).readDocument(readEntries::add);
+
+        // then
+        Assert.assertEquals(expectedEntries.getEntry().size(), count);
+        Assert.assertEquals(expectedEntries.getEntry().size(), readEntries.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(expectedEntries.getEntry().get(i), readEntries.get(i));
+        }
+    }
+
+    @Test
+    public void shouldKeepFileVersion1OnSave() throws DocumentProcessException, IOException {
+        // given
+        EntriesRepository repository = EntriesRepository.newInstance("src/test/resources/jpass-test-v1.jpass", correctKey);
+        Entries entries = repository.readDocument();
+        Assert.assertEquals(FileVersionType.VERSION_1, repository.getKeyMaterial().getFileVersionType());
+
+        // when
+        EntriesRepository.newInstance(filePath, correctKey, repository.getKeyMaterial()).writeDocument(entries);
+
+        // then
+        EntriesRepository readRepository = EntriesRepository.newInstance(filePath, correctKey);
+        assertEquals(entries, readRepository.readDocument());
+        Assert.assertEquals(FileVersionType.VERSION_1, readRepository.getKeyMaterial().getFileVersionType());
+    }
+
+    @Test
+    public void shouldReadFileWrittenWithPasswordOutputStream() throws DocumentProcessException, IOException {
+        // given
+        Entries expectedEntries = createEntries();
+        try (OutputStream outputStream = new GZIPOutputStream(new CryptOutputStream(
+                new JPassOutputStream(new FileOutputStream(filePath), correctKey)))) {
+            new EntryStreamWriter(false).write(expectedEntries.getEntry(), outputStream);
+        }
+
+        // when
+        EntriesRepository repository = EntriesRepository.newInstance(filePath, correctKey);
+        Entries readEntries = repository.readDocument();
+
+        // then
+        assertEquals(expectedEntries, readEntries);
+        Assert.assertEquals(FileVersionType.VERSION_1, repository.getKeyMaterial().getFileVersionType());
+    }
+
+    @Test
+    public void shouldKeepChunkedFileVersionOnSave() throws DocumentProcessException, IOException {
+        // given
+        EntriesRepository.newInstance(filePath, correctKey, KeyMaterial.generate(FileVersionType.VERSION_4, correctKey))
+                .writeDocument(createEntries());
+        EntriesRepository repository = EntriesRepository.newInstance(filePath, correctKey);
+        Entries entries = repository.readDocument();
+
+        // when
+        EntriesRepository.newInstance(filePath, correctKey, repository.getKeyMaterial()).writeDocument(entries);
+
+        // then
+        EntriesRepository readRepository = EntriesRepository.newInstance(filePath, correctKey);
+        assertEquals(entries, readRepository.readDocument());
+        Assert.assertEquals(FileVersionType.VERSION_4, readRepository.getKeyMaterial().getFileVersionType());
+    }
+
+    @Test
+    public void shouldWriteNewFileInFileVersion1() throws DocumentProcessException, IOException {
+        // when
+        EntriesRepository.newInstance(filePath, correctKey).writeDocument(createEntries());
+
+        // then
+        EntriesRepository readRepository = EntriesRepository.newInstance(filePath, correctKey);
+        assertEquals(createEntries(), readRepository.readDocument());
+        Assert.assertEquals(FileVersionType.VERSION_1, readRepository.getKeyMaterial().getFileVersionType());
+    }
+
     private Entries createEntries() {
         Entries entries = new Entries();
         entries.getEntry().add(createEntry());
@@ -0,0 +1,144 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import jpass.xml.bind.Entry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EntrySearchIndexTest {
+
+    private EntrySearchIndex index;
+
+    @Before
+    public void setup() {
+        index = new EntrySearchIndex();
+        Arrays.asList("Bank Account", "E-mail", "Caf\u00e9 Wi-Fi", "banana bread recipe", "Work VPN")
+                .forEach(title -> index.add(entry(title)));
+    }
+
+    @Test
+    public void shouldNormalizeCaseAndAccents() {
+        Assert.assertEquals("cafe wi-fi", EntrySearchIndex.normalize("Caf\u00e9 WI-FI"));
+        Assert.assertEquals("plain", EntrySearchIndex.normalize("plain"));
+        Assert.assertEquals("", EntrySearchIndex.normalize(null));
+    }
+
+    @Test
+    public void shouldFindSubstringsIgnoringCase() {
+        Assert.assertEquals(Arrays.asList("Bank Account", "banana bread recipe"), search("BAN"));
+        Assert.assertEquals(Collections.singletonList("Bank Account"), search("k acc"));
+        Assert.assertEquals(Collections.emptyList(), search("bank recipe"));
+    }
+
+    @Test
+    public void shouldFindSubstringsIgnoringAccents() {
+        Assert.assertEquals(Collections.singletonList("Caf\u00e9 Wi-Fi"), search("cafe"));
+        Assert.assertEquals(Collections.singletonList("Caf\u00e9 Wi-Fi"), search("CAF\u00c9"));
+    }
+
+    @Test
+    public void shouldFindShortQueries() {
+        Assert.assertEquals(Arrays.asList("E-mail", "Caf\u00e9 Wi-Fi"), search("-"));
+        Assert.assertEquals(Arrays.asList("Bank Account", "banana bread recipe"), search("ba"));
+    }
+
+    @Test
+    public void shouldCheckCandidatesOfIntersectedTrigrams() {
+        // given
+        index.add(entry("abcxbcd"));
+
+        // then
+        Assert.assertEquals(Collections.emptyList(), search("abcd"));
+    }
+
+    @Test
+    public void shouldUpdateIndexIncrementally() {
+        // given
+        Entry entry = entry("Online Banking");
+        index.add(entry);
+        Assert.assertEquals(3, search("bank").size() + search("banana").size());
+
+        // when
+        index.remove(entry);
+
+        // then
+        Assert.assertEquals(Collections.singletonList("Bank Account"), search("bank"));
+        Assert.assertEquals(5, index.size());
+    }
+
+    @Test
+    public void shouldCompactAfterRemovals() {
+        // given
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Entry entry = entry("entry " + i);
+            entries.add(entry);
+            index.add(entry);
+        }
+
+        // when
+        entries.subList(0, 990).forEach(index::remove);
+
+        // then
+        Assert.assertEquals(15, index.size());
+        Assert.assertEquals(Arrays.asList("entry 995"), search("entry 995"));
+        Assert.assertEquals(10, search("entry 99").size());
+    }
+
+    @Test
+    public void shouldFilterLikeSearch() {
+        // given
+        Entry indexed = entry("Bank Account");
+        index.add(indexed);
+
+        // then
+        Assert.assertTrue(index.createFilter("ACCOUNT").test(indexed));
+        Assert.assertTrue(index.createFilter("cafe").test(entry("Caf\u00e9")));
+        Assert.assertFalse(index.createFilter("cafe").test(entry("Bar")));
+    }
+
+    private List<String> search(String query) {
+        return index.search(query).stream()
+                .map(Entry::getTitle)
+                .collect(Collectors.toList());
+    }
+
+    private static Entry entry(String title) {
+        Entry entry = new Entry();
+        entry.setTitle(title);
+        return entry;
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import jpass.io.JPassStream.FileVersionType;
+import jpass.io.codec.CodecRegistry;
+import jpass.xml.bind.Entry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChunkedContainerTest {
+
+    private static final char[] PASSWORD = "password".toCharArray();
+    private static final KeyMaterial KEY_MATERIAL = KeyMaterial.derive(FileVersionType.VERSION_4, PASSWORD, new byte[16]);
+
+    private Path file;
+    private FileChannel channel;
+
+    @Before
+    public void setup() throws IOException {
+        file = Files.createTempFile("jpass-chunked", ".jpass");
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void shouldReadWrittenEntries() throws IOException {
+        // given
+        List<Entry> expectedEntries = createEntries(5000);
+        ChunkedContainer.write(channel, KEY_MATERIAL, CodecRegistry.LZ, expectedEntries);
+
+        // when
+        ChunkedContainer container = ChunkedContainer.open(channel, PASSWORD, null);
+        List<Entry> readEntries = new ArrayList<>();
+        int count = container.read(readEntries::add);
+
+        // then
+        Assert.assertTrue(container.getChunkCount() > 1);
+        Assert.assertEquals(expectedEntries.size(), container.getEntryCount());
+        Assert.assertEquals(expectedEntries.size(), count);
+        Assert.assertSame(CodecRegistry.LZ, container.getCodec());
+        assertEntriesEqual(expectedEntries, readEntries);
+    }
+
+    @Test
+    public void shouldReadEmptyDocument() throws IOException {
+        // given
+        ChunkedContainer.write(channel, KEY_MATERIAL, CodecRegistry.NONE, new ArrayList<>());
+
+        // when
+        ChunkedContainer container = ChunkedContainer.open(channel, PASSWORD, null);
+
+        // then
+        Assert.assertEquals(0, container.getChunkCount());
+        Assert.assertEquals(0, container.read(entry -> Assert.fail()));
+    }
+
+    @Test
+    public void shouldReadChunksOnDemand() throws IOException {
+        // given
+        List<Entry> expectedEntries = createEntries(5000);
+        ChunkedContainer.write(channel, KEY_MATERIAL, CodecRegistry.DEFLATE, expectedEntries);
+        ChunkedContainer container = ChunkedContainer.open(channel, PASSWORD, KEY_MATERIAL);
+
+        // when
+        List<Entry> readEntries = new ArrayList<>();
+        for (int i = container.getChunkCount() - 1; i >= 0; i--) {
+            readEntries.addAll(0, container.readChunk(i));
+        }
+
+        // then
+        Assert.assertSame(KEY_MATERIAL, container.getKeyMaterial());
+        assertEntriesEqual(expectedEntries, readEntries);
+    }
+
+    @Test
+    public void shouldAppendOnlyNewChunksOnUpdate() throws IOException {
+        // given
+        List<Entry> expectedEntries = createEntries(5000);
+        List<List<Entry>> entryChunks = ChunkedContainer.split(expectedEntries);
+        int writtenCount = 0;
+        for (int i = 0; i < entryChunks.size() / 2; i++) {
+            writtenCount += entryChunks.get(i).size();
+        }
+        long fileSize = ChunkedContainer.write(channel, KEY_MATERIAL, CodecRegistry.DEFLATE,
+                new ArrayList<>(expectedEntries.subList(0, writtenCount)));
+        long indexOffset = readIndexOffset();
+
+        // when
+        long bytesWritten = ChunkedContainer.update(channel, KEY_MATERIAL, CodecRegistry.DEFLATE, expectedEntries);
+
+        // then
+        Assert.assertTrue(bytesWritten > 0);
+        Assert.assertTrue(channel.size() > fileSize);
+        ByteBuffer replacedIndex = ByteBuffer.allocate((int) (fileSize - indexOffset));
+        channel.read(replacedIndex, indexOffset);
+        Assert.assertArrayEquals(new byte[replacedIndex.capacity()], replacedIndex.array());
+        List<Entry> readEntries = new ArrayList<>();
+        ChunkedContainer.open(channel, PASSWORD, null).read(readEntries::add);
+        assertEntriesEqual(expectedEntries, readEntries);
+    }
+
+    @Test
+    public void shouldReplaceLastChunkWhenEntryIsAppended() throws IOException {
+        // given
+        List<Entry> expectedEntries = createEntries(5001);
+        long fileSize = ChunkedContainer.write(channel, KEY_MATERIAL, CodecRegistry.DEFLATE,
+                new ArrayList<>(expectedEntries.subList(0, 5000)));
+
+        // when
+        long bytesWritten = ChunkedContainer.update(channel, KEY_MATERIAL, CodecRegistry.DEFLATE, expectedEntries);
+
+        // then
+        Assert.assertTrue(bytesWritten > 0);
+        Assert.assertTrue(bytesWritten < fileSize / 2);
+        Assert.assertTrue(channel.size() - fileSize < fileSize / 2);
+        List<Entry> readEntries = new ArrayList<>();
+        ChunkedContainer.open(channel, PASSWORD, null).read(readEntries::add);
+        assertEntriesEqual(expectedEntries, readEntries);
+    }
+
+    @Test
+    public void shouldKeepCompleteIndexWhenUpdateIsInterrupted() throws IOException {
+        // given
+        List<Entry> entries = createEntries(5001);
+        List<Entry> writtenEntries = new ArrayList<>(entries.subList(0, 5000));
+        ChunkedContainer.write(channel, KEY_MATERIAL, CodecRegistry.DEFLATE, writtenEntries);
+        byte[] original = Files.readAllBytes(file);
+        Assert.assertTrue(ChunkedContainer.update(channel, KEY_MATERIAL, CodecRegistry.DEFLATE, entries) > 0);
+        byte[] updated = Files.readAllBytes(file);
+        int indexOffsetPosition = JPassStream.FILE_FORMAT_IDENTIFIER.length + 2 + 16;
+
+        // when: interrupted before the index position is switched
+        byte[] beforeSwitch = updated.clone();
+        System.arraycopy(original, 0, beforeSwitch, 0, original.length);
+        List<Entry> entriesBeforeSwitch = readEntries(beforeSwitch);
+
+        // when: interrupted before the replaced ranges are overwritten
+        byte[] afterSwitch = beforeSwitch.clone();
+        System.arraycopy(updated, indexOffsetPosition, afterSwitch, indexOffsetPosition, 8);
+        List<Entry> entriesAfterSwitch = readEntries(afterSwitch);
+
+        // then
+        assertEntriesEqual(writtenEntries, entriesBeforeSwitch);
+        assertEntriesEqual(entries, entriesAfterSwitch);
+    }
+
+    @Test
+    public void shouldNotUpdateFileWithChangedOrRemovedEntries() throws IOException {
+        // given
+        List<Entry> entries = createEntries(5000);
+        long fileSize = ChunkedContainer.write(channel, KEY_MATERIAL, CodecRegistry.DEFLATE, entries);
+        List<Entry> changedEntries = new ArrayList<>(entries);
+        changedEntries.set(2500, createEntry(2500));
+        changedEntries.get(2500).setPassword("changed");
+        List<Entry> removedEntries = new ArrayList<>(entries);
+        removedEntries.remove(4000);
+
+        // when
+        long changedBytesWritten = ChunkedContainer.update(channel, KEY_MATERIAL, CodecRegistry.DEFLATE,
+                changedEntries);
+        long removedBytesWritten = ChunkedContainer.update(channel, KEY_MATERIAL, CodecRegistry.DEFLATE,
+                removedEntries);
+
+        // then
+        Assert.assertEquals(-1, changedBytesWritten);
+        Assert.assertEquals(-1, removedBytesWritten);
+        Assert.assertEquals(fileSize, channel.size());
+        List<Entry> readEntries = new ArrayList<>();
+        ChunkedContainer.open(channel, PASSWORD, null).read(readEntries::add);
+        assertEntriesEqual(entries, readEntries);
+    }
+
+    @Test
+    public void shouldNotWriteUnchangedEntriesOnUpdate() throws IOException {
+        // given
+        List<Entry> entries = createEntries(1000);
+        long fileSize = ChunkedContainer.write(channel, KEY_MATERIAL, CodecRegistry.DEFLATE, entries);
+
+        // when
+        long bytesWritten = ChunkedContainer.update(channel, KEY_MATERIAL, CodecRegistry.DEFLATE, entries);
+
+        // then
+        Assert.assertEquals(0, bytesWritten);
+        Assert.assertEquals(fileSize, channel.size());
+    }
+
+    @Test
+    public void shouldNotUpdateFileOfOtherKeyMaterialOrCodec() throws IOException {
+        // given
+        List<Entry> entries = createEntries(100);
+        long fileSize = ChunkedContainer.write(channel, KEY_MATERIAL, CodecRegistry.DEFLATE, entries);
+        KeyMaterial otherKeyMaterial = KeyMaterial.derive(FileVersionType.VERSION_4, PASSWORD, new byte[]{
+            1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+
+        // when
+        long otherKeyBytesWritten = ChunkedContainer.update(channel, otherKeyMaterial, CodecRegistry.DEFLATE, entries);
+        long otherCodecBytesWritten = ChunkedContainer.update(channel, KEY_MATERIAL, CodecRegistry.LZ, entries);
+
+        // then
+        Assert.assertEquals(-1, otherKeyBytesWritten);
+        Assert.assertEquals(-1, otherCodecBytesWritten);
+        Assert.assertEquals(fileSize, channel.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldThrowExceptionForIncorrectPassword() throws IOException {
+        // given
+        ChunkedContainer.write(channel, KEY_MATERIAL, CodecRegistry.DEFLATE, createEntries(100));
+
+        // when
+        ChunkedContainer.open(channel, "incorrect".toCharArray(), null);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldThrowExceptionForModifiedChunk() throws IOException {
+        // given
+        ChunkedContainer.write(channel, KEY_MATERIAL, CodecRegistry.DEFLATE, createEntries(100));
+        channel.write(ByteBuffer.wrap(new byte[]{0x55}), 100);
+
+        // when
+        ChunkedContainer.open(channel, PASSWORD, KEY_MATERIAL).readChunk(0);
+    }
+
+    private List<Entry> readEntries(byte[] data) throws IOException {
+        channel.truncate(0);
+        channel.write(ByteBuffer.wrap(data), 0);
+        List<Entry> entries = new ArrayList<>();
+        ChunkedContainer.open(channel, PASSWORD, null).read(entries::add);
+        return entries;
+    }
+
+    private long readIndexOffset() throws IOException {
+        ByteBuffer indexOffset = ByteBuffer.allocate(8);
+        channel.read(indexOffset, JPassStream.FILE_FORMAT_IDENTIFIER.length + 2 + 16);
+        return indexOffset.getLong(0);
+    }
+
+    private static List<Entry> createEntries(int count) {
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            entries.add(createEntry(i));
+        }
+        return entries;
+    }
+
+    private static Entry createEntry(int index) {
+        Entry entry = new Entry();
+        entry.setTitle("Entry " + index);
+        entry.setUrl("https://example.com/" + index);
+        entry.setUser("user" + index);
+        entry.setPassword(Long.toHexString(index * 0x9e3779b97f4a7c15L));
+        entry.setNotes(index % 3 == 0 ? null : "Notes of entry " + index);
+        return entry;
+    }
+
+    private static void assertEntriesEqual(List<Entry> expectedEntries, List<Entry> actualEntries) {
+        Assert.assertEquals(expectedEntries.size(), actualEntries.size());
+        for (int i = 0; i < expectedEntries.size(); i++) {
+            Entry expected = expectedEntries.get(i);
+            Entry actual = actualEntries.get(i);
+            Assert.assertEquals(expected.getTitle(), actual.getTitle());
+            Assert.assertEquals(expected.getUrl(), actual.getUrl());
+            Assert.assertEquals(expected.getUser(), actual.getUser());
+            Assert.assertEquals(expected.getPassword(), actual.getPassword());
+            Assert.assertEquals(expected.getNotes(), actual.getNotes());
+            Assert.assertEquals(expected.getCreationDate(), actual.getCreationDate());
+            Assert.assertEquals(expected.getLastModification(), actual.getLastModification());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import jpass.xml.bind.Entry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EntryRecordReaderTest {
+
+    @Test
+    public void shouldReadWrittenEntries() throws IOException {
+        // given
+        Entry entry = createEntry("Duff Beer Webshop", "Hom\u00e9r \ud83c\udf69");
+        Entry emptyEntry = new Entry();
+        emptyEntry.setTitle("");
+        emptyEntry.setCreationDate(null);
+        List<Entry> expectedEntries = Arrays.asList(entry, emptyEntry);
+
+        // when
+        List<Entry> readEntries = readEntries(writeEntries(expectedEntries));
+
+        // then
+        Assert.assertEquals(expectedEntries.size(), readEntries.size());
+        for (int i = 0; i < expectedEntries.size(); i++) {
+            assertEntryEquals(expectedEntries.get(i), readEntries.get(i));
+        }
+    }
+
+    @Test
+    public void shouldReadFieldsLargerThanBuffer() throws IOException {
+        // given
+        char[] notes = new char[200 * 1024];
+        Arrays.fill(notes, '\u00e9');
+        List<Entry> expectedEntries = Arrays.asList(createEntry("First", new String(notes)), createEntry("Second", "notes"));
+
+        // when
+        List<Entry> readEntries = readEntries(writeEntries(expectedEntries));
+
+        // then
+        Assert.assertEquals(expectedEntries.size(), readEntries.size());
+        for (int i = 0; i < expectedEntries.size(); i++) {
+            assertEntryEquals(expectedEntries.get(i), readEntries.get(i));
+        }
+    }
+
+    @Test
+    public void shouldReadEntriesOfSeveralSecretBuffers() throws IOException {
+        // given
+        List<Entry> expectedEntries = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            Entry entry = createEntry("Entry " + i, i % 3 == 0 ? null : "Notes of entry " + i);
+            entry.setPassword(i % 5 == 0 ? null : "Password " + i);
+            expectedEntries.add(entry);
+        }
+
+        // when
+        List<Entry> readEntries = readEntries(writeEntries(expectedEntries));
+
+        // then
+        Assert.assertEquals(expectedEntries.size(), readEntries.size());
+        for (int i = 0; i < expectedEntries.size(); i++) {
+            assertEntryEquals(expectedEntries.get(i), readEntries.get(i));
+        }
+    }
+
+    @Test
+    public void shouldKeepEncodedNotesWhenPasswordIsChanged() throws IOException {
+        // given
+        Entry entry = readEntries(writeEntries(Arrays.asList(createEntry("Title", "Notes")))).get(0);
+
+        // when
+        entry.setPassword("changed");
+
+        // then
+        Assert.assertEquals("changed", entry.getPassword());
+        Assert.assertEquals("Notes", entry.getNotes());
+        entry.setNotes(null);
+        Assert.assertNull(entry.getNotes());
+        Assert.assertEquals("changed", entry.getPassword());
+    }
+
+    @Test
+    public void shouldSkipUnknownFields() throws IOException {
+        // given: one entry with nine fields, the last two are unknown
+        byte[] data = new byte[]{1, 9, 2, 'T', 0, 0, 0, 0, 0, 0, 3, 'x', 'y', 1};
+
+        // when
+        List<Entry> readEntries = readEntries(data);
+
+        // then
+        Assert.assertEquals(1, readEntries.size());
+        Assert.assertEquals("T", readEntries.get(0).getTitle());
+        Assert.assertNull(readEntries.get(0).getLastModification());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldThrowExceptionForTruncatedData() throws IOException {
+        // given
+        byte[] data = writeEntries(Arrays.asList(createEntry("Title", "Notes")));
+
+        // when
+        readEntries(Arrays.copyOf(data, data.length - 1));
+    }
+
+    private static Entry createEntry(String title, String notes) {
+        Entry entry = new Entry();
+        entry.setTitle(title);
+        entry.setUrl("https://example.com");
+        entry.setUser("homer");
+        entry.setPassword("p\u00e4ssw\u00f6rd");
+        entry.setNotes(notes);
+        return entry;
+    }
+
+    private static byte[] writeEntries(List<Entry> entries) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new EntryRecordWriter().write(entries, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static List<Entry> readEntries(byte[] data) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        int count = new EntryRecordReader().read(new ByteArrayInputStream(data), entries::add);
+        Assert.assertEquals(count, entries.size());
+        return entries;
+    }
+
+    private static void assertEntryEquals(Entry expected, Entry actual) {
+        Assert.assertEquals(expected.getTitle(), actual.getTitle());
+        Assert.assertEquals(expected.getUrl(), actual.getUrl());
+        Assert.assertEquals(expected.getUser(), actual.getUser());
+        Assert.assertEquals(expected.getPassword(), actual.getPassword());
+        Assert.assertEquals(expected.getNotes(), actual.getNotes());
+        Assert.assertEquals(expected.getCreationDate(), actual.getCreationDate());
+        Assert.assertEquals(expected.getLastModification(), actual.getLastModification());
+    }
+}
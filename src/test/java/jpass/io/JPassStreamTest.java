@@ -0,0 +1,98 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import jpass.io.JPassStream.FileVersionType;
+import jpass.io.codec.CodecRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JPassStreamTest {
+
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    @Test
+    public void shouldReadCodecFromFileHeader() throws IOException {
+        // given
+        KeyMaterial keyMaterial = KeyMaterial.derive(FileVersionType.VERSION_3, PASSWORD, new byte[16]);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new JPassOutputStream(outputStream, keyMaterial, CodecRegistry.LZ).close();
+        outputStream.write(new byte[16]);
+        byte[] file = outputStream.toByteArray();
+
+        // when
+        JPassInputStream inputStream = new JPassInputStream(new ByteArrayInputStream(file), PASSWORD, keyMaterial);
+        JPassBuffer buffer = new JPassBuffer(ByteBuffer.wrap(file));
+
+        // then
+        Assert.assertSame(CodecRegistry.LZ, inputStream.getCodec());
+        Assert.assertSame(keyMaterial, inputStream.getKeyMaterial());
+        Assert.assertSame(CodecRegistry.LZ, buffer.getCodec());
+        Assert.assertEquals(FileVersionType.VERSION_3, buffer.getFileVersionType());
+    }
+
+    @Test
+    public void shouldUseDeflateForFileVersionsWithoutCodec() throws IOException {
+        // given
+        KeyMaterial keyMaterial = KeyMaterial.derive(FileVersionType.VERSION_2, PASSWORD, new byte[16]);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new JPassOutputStream(outputStream, keyMaterial).close();
+        outputStream.write(new byte[16]);
+
+        // when
+        JPassBuffer buffer = new JPassBuffer(ByteBuffer.wrap(outputStream.toByteArray()));
+
+        // then
+        Assert.assertSame(CodecRegistry.DEFLATE, buffer.getCodec());
+        Assert.assertEquals(FileVersionType.VERSION_2, buffer.getFileVersionType());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectCodecNotSupportedByFileVersion() throws IOException {
+        KeyMaterial keyMaterial = KeyMaterial.derive(FileVersionType.VERSION_1, PASSWORD, new byte[16]);
+        new JPassOutputStream(new ByteArrayOutputStream(), keyMaterial, CodecRegistry.LZ);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectUnknownCodec() throws IOException {
+        // given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        outputStream.write(JPassStream.FILE_FORMAT_IDENTIFIER);
+        outputStream.write(FileVersionType.VERSION_3.getVersion());
+        outputStream.write(255);
+        outputStream.write(new byte[32]);
+
+        // when
+        new JPassBuffer(ByteBuffer.wrap(outputStream.toByteArray()));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.io.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CodecRegistryTest {
+
+    @Test
+    public void shouldRoundTripWithEveryCodec() throws IOException {
+        for (Codec codec : CodecRegistry.getCodecs()) {
+            for (byte[] data : Arrays.asList(new byte[0], repetitive(100), repetitive(300 * 1024), random(200 * 1024))) {
+                Assert.assertArrayEquals(codec.getName(), data, decompress(codec, compress(codec, data)));
+            }
+        }
+    }
+
+    @Test
+    public void shouldRoundTripSingleByteWrites() throws IOException {
+        // given
+        byte[] data = repetitive(100 * 1024);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        try (OutputStream compressedStream = CodecRegistry.LZ.compress(outputStream)) {
+            for (byte b : data) {
+                compressedStream.write(b);
+            }
+        }
+
+        // then
+        Assert.assertArrayEquals(data, decompress(CodecRegistry.LZ, outputStream.toByteArray()));
+    }
+
+    @Test
+    public void shouldCompressRepetitiveData() throws IOException {
+        byte[] data = repetitive(300 * 1024);
+        Assert.assertTrue(compress(CodecRegistry.LZ, data).length < data.length / 4);
+        Assert.assertTrue(compress(CodecRegistry.DEFLATE_BEST, data).length < data.length / 4);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectCorruptLzContent() throws IOException {
+        // given
+        byte[] compressed = compress(CodecRegistry.LZ, repetitive(10 * 1024));
+        compressed[compressed.length / 2] ^= 0x55;
+
+        // when
+        decompress(CodecRegistry.LZ, compressed);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectTruncatedLzContent() throws IOException {
+        // given
+        byte[] compressed = compress(CodecRegistry.LZ, repetitive(10 * 1024));
+
+        // when
+        decompress(CodecRegistry.LZ, Arrays.copyOf(compressed, compressed.length - 1));
+    }
+
+    @Test
+    public void shouldGetCodecsByIdAndName() {
+        for (Codec codec : CodecRegistry.getCodecs()) {
+            Assert.assertSame(codec, CodecRegistry.getCodec(codec.getId()));
+            Assert.assertSame(codec, CodecRegistry.getCodec(codec.getName().toUpperCase()));
+        }
+        Assert.assertNull(CodecRegistry.getCodec(255));
+        Assert.assertNull(CodecRegistry.getCodec("unknown"));
+    }
+
+    private static byte[] repetitive(int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; builder.length() < length; i++) {
+            builder.append("<entry><title>Entry ").append(i).append("</title><user>homer</user></entry>");
+        }
+        return Arrays.copyOf(builder.toString().getBytes(StandardCharsets.UTF_8), length);
+    }
+
+    private static byte[] random(int length) {
+        byte[] data = new byte[length];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] compress(Codec codec, byte[] data) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (OutputStream compressedStream = codec.compress(outputStream)) {
+            compressedStream.write(data);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] decompress(Codec codec, byte[] data) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (InputStream inputStream = codec.decompress(new ByteArrayInputStream(data))) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) >= 0) {
+                outputStream.write(buffer, 0, read);
+            }
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+import jpass.data.EntrySearchIndex;
+import jpass.xml.bind.Entry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EntrySearchExecutorTest {
+
+    private EntryTableModel model;
+    private EntrySearchIndex index;
+    private EntrySearchExecutor executor;
+
+    @Before
+    public void setup() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            model = new EntryTableModel(Arrays.asList(EntryTableModel.Column.title("Title")));
+            List<Entry> entries = new ArrayList<>();
+            for (int i = 0; i < 10000; i++) {
+                Entry entry = new Entry();
+                entry.setTitle("entry " + i);
+                entries.add(entry);
+            }
+            model.setEntries(entries);
+            index = new EntrySearchIndex();
+            entries.forEach(index::add);
+            executor = new EntrySearchExecutor(model, index, 20);
+        });
+    }
+
+    @Test
+    public void shouldPublishOnlyLatestSearch() throws Exception {
+        // given
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger callbacks = new AtomicInteger();
+
+        // when
+        SwingUtilities.invokeAndWait(() -> {
+            executor.search("1", callbacks::incrementAndGet);
+            executor.search("y 12", () -> {
+                callbacks.incrementAndGet();
+                done.countDown();
+            });
+        });
+
+        // then
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        SwingUtilities.invokeAndWait(() -> {
+            Assert.assertEquals(111, model.getRowCount());
+            Assert.assertEquals("entry 12", model.getEntry(0).getTitle());
+            Assert.assertEquals(1, callbacks.get());
+        });
+    }
+
+    @Test
+    public void shouldIncludeEntriesAddedWhileSearchIsPending() throws Exception {
+        // given
+        CountDownLatch done = new CountDownLatch(1);
+
+        // when
+        SwingUtilities.invokeAndWait(() -> {
+            executor.search("ENTRY 999", done::countDown);
+            Entry entry = new Entry();
+            entry.setTitle("entry 9999a");
+            index.add(entry);
+            model.addEntry(entry);
+        });
+
+        // then
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        SwingUtilities.invokeAndWait(() -> Assert.assertEquals(12, model.getRowCount()));
+    }
+
+    @Test
+    public void shouldClearFilterImmediately() throws Exception {
+        // given
+        AtomicInteger callbacks = new AtomicInteger();
+
+        // when
+        SwingUtilities.invokeAndWait(() -> {
+            model.setFilter(entry -> false);
+            executor.search("", callbacks::incrementAndGet);
+        });
+
+        // then
+        SwingUtilities.invokeAndWait(() -> {
+            Assert.assertEquals(10000, model.getRowCount());
+            Assert.assertEquals(1, callbacks.get());
+        });
+    }
+}
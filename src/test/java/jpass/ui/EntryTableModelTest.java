@@ -0,0 +1,347 @@
+/*
+ * JPass
+ *
+ * Copyright (c) 2009-2022 Gabor Bata
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jpass.ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.event.TableModelEvent;
+import jpass.ui.EntryTableModel.Column;
+import jpass.xml.bind.Entry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EntryTableModelTest {
+
+    private EntryTableModel model;
+    private List<TableModelEvent> events;
+
+    @Before
+    public void setup() {
+        model = new EntryTableModel(Arrays.asList(
+                Column.title("Title"),
+                Column.text("User", Entry::getUser),
+                Column.time("Created", Entry::getCreationDate, Entry::getCreationTime)));
+        model.setEntries(Arrays.asList(entry("delta"), entry("Alpha"), entry("charlie")));
+        events = new ArrayList<>();
+        model.addTableModelListener(events::add);
+    }
+
+    @Test
+    public void shouldSortEntriesByTitleIgnoringCase() {
+        // then
+        Assert.assertEquals(Arrays.asList("Alpha", "charlie", "delta"), titles());
+        Assert.assertEquals("Alpha", model.getValueAt(0, 0));
+        Assert.assertEquals("Alpha user", model.getValueAt(0, 1));
+    }
+
+    @Test
+    public void shouldInsertEntryAtSortedPosition() {
+        // given
+        Entry entry = entry("Bravo");
+
+        // when
+        model.addEntry(entry);
+
+        // then
+        Assert.assertEquals(Arrays.asList("Alpha", "Bravo", "charlie", "delta"), titles());
+        Assert.assertEquals(1, model.getRow(entry));
+        assertSingleEvent(TableModelEvent.INSERT, 1);
+    }
+
+    @Test
+    public void shouldRemoveEntry() {
+        // given
+        Entry entry = model.getEntry(1);
+
+        // when
+        model.removeEntry(entry);
+
+        // then
+        Assert.assertEquals(Arrays.asList("Alpha", "delta"), titles());
+        Assert.assertEquals(-1, model.getRow(entry));
+        assertSingleEvent(TableModelEvent.DELETE, 1);
+    }
+
+    @Test
+    public void shouldReplaceEntryInPlace() {
+        // given
+        Entry original = model.getEntry(1);
+        Entry replacement = entry("Charlie");
+
+        // when
+        model.replaceEntry(original, replacement);
+
+        // then
+        Assert.assertEquals(Arrays.asList("Alpha", "Charlie", "delta"), titles());
+        assertSingleEvent(TableModelEvent.UPDATE, 1);
+    }
+
+    @Test
+    public void shouldMoveReplacedEntry() {
+        // given
+        Entry original = model.getEntry(0);
+
+        // when
+        model.replaceEntry(original, entry("echo"));
+
+        // then
+        Assert.assertEquals(Arrays.asList("charlie", "delta", "echo"), titles());
+        Assert.assertEquals(2, events.size());
+    }
+
+    @Test
+    public void shouldApplyChangesToFilteredRows() {
+        // given
+        model.setFilter(entry -> entry.getTitle().toLowerCase().contains("e"));
+        Assert.assertEquals(Arrays.asList("charlie", "delta"), titles());
+        events.clear();
+
+        // when
+        model.addEntry(entry("Echo"));
+        model.addEntry(entry("bravo"));
+        model.removeEntry(model.getEntry(1));
+
+        // then
+        Assert.assertEquals(Arrays.asList("charlie", "Echo"), titles());
+        Assert.assertEquals(4, model.getEntryCount());
+        Assert.assertEquals(2, events.size());
+        Assert.assertEquals(TableModelEvent.INSERT, events.get(0).getType());
+        Assert.assertEquals(TableModelEvent.DELETE, events.get(1).getType());
+    }
+
+    @Test
+    public void shouldRemoveReplacedEntryNotMatchingFilter() {
+        // given
+        model.setFilter(entry -> entry.getTitle().toLowerCase().contains("e"));
+        Entry original = model.getEntry(1);
+        events.clear();
+
+        // when
+        model.replaceEntry(original, entry("dalta"));
+
+        // then
+        Assert.assertEquals(Collections.singletonList("charlie"), titles());
+        assertSingleEvent(TableModelEvent.DELETE, 1);
+    }
+
+    @Test
+    public void shouldMergeAddedEntries() {
+        // given
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            entries.add(entry("entry " + (i % 10) + " " + i));
+        }
+
+        // when
+        model.addEntries(entries.subList(0, 50));
+        model.addEntries(entries.subList(50, 100));
+
+        // then
+        List<String> expectedTitles = new ArrayList<>();
+        expectedTitles.addAll(Arrays.asList("Alpha", "charlie", "delta"));
+        entries.forEach(entry -> expectedTitles.add(entry.getTitle()));
+        expectedTitles.sort(String.CASE_INSENSITIVE_ORDER);
+        Assert.assertEquals(expectedTitles, titles());
+        Assert.assertEquals(2, events.size());
+    }
+
+    @Test
+    public void shouldFindEntriesWithEqualTitles() {
+        // given
+        Entry first = entry("Alpha");
+        Entry second = entry("Alpha");
+
+        // when
+        model.addEntry(first);
+        model.addEntry(second);
+
+        // then
+        Assert.assertEquals(1, model.getRow(first));
+        Assert.assertEquals(2, model.getRow(second));
+    }
+
+    @Test
+    public void shouldComputeCellValuesOnlyOnce() {
+        // given
+        AtomicInteger computations = new AtomicInteger();
+        EntryTableModel countingModel = new EntryTableModel(Collections.singletonList(
+                Column.text("Title", entry -> {
+                    computations.incrementAndGet();
+                    return entry.getTitle();
+                })));
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            entries.add(entry("entry " + i));
+        }
+
+        // when
+        countingModel.setEntries(entries);
+        countingModel.getValueAt(10, 0);
+        countingModel.getValueAt(10, 0);
+        countingModel.getValueAt(11, 0);
+
+        // then
+        Assert.assertEquals(2, computations.get());
+    }
+
+    @Test
+    public void shouldInvalidateCellValuesOfReplacedEntry() {
+        // given
+        Entry original = model.getEntry(1);
+        Assert.assertEquals("charlie user", model.getValueAt(1, 1));
+        Entry replacement = entry("charlie");
+        replacement.setUser("changed");
+
+        // when
+        model.replaceEntry(original, replacement);
+
+        // then
+        Assert.assertEquals("changed", model.getValueAt(1, 1));
+    }
+
+    @Test
+    public void shouldSortByTextColumn() {
+        // given
+        model.getEntry(0).setUser("b");
+        model.getEntry(1).setUser(null);
+        model.getEntry(2).setUser("A");
+
+        // when
+        model.sortBy(1);
+
+        // then
+        Assert.assertEquals(Arrays.asList("charlie", "delta", "Alpha"), titles());
+        Assert.assertEquals(1, model.getSortColumn());
+        Assert.assertTrue(model.isSortAscending());
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals(TableModelEvent.UPDATE, events.get(0).getType());
+        Assert.assertEquals(Integer.MAX_VALUE, events.get(0).getLastRow());
+    }
+
+    @Test
+    public void shouldReverseOrderOnSecondSort() {
+        // when
+        model.sortBy(0);
+        model.sortBy(0);
+
+        // then
+        Assert.assertEquals(Arrays.asList("delta", "charlie", "Alpha"), titles());
+        Assert.assertFalse(model.isSortAscending());
+    }
+
+    @Test
+    public void shouldSortByTimeColumnAndBreakTiesByTitle() {
+        // given
+        model.getEntry(0).setCreationDate("2021-03-02T20:11:58");
+        model.getEntry(1).setCreationDate("1000");
+        model.getEntry(2).setCreationDate("1000");
+
+        // when
+        model.sortBy(2, false);
+
+        // then
+        Assert.assertEquals(Arrays.asList("Alpha", "charlie", "delta"), titles());
+
+        // when
+        model.sortBy(2, true);
+
+        // then
+        Assert.assertEquals(Arrays.asList("charlie", "delta", "Alpha"), titles());
+    }
+
+    @Test
+    public void shouldKeepSortOrderOnChanges() {
+        // given
+        model.sortBy(1, false);
+        Entry entry = entry("bravo");
+        Entry replacement = entry("Zulu");
+        replacement.setUser("a");
+
+        // when
+        model.addEntry(entry);
+        model.replaceEntry(model.getEntry(0), replacement);
+
+        // then
+        Assert.assertEquals(Arrays.asList("charlie", "bravo", "Alpha", "Zulu"), titles());
+    }
+
+    @Test
+    public void shouldSortLikeComparator() {
+        // given
+        List<Entry> entries = new ArrayList<>();
+        String[] titles = {"b", "B", "a", "A", "ab", "aB", "Ab", "", "\u00e9", "\u00c9", "e", "z"};
+        for (int i = 0; i < 200; i++) {
+            Entry entry = entry(titles[i % titles.length] + titles[(i * 7) % titles.length]);
+            entry.setUser(i % 5 == 0 ? null : titles[(i * 3) % titles.length]);
+            entries.add(entry);
+        }
+
+        for (int column = 0; column < 2; column++) {
+            for (boolean ascending : new boolean[]{true, false}) {
+                // when
+                model.setEntries(entries);
+                model.sortBy(column, ascending);
+                List<Entry> expected = new ArrayList<>(entries);
+                expected.sort(model.getOrder());
+
+                // then
+                for (int i = 0; i < expected.size(); i++) {
+                    Assert.assertEquals(0, model.getOrder().compare(expected.get(i), model.getEntry(i)));
+                }
+            }
+        }
+    }
+
+    private void assertSingleEvent(int type, int row) {
+        Assert.assertEquals(1, events.size());
+        TableModelEvent event = events.get(0);
+        Assert.assertEquals(type, event.getType());
+        Assert.assertEquals(row, event.getFirstRow());
+        Assert.assertEquals(row, event.getLastRow());
+    }
+
+    private List<String> titles() {
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < model.getRowCount(); i++) {
+            titles.add(model.getEntry(i).getTitle());
+        }
+        return titles;
+    }
+
+    private static Entry entry(String title) {
+        Entry entry = new Entry();
+        entry.setTitle(title);
+        entry.setUser(title + " user");
+        return entry;
+    }
+}
@@ -30,9 +30,15 @@ package jpass.util;
 
 import org.junit.Test;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.TimeZone;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class DateUtilsTest {
 
@@ -228,4 +234,68 @@ public class DateUtilsTest {
 
         assertEquals(result, expectedResult);
     }
+
+    @Test
+    public void parseTimestampIsoTest() {
+
+        long expectedResult = LocalDateTime.of(2021, 3, 2, 20, 11, 58)
+                .toInstant(ZoneOffset.UTC).toEpochMilli();
+        long result = DateUtils.parseTimestamp("2021-03-02T20:11:58");
+
+        assertEquals(result, expectedResult);
+    }
+
+    @Test
+    public void parseTimestampEpochTest() {
+
+        long expectedResult = LocalDateTime.ofInstant(Instant.ofEpochMilli(1616697411000L), ZoneId.systemDefault())
+                .toInstant(ZoneOffset.UTC).toEpochMilli();
+        long result = DateUtils.parseTimestamp("1616697411000");
+
+        assertEquals(result, expectedResult);
+    }
+
+    @Test
+    public void parseTimestampInDaylightSavingTimeGapTest() {
+
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Budapest"));
+        try {
+            DateTimeFormatter formatter = DateUtils.createFormatter("yyyy-MM-dd HH:mm:ss");
+            long timestamp = DateUtils.parseTimestamp("2021-03-28T02:30:00");
+
+            String expectedResult = "2021-03-28 02:30:00";
+            String result = DateUtils.formatTimestamp(timestamp, formatter);
+
+            assertEquals(result, expectedResult);
+            assertEquals(DateUtils.formatIsoDateTime("2021-03-28T02:30:00", formatter), expectedResult);
+            assertTrue(timestamp < DateUtils.parseTimestamp("2021-03-28T03:00:00"));
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    @Test
+    public void parseTimestampInvalidTest() {
+
+        assertEquals(DateUtils.parseTimestamp("2021-03-0:11:58"), 0L);
+        assertEquals(DateUtils.parseTimestamp("2021-03-02T99:11:58"), 0L);
+        assertEquals(DateUtils.parseTimestamp("-"), 0L);
+        assertEquals(DateUtils.parseTimestamp("12345678901234567890"), 0L);
+        assertEquals(DateUtils.parseTimestamp(""), 0L);
+        assertEquals(DateUtils.parseTimestamp(null), 0L);
+    }
+
+    @Test
+    public void formatTimestampTest() {
+
+        DateTimeFormatter formatter = DateUtils.createFormatter("dd.MM.yyyy HH:mm:ss");
+        long timestamp = DateUtils.parseTimestamp("2021-03-02T20:11:58.750");
+
+        String expectedResult = "02.03.2021 20:11:58";
+        String result = DateUtils.formatTimestamp(timestamp, formatter);
+
+        assertEquals(result, expectedResult);
+        assertEquals(new TimestampFormatter(formatter).format(timestamp), expectedResult);
+    }
 }